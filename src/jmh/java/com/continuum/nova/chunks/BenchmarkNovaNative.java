@@ -0,0 +1,189 @@
+package com.continuum.nova.chunks;
+
+import com.continuum.nova.system.NovaNative;
+import com.sun.jna.Pointer;
+
+/**
+ * A {@link NovaNative} for the meshing benchmarks. It keeps count of the chunk geometry it's sent and ignores
+ * everything else
+ */
+public class BenchmarkNovaNative implements NovaNative {
+    public long meshes;
+    public long vertices;
+    public long indices;
+    public long bytesSubmitted;
+
+    public void reset() {
+        meshes = 0;
+        vertices = 0;
+        indices = 0;
+        bytesSubmitted = 0;
+    }
+
+    @Override
+    public void add_chunk_geometry_batch(int num_meshes, String[] filter_names, int[] descriptors, int[] vertex_data, int vertex_count, int[] indices, int index_count) {
+        meshes += num_meshes;
+        for(int i = 0; i < num_meshes; i++) {
+            int vertexSize = descriptors[i * ChunkGeometryBatch.DESCRIPTOR_SIZE + 6];
+            int indexSize = descriptors[i * ChunkGeometryBatch.DESCRIPTOR_SIZE + 8];
+
+            this.vertices += vertexSize / ChunkGeometryBatch.INTS_PER_VERTEX;
+            this.indices += indexSize;
+            bytesSubmitted += (vertexSize + indexSize) * 4L;
+        }
+        bytesSubmitted += num_meshes * ChunkGeometryBatch.DESCRIPTOR_SIZE * 4L;
+    }
+
+    @Override
+    public void add_chunk_geometry_for_filter(String filter_name, mc_chunk_render_object render_object) {
+        meshes++;
+        vertices += render_object.vertex_buffer_size / ChunkGeometryBatch.INTS_PER_VERTEX;
+        indices += render_object.index_buffer_size;
+        bytesSubmitted += (render_object.vertex_buffer_size + render_object.index_buffer_size) * 4L;
+    }
+
+    @Override
+    public void update_chunk_indices(String filter_name, int id, int geometry_version, int[] indices, int num_indices) {
+        bytesSubmitted += num_indices * 4L;
+    }
+
+    // Nothing below here is used by the chunk builder
+
+    @Override
+    public void initialize() {}
+
+    @Override
+    public void execute_frame() {}
+
+    @Override
+    public void set_command_ring(Pointer memory, int size) {}
+
+    @Override
+    public void flush_commands() {}
+
+    @Override
+    public void send_lightmap_texture(int[] data, int length, int width, int height) {}
+
+    @Override
+    public void add_texture(mc_atlas_texture texture) {}
+
+    @Override
+    public void add_texture_location(mc_texture_atlas_location location) {}
+
+    @Override
+    public int get_max_texture_size() {
+        return 0;
+    }
+
+    @Override
+    public void reset_texture_manager() {}
+
+    @Override
+    public boolean should_close() {
+        return false;
+    }
+
+    @Override
+    public void add_gui_geometry(String type, mc_gui_buffer buffer) {}
+
+    @Override
+    public void clear_gui_buffers() {}
+
+    @Override
+    public void remove_gui_geometry(String texture_name) {}
+
+    @Override
+    public void set_mouse_grabbed(boolean grabbed) {}
+
+    @Override
+    public mouse_button_event get_next_mouse_button_event() {
+        return new mouse_button_event();
+    }
+
+    @Override
+    public mouse_position_event get_next_mouse_position_event() {
+        return new mouse_position_event();
+    }
+
+    @Override
+    public mouse_scroll_event get_next_mouse_scroll_event() {
+        return new mouse_scroll_event();
+    }
+
+    @Override
+    public key_press_event get_next_key_press_event() {
+        return new key_press_event();
+    }
+
+    @Override
+    public key_char_event get_next_key_char_event() {
+        return new key_char_event();
+    }
+
+    @Override
+    public window_size get_window_size() {
+        return new window_size();
+    }
+
+    @Override
+    public int get_window_width() {
+        return 0;
+    }
+
+    @Override
+    public int get_window_height() {
+        return 0;
+    }
+
+    @Override
+    public int poll_mouse_button_event(int[] out) {
+        return 0;
+    }
+
+    @Override
+    public int poll_mouse_position_event(int[] out) {
+        return 0;
+    }
+
+    @Override
+    public int poll_mouse_scroll_event(double[] out) {
+        return 0;
+    }
+
+    @Override
+    public int poll_key_press_event(int[] out) {
+        return 0;
+    }
+
+    @Override
+    public int poll_key_char_event(long[] out) {
+        return 0;
+    }
+
+    @Override
+    public void set_fullscreen(int fullscreen) {}
+
+    @Override
+    public boolean display_is_active() {
+        return true;
+    }
+
+    @Override
+    public int wait_for_events(double timeout_seconds) {
+        return 0;
+    }
+
+    @Override
+    public void set_string_setting(String setting, String value) {}
+
+    @Override
+    public void set_float_setting(String setting_name, float setting_value) {}
+
+    @Override
+    public void set_player_camera_transform(double x, double y, double z, float yaw, float pitch) {}
+
+    @Override
+    public String get_materials_and_filters() {
+        return "";
+    }
+}
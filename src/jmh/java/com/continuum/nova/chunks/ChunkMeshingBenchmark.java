@@ -0,0 +1,97 @@
+package com.continuum.nova.chunks;
+
+import glm.vec._3.i.Vec3i;
+import net.minecraft.client.renderer.color.BlockColors;
+import net.minecraft.init.Bootstrap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast the chunk builder meshes sections, without a game or a native library
+ *
+ * <p>Each invocation meshes every section of a {@link SyntheticWorld}, so the primary score is sections per second.
+ * The {@link Output} counters are per second too; divide them by the primary score to get vertices and bytes per
+ * section. Run with the gc profiler (the jmh block in build.gradle turns it on) and gc.alloc.rate.norm is the number of
+ * bytes allocated per section.</p>
+ *
+ * <p>Run with <code>./gradlew jmh</code></p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ChunkMeshingBenchmark {
+    private static final int SECTIONS_PER_INVOCATION = SyntheticWorld.SIZE_IN_SECTIONS * SyntheticWorld.SIZE_IN_SECTIONS
+            * (SyntheticWorld.HEIGHT / SectionMeshRegistry.SECTION_SIZE);
+
+    /**
+     * Extra numbers about each run, reported alongside the primary score
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Output {
+        public long vertices;
+        public long bytesSubmitted;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            vertices = 0;
+            bytesSubmitted = 0;
+        }
+    }
+
+    @Param({"FLAT", "MOUNTAINS", "CAVES", "OCEAN", "DENSE_BUILD"})
+    public SyntheticWorld.Terrain terrain;
+
+    @Param({"FLAT", "SMOOTH"})
+    public ChunkBuilder.LightingMode lightingMode;
+
+    private ChunkBuilder chunkBuilder;
+    private BenchmarkNovaNative nativeCode;
+    private ChunkUpdateListener.BlockUpdateRange[] sections;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Bootstrap.register();
+
+        // The same filters that the default shaderpack uses for terrain and water
+        Map<String, IGeometryFilter> filters = new HashMap<>();
+        filters.put("gbuffers_terrain", IGeometryFilter.parseFilterString("geometry_type::block AND not_transparent"));
+        filters.put("gbuffers_water", IGeometryFilter.parseFilterString("geometry_type::block AND transparent"));
+
+        nativeCode = new BenchmarkNovaNative();
+        chunkBuilder = new ChunkBuilder(filters, new SyntheticWorld(terrain), BlockColors.init(), new SectionMeshRegistry(),
+                new TranslucentGeometrySorter(), nativeCode, new SyntheticBlockGeometry());
+        chunkBuilder.setLightingMode(lightingMode);
+
+        sections = new ChunkUpdateListener.BlockUpdateRange[SECTIONS_PER_INVOCATION];
+        final int size = SectionMeshRegistry.SECTION_SIZE;
+        int i = 0;
+        for(int x = 0; x < SyntheticWorld.SIZE_IN_SECTIONS; x++) {
+            for(int y = 0; y < SyntheticWorld.HEIGHT / size; y++) {
+                for(int z = 0; z < SyntheticWorld.SIZE_IN_SECTIONS; z++) {
+                    sections[i++] = new ChunkUpdateListener.BlockUpdateRange(new Vec3i(x * size, y * size, z * size),
+                            new Vec3i(x * size + size - 1, y * size + size - 1, z * size + size - 1));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SECTIONS_PER_INVOCATION)
+    public void meshSections(Output output) {
+        nativeCode.reset();
+
+        for(ChunkUpdateListener.BlockUpdateRange section : sections) {
+            chunkBuilder.createMeshesForChunk(section);
+        }
+
+        output.vertices += nativeCode.vertices;
+        output.bytesSubmitted += nativeCode.bytesSubmitted;
+    }
+}
@@ -0,0 +1,105 @@
+package com.continuum.nova.chunks;
+
+import com.continuum.nova.system.NovaNative;
+import com.continuum.nova.system.StubNovaLibrary;
+import com.sun.jna.Memory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sending a section's meshes with one add_chunk_geometry_for_filter call each against sending them all with
+ * one add_chunk_geometry_batch call, through JNA into {@link StubNovaLibrary}
+ *
+ * <p>The batch has already held a section of {@link #LARGEST_SECTION_QUADS} quads before the benchmark starts, the
+ * way a builder thread's batch has after meshing a busy section, so the score shows whether only the used part of its
+ * arrays gets sent. Each invocation sends one section, so the score is the time per section.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkSubmissionBenchmark {
+    private static final int LARGEST_SECTION_QUADS = 16 * 16 * 16 * 6;
+
+    /**
+     * How many filters have a mesh for the section
+     */
+    @Param({"1", "4", "16"})
+    public int meshesPerSection;
+
+    @Param({"16", "256"})
+    public int quadsPerMesh;
+
+    private NovaNative nativeCode;
+    private int[] quadData;
+    private int[] quadIndices;
+    private String[] filterNames;
+    private ChunkGeometryBatch batch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        nativeCode = StubNovaLibrary.directMapped();
+
+        Random random = new Random(1234);
+        quadData = new int[quadsPerMesh * ChunkGeometryBatch.INTS_PER_QUAD];
+        for(int i = 0; i < quadData.length; i++) {
+            quadData[i] = random.nextInt();
+        }
+
+        quadIndices = new int[quadsPerMesh * 6];
+        for(int quad = 0; quad < quadsPerMesh; quad++) {
+            int firstVertex = quad * 4;
+            int base = quad * 6;
+            quadIndices[base] = firstVertex;
+            quadIndices[base + 1] = firstVertex + 1;
+            quadIndices[base + 2] = firstVertex + 2;
+            quadIndices[base + 3] = firstVertex;
+            quadIndices[base + 4] = firstVertex + 2;
+            quadIndices[base + 5] = firstVertex + 3;
+        }
+
+        filterNames = new String[meshesPerSection];
+        for(int i = 0; i < filterNames.length; i++) {
+            filterNames[i] = "filter_" + i;
+        }
+
+        batch = new ChunkGeometryBatch();
+        batch.beginMesh("warmup", 0, 0, 0, 0, 0, NovaNative.NovaVertexFormat.POS_UV_LIGHTMAPUV_NORMAL_TANGENT.ordinal());
+        batch.addQuads(new int[LARGEST_SECTION_QUADS * ChunkGeometryBatch.INTS_PER_QUAD]);
+        batch.endMesh();
+        batch.clear();
+    }
+
+    @Benchmark
+    public void perMesh() {
+        for(String filterName : filterNames) {
+            NovaNative.mc_chunk_render_object renderObject = new NovaNative.mc_chunk_render_object();
+            renderObject.format = NovaNative.NovaVertexFormat.POS_UV_LIGHTMAPUV_NORMAL_TANGENT.ordinal();
+            renderObject.id = 1;
+
+            renderObject.vertex_data = new Memory(quadData.length * 4L);
+            renderObject.vertex_data.write(0, quadData, 0, quadData.length);
+            renderObject.vertex_buffer_size = quadData.length;
+
+            renderObject.indices = new Memory(quadIndices.length * 4L);
+            renderObject.indices.write(0, quadIndices, 0, quadIndices.length);
+            renderObject.index_buffer_size = quadIndices.length;
+
+            nativeCode.add_chunk_geometry_for_filter(filterName, renderObject);
+        }
+    }
+
+    @Benchmark
+    public void batched() {
+        for(String filterName : filterNames) {
+            batch.beginMesh(filterName, 1, 1, 0, 0, 0, NovaNative.NovaVertexFormat.POS_UV_LIGHTMAPUV_NORMAL_TANGENT.ordinal());
+            batch.addQuads(quadData);
+            batch.endMesh();
+        }
+        batch.submit(nativeCode);
+    }
+}
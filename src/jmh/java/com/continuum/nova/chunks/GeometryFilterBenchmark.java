@@ -0,0 +1,76 @@
+package com.continuum.nova.chunks;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Bootstrap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares matching blocks with a parsed filter tree against the same filter compiled into a
+ * {@link CompiledGeometryFilter}
+ *
+ * <p>Each invocation runs the filter over one section's worth of block states, picked at random from every block
+ * state in the game, so the score is the time per block.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeometryFilterBenchmark {
+    private static final int BLOCKS_PER_INVOCATION = 4096;
+
+    @Param({
+            "geometry_type::block AND not_transparent",
+            "geometry_type::block AND transparent",
+            "name_part::leaves OR (geometry_type::block AND NOT (transparent OR emissive))",
+            "name::tile.water OR name::tile.ice OR (geometry_type::block AND transparent AND NOT emissive)"
+    })
+    public String filterString;
+
+    private IGeometryFilter tree;
+    private IGeometryFilter compiled;
+    private IBlockState[] blockStates;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Bootstrap.register();
+
+        tree = IGeometryFilter.parseFilterTree(filterString);
+        compiled = IGeometryFilter.parseFilterString(filterString);
+
+        List<IBlockState> allStates = new ArrayList<>();
+        for(IBlockState blockState : Block.BLOCK_STATE_IDS) {
+            allStates.add(blockState);
+        }
+
+        Random random = new Random(1234);
+        blockStates = new IBlockState[BLOCKS_PER_INVOCATION];
+        for(int i = 0; i < blockStates.length; i++) {
+            blockStates[i] = allStates.get(random.nextInt(allStates.size()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCKS_PER_INVOCATION)
+    public void tree(Blackhole blackhole) {
+        for(IBlockState blockState : blockStates) {
+            blackhole.consume(tree.matches(blockState));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCKS_PER_INVOCATION)
+    public void compiled(Blackhole blackhole) {
+        for(IBlockState blockState : blockStates) {
+            blackhole.consume(compiled.matches(blockState));
+        }
+    }
+}
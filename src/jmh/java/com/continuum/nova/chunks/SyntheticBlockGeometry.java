@@ -0,0 +1,144 @@
+package com.continuum.nova.chunks;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.block.model.IBakedModel;
+import net.minecraft.client.renderer.block.model.ItemCameraTransforms;
+import net.minecraft.client.renderer.block.model.ItemOverrideList;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockAccess;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Block geometry for the meshing benchmarks, since Minecraft's models can't be baked without a texture atlas
+ *
+ * <p>Every block is a plain unit cube with one quad per side, in the same vertex format as Minecraft's block models.
+ * Grass and leaves get a tint index so that they go through the tinting path. Fluids get a single quad on top.</p>
+ */
+public class SyntheticBlockGeometry implements BlockGeometrySource {
+    private final IBakedModel tintedCube = new CubeModel(0);
+    private final IBakedModel untintedCube = new CubeModel(-1);
+
+    @Override
+    public IBakedModel getModelForState(IBlockState blockState) {
+        if(blockState.getBlock() == Blocks.GRASS || blockState.getBlock() == Blocks.LEAVES) {
+            return tintedCube;
+        }
+
+        return untintedCube;
+    }
+
+    @Override
+    public void renderFluid(IBlockAccess world, IBlockState blockState, BlockPos pos, BufferBuilder buffer) {
+        double x = pos.getX();
+        double y = pos.getY() + 0.875;
+        double z = pos.getZ();
+        int light = world.getCombinedLight(pos.up(), 0);
+
+        buffer.pos(x, y, z).color(0.25f, 0.4f, 1.0f, 0.75f).tex(0, 0).lightmap(light >> 16, light & 0xFFFF).endVertex();
+        buffer.pos(x, y, z + 1).color(0.25f, 0.4f, 1.0f, 0.75f).tex(0, 1).lightmap(light >> 16, light & 0xFFFF).endVertex();
+        buffer.pos(x + 1, y, z + 1).color(0.25f, 0.4f, 1.0f, 0.75f).tex(1, 1).lightmap(light >> 16, light & 0xFFFF).endVertex();
+        buffer.pos(x + 1, y, z).color(0.25f, 0.4f, 1.0f, 0.75f).tex(1, 0).lightmap(light >> 16, light & 0xFFFF).endVertex();
+    }
+
+    private static class CubeModel implements IBakedModel {
+        private final Map<EnumFacing, List<BakedQuad>> quadsByFace = new EnumMap<>(EnumFacing.class);
+
+        CubeModel(int tintIndex) {
+            for(EnumFacing face : EnumFacing.values()) {
+                List<BakedQuad> quads = new ArrayList<>();
+                quads.add(new BakedQuad(makeFace(face), tintIndex, face, null, true, DefaultVertexFormats.BLOCK));
+                quadsByFace.put(face, quads);
+            }
+        }
+
+        @Override
+        public List<BakedQuad> getQuads(@Nullable IBlockState state, @Nullable EnumFacing side, long rand) {
+            if(side == null) {
+                return Collections.emptyList();
+            }
+
+            return quadsByFace.get(side);
+        }
+
+        @Override
+        public boolean isAmbientOcclusion() {
+            return true;
+        }
+
+        @Override
+        public boolean isGui3d() {
+            return true;
+        }
+
+        @Override
+        public boolean isBuiltInRenderer() {
+            return false;
+        }
+
+        @Override
+        public TextureAtlasSprite getParticleTexture() {
+            return null;
+        }
+
+        @Override
+        public ItemCameraTransforms getItemCameraTransforms() {
+            return ItemCameraTransforms.DEFAULT;
+        }
+
+        @Override
+        public ItemOverrideList getOverrides() {
+            return ItemOverrideList.NONE;
+        }
+
+        /**
+         * Makes the vertex data for one side of a unit cube, seven ints per vertex like DefaultVertexFormats.BLOCK
+         */
+        private static int[] makeFace(EnumFacing face) {
+            int[] data = new int[ChunkGeometryBatch.INTS_PER_QUAD];
+
+            // The corners of the face in the two axes it lies along
+            float[][] corners = {{0, 0}, {0, 1}, {1, 1}, {1, 0}};
+            float offset = face.getAxisDirection() == EnumFacing.AxisDirection.POSITIVE ? 1 : 0;
+
+            for(int vertex = 0; vertex < 4; vertex++) {
+                float a = corners[vertex][0];
+                float b = corners[vertex][1];
+                float x, y, z;
+                switch(face.getAxis()) {
+                    case X:
+                        x = offset; y = a; z = b;
+                        break;
+                    case Y:
+                        x = a; y = offset; z = b;
+                        break;
+                    default:
+                        x = a; y = b; z = offset;
+                        break;
+                }
+
+                int base = vertex * ChunkGeometryBatch.INTS_PER_VERTEX;
+                data[base] = Float.floatToIntBits(x);
+                data[base + 1] = Float.floatToIntBits(y);
+                data[base + 2] = Float.floatToIntBits(z);
+                data[base + 3] = 0xFFFFFFFF;
+                data[base + 4] = Float.floatToIntBits(a);
+                data[base + 5] = Float.floatToIntBits(b);
+                data[base + 6] = 0;
+            }
+
+            return data;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.continuum.nova.chunks;
+
+import com.continuum.nova.NovaConstants;
+import net.minecraft.block.BlockOldLeaf;
+import net.minecraft.block.BlockPlanks;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Biomes;
+import net.minecraft.init.Blocks;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockAccess;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+
+import javax.annotation.Nullable;
+import java.util.Random;
+
+/**
+ * A small, generated world for the chunk builder to mesh without a running game
+ *
+ * <p>The world is {@link #SIZE_IN_SECTIONS} sections wide in X and Z and as tall as a real world. Everything outside
+ * of it is air. Sky light is 15 above the highest block of each column and 0 below it, and there is no block light
+ * besides what blocks give off themselves.</p>
+ */
+public class SyntheticWorld implements IBlockAccess {
+    public enum Terrain {
+        /**
+         * Superflat-ish: stone, dirt, and a layer of grass at y=63
+         */
+        FLAT,
+
+        /**
+         * Rolling stone hills covered in grass, with oak trees scattered around
+         */
+        MOUNTAINS,
+
+        /**
+         * Solid stone with lots of winding caves, which makes lots of exposed faces
+         */
+        CAVES,
+
+        /**
+         * A sand sea floor under deep water
+         */
+        OCEAN,
+
+        /**
+         * A random mix of full blocks, glass, leaves, and air, like a dense build
+         */
+        DENSE_BUILD
+    }
+
+    public static final int SIZE_IN_SECTIONS = 4;
+    public static final int WIDTH = SIZE_IN_SECTIONS * SectionMeshRegistry.SECTION_SIZE;
+    public static final int HEIGHT = NovaConstants.CHUNK_HEIGHT;
+
+    private static final IBlockState AIR = Blocks.AIR.getDefaultState();
+
+    private final IBlockState[] blocks = new IBlockState[WIDTH * HEIGHT * WIDTH];
+    private final int[] heightMap = new int[WIDTH * WIDTH];
+    private final Biome biome;
+
+    public SyntheticWorld(Terrain terrain) {
+        Random random = new Random(1234);
+
+        for(int i = 0; i < blocks.length; i++) {
+            blocks[i] = AIR;
+        }
+
+        switch(terrain) {
+            case FLAT:
+                biome = Biomes.PLAINS;
+                for(int x = 0; x < WIDTH; x++) {
+                    for(int z = 0; z < WIDTH; z++) {
+                        fillColumn(x, z, 64);
+                    }
+                }
+                break;
+
+            case MOUNTAINS:
+                biome = Biomes.FOREST;
+                for(int x = 0; x < WIDTH; x++) {
+                    for(int z = 0; z < WIDTH; z++) {
+                        int height = (int) (80 + 30 * Math.sin(x / 9.0) * Math.cos(z / 11.0) + 8 * Math.sin((x + z) / 5.0));
+                        fillColumn(x, z, height);
+                    }
+                }
+                for(int x = 2; x < WIDTH - 2; x++) {
+                    for(int z = 2; z < WIDTH - 2; z++) {
+                        if(random.nextInt(40) == 0) {
+                            growTree(x, topOf(x, z) + 1, z);
+                        }
+                    }
+                }
+                break;
+
+            case CAVES:
+                biome = Biomes.PLAINS;
+                for(int x = 0; x < WIDTH; x++) {
+                    for(int z = 0; z < WIDTH; z++) {
+                        fillColumn(x, z, 100);
+                        for(int y = 1; y < 95; y++) {
+                            double caveDensity = Math.sin(x * 0.3) * Math.sin(y * 0.25) * Math.sin(z * 0.3);
+                            if(caveDensity > 0.3) {
+                                set(x, y, z, AIR);
+                            }
+                        }
+                    }
+                }
+                break;
+
+            case OCEAN:
+                biome = Biomes.OCEAN;
+                for(int x = 0; x < WIDTH; x++) {
+                    for(int z = 0; z < WIDTH; z++) {
+                        for(int y = 0; y < 40; y++) {
+                            set(x, y, z, y < 35 ? Blocks.STONE.getDefaultState() : Blocks.SAND.getDefaultState());
+                        }
+                        for(int y = 40; y < 63; y++) {
+                            set(x, y, z, Blocks.WATER.getDefaultState());
+                        }
+                    }
+                }
+                break;
+
+            case DENSE_BUILD:
+                biome = Biomes.PLAINS;
+                IBlockState[] palette = {
+                        Blocks.STONEBRICK.getDefaultState(),
+                        Blocks.PLANKS.getDefaultState(),
+                        Blocks.GLASS.getDefaultState(),
+                        Blocks.STAINED_GLASS.getDefaultState(),
+                        Blocks.LEAVES.getDefaultState(),
+                        Blocks.COBBLESTONE.getDefaultState(),
+                        Blocks.GLOWSTONE.getDefaultState(),
+                };
+                for(int x = 0; x < WIDTH; x++) {
+                    for(int z = 0; z < WIDTH; z++) {
+                        fillColumn(x, z, 64);
+                        for(int y = 64; y < 128; y++) {
+                            if(random.nextInt(10) >= 3) {
+                                set(x, y, z, palette[random.nextInt(palette.length)]);
+                            }
+                        }
+                    }
+                }
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown terrain " + terrain);
+        }
+
+        for(int x = 0; x < WIDTH; x++) {
+            for(int z = 0; z < WIDTH; z++) {
+                heightMap[z * WIDTH + x] = topOf(x, z);
+            }
+        }
+    }
+
+    /**
+     * Stone up to four blocks below the given height, then dirt, then grass on top
+     */
+    private void fillColumn(int x, int z, int height) {
+        for(int y = 0; y < height; y++) {
+            if(y < height - 4) {
+                set(x, y, z, Blocks.STONE.getDefaultState());
+            } else if(y < height - 1) {
+                set(x, y, z, Blocks.DIRT.getDefaultState());
+            } else {
+                set(x, y, z, Blocks.GRASS.getDefaultState());
+            }
+        }
+    }
+
+    private void growTree(int x, int baseY, int z) {
+        IBlockState leaves = Blocks.LEAVES.getDefaultState().withProperty(BlockOldLeaf.VARIANT, BlockPlanks.EnumType.OAK);
+        for(int dy = 2; dy < 6; dy++) {
+            for(int dx = -2; dx <= 2; dx++) {
+                for(int dz = -2; dz <= 2; dz++) {
+                    set(x + dx, baseY + dy, z + dz, leaves);
+                }
+            }
+        }
+
+        for(int dy = 0; dy < 5; dy++) {
+            set(x, baseY + dy, z, Blocks.LOG.getDefaultState());
+        }
+    }
+
+    private int topOf(int x, int z) {
+        for(int y = HEIGHT - 1; y >= 0; y--) {
+            if(blocks[indexOf(x, y, z)] != AIR) {
+                return y;
+            }
+        }
+
+        return -1;
+    }
+
+    private void set(int x, int y, int z, IBlockState blockState) {
+        if(isInside(x, y, z)) {
+            blocks[indexOf(x, y, z)] = blockState;
+        }
+    }
+
+    private static boolean isInside(int x, int y, int z) {
+        return x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT && z >= 0 && z < WIDTH;
+    }
+
+    private static int indexOf(int x, int y, int z) {
+        return (y * WIDTH + z) * WIDTH + x;
+    }
+
+    @Nullable
+    @Override
+    public TileEntity getTileEntity(BlockPos pos) {
+        return null;
+    }
+
+    @Override
+    public int getCombinedLight(BlockPos pos, int lightValue) {
+        int skyLight = 15;
+        if(pos.getX() >= 0 && pos.getX() < WIDTH && pos.getZ() >= 0 && pos.getZ() < WIDTH) {
+            skyLight = pos.getY() > heightMap[pos.getZ() * WIDTH + pos.getX()] ? 15 : 0;
+        }
+
+        return skyLight << 20 | lightValue << 4;
+    }
+
+    @Override
+    public IBlockState getBlockState(BlockPos pos) {
+        if(!isInside(pos.getX(), pos.getY(), pos.getZ())) {
+            return AIR;
+        }
+
+        return blocks[indexOf(pos.getX(), pos.getY(), pos.getZ())];
+    }
+
+    @Override
+    public boolean isAirBlock(BlockPos pos) {
+        return getBlockState(pos).getMaterial() == Material.AIR;
+    }
+
+    @Override
+    public Biome getBiome(BlockPos pos) {
+        return biome;
+    }
+
+    @Override
+    public int getStrongPower(BlockPos pos, EnumFacing direction) {
+        return 0;
+    }
+
+    @Override
+    public WorldType getWorldType() {
+        return WorldType.DEFAULT;
+    }
+
+    @Override
+    public boolean isSideSolid(BlockPos pos, EnumFacing side, boolean _default) {
+        if(!isInside(pos.getX(), pos.getY(), pos.getZ())) {
+            return _default;
+        }
+
+        return getBlockState(pos).isSideSolid(this, pos, side);
+    }
+}
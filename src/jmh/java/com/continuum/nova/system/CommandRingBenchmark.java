@@ -0,0 +1,79 @@
+package com.continuum.nova.system;
+
+import com.continuum.nova.chunks.BenchmarkNovaNative;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing a frame's worth of commands into a {@link CommandRingBuffer} and reading them back out with a
+ * {@link CommandRingReader}
+ *
+ * <p>The setup runs {@link CommandRingCheck} first, so a broken ring fails the run instead of giving a score.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandRingBenchmark {
+    private static final int RING_SIZE = 64 * 1024;
+    private static final int GUI_QUADS = 64;
+
+    private NativeCommands readOnly;
+    private CommandRingBuffer readOnlyRing;
+    private long commandsRead;
+
+    private NativeCommands dispatched;
+    private CommandRingBuffer dispatchedRing;
+    private FrameArena arena;
+
+    private final int[] guiIndices = {0, 1, 2, 2, 3, 0};
+    private final int[] guiVertices = new int[24];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        new CommandRingCheck().run();
+
+        ByteBuffer readOnlyMemory = ByteBuffer.allocateDirect(CommandRingBuffer.HEADER_SIZE + RING_SIZE).order(ByteOrder.nativeOrder());
+        CommandRingReader reader = new CommandRingReader(readOnlyMemory, (type, buffer, payloadOffset, payloadSize) -> commandsRead += type);
+        readOnlyRing = new CommandRingBuffer(readOnlyMemory, reader);
+        readOnly = new NativeCommands(readOnlyRing);
+
+        // Goes through NativeCommands.dispatch like RecordingNovaNative does, into a target that throws everything away
+        BenchmarkNovaNative target = new BenchmarkNovaNative();
+        arena = new FrameArena(256 * 1024);
+        ByteBuffer dispatchedMemory = ByteBuffer.allocateDirect(CommandRingBuffer.HEADER_SIZE + RING_SIZE).order(ByteOrder.nativeOrder());
+        CommandRingReader dispatcher = new CommandRingReader(dispatchedMemory,
+                (type, buffer, payloadOffset, payloadSize) -> NativeCommands.dispatch(type, buffer, payloadOffset, target, arena));
+        dispatchedRing = new CommandRingBuffer(dispatchedMemory, dispatcher);
+        dispatched = new NativeCommands(dispatchedRing);
+    }
+
+    @Benchmark
+    public void writeAndRead(Blackhole blackhole) {
+        writeFrame(readOnly);
+        readOnlyRing.flush();
+        blackhole.consume(commandsRead);
+    }
+
+    @Benchmark
+    public void writeAndDispatch() {
+        writeFrame(dispatched);
+        dispatchedRing.flush();
+        arena.endFrame();
+    }
+
+    private void writeFrame(NativeCommands commands) {
+        commands.setPlayerCameraTransform(128.5, 72, -40.25, 135, 20);
+        commands.setFloatSetting("fov", 70);
+        commands.clearGuiBuffers();
+        for(int i = 0; i < GUI_QUADS; i++) {
+            commands.addGuiGeometry("gui", "minecraft:textures/gui/widgets", "gui", guiIndices, guiIndices.length, guiVertices, guiVertices.length);
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.continuum.nova.system;
+
+import com.continuum.nova.chunks.BenchmarkNovaNative;
+import com.sun.jna.Pointer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sends every command type through a tiny {@link CommandRingBuffer} and reads them back with a
+ * {@link CommandRingReader} and {@link NativeCommands#dispatch}, then checks that the calls that come out are the
+ * calls that went in
+ *
+ * <p>The ring only has {@value #CAPACITY} bytes of space, so it wraps and fills up all the time. That's on purpose:
+ * padding at the end of the ring, the producer waiting on a full ring, and commands as big as the whole ring are the
+ * paths that never come up in a normal frame. {@link CommandRingBenchmark} runs this before measuring anything, so
+ * <code>gradlew jmh</code> fails if the ring is broken. It can also be run by itself.</p>
+ */
+public class CommandRingCheck {
+    private static final int CAPACITY = 256;
+
+    // Every length mod 4, plus some multi-byte UTF-8, so the string padding gets a workout
+    private static final String[] NAMES = {"", "a", "ab", "abc", "abcd", "abcde", "gui", "shaderpack", "\u00e9", "\u6c34\u6c34", "gui_textured"};
+
+    private final ByteBuffer memory = ByteBuffer.allocateDirect(CommandRingBuffer.HEADER_SIZE + CAPACITY).order(ByteOrder.nativeOrder());
+    private final FrameArena arena = new FrameArena(4096);
+    private final RecordingTarget target = new RecordingTarget();
+    private final List<List<Object>> expected = new ArrayList<>();
+
+    private final CommandRingReader reader;
+    private final CommandRingBuffer ring;
+    private final NativeCommands commands;
+
+    // Bytes of real commands the reader has seen, so we can tell how much padding went into the ring
+    private long handledBytes;
+
+    public static void main(String[] args) {
+        new CommandRingCheck().run();
+        System.out.println("Command ring round trips are fine");
+    }
+
+    public CommandRingCheck() {
+        reader = new CommandRingReader(memory, (type, buffer, payloadOffset, payloadSize) -> {
+            int commandStart = payloadOffset - CommandRingBuffer.COMMAND_HEADER_SIZE;
+            if((commandStart - CommandRingBuffer.HEADER_SIZE) % 8 != 0 || (payloadSize + CommandRingBuffer.COMMAND_HEADER_SIZE) % 8 != 0) {
+                throw new IllegalStateException("Command " + type + " at " + commandStart + " with a " + payloadSize + " byte payload isn't aligned to 8 bytes");
+            }
+            if(commandStart + CommandRingBuffer.COMMAND_HEADER_SIZE + payloadSize > memory.capacity()) {
+                throw new IllegalStateException("Command " + type + " at " + commandStart + " runs off the end of the ring");
+            }
+
+            handledBytes += payloadSize + CommandRingBuffer.COMMAND_HEADER_SIZE;
+            NativeCommands.dispatch(type, buffer, payloadOffset, target, arena);
+        });
+
+        // The target copies everything out of the arena as soon as it gets it, so the arena can be recycled every time
+        ring = new CommandRingBuffer(memory, () -> {
+            reader.consume();
+            arena.endFrame();
+        });
+        commands = new NativeCommands(ring);
+    }
+
+    /**
+     * @throws IllegalStateException if anything didn't make it through the ring intact
+     */
+    public void run() {
+        checkStringLayout();
+        checkEveryCommandType();
+        checkWrapAround();
+        checkFullRing();
+        checkRandomCommands();
+    }
+
+    /**
+     * Strings have to end on a four byte boundary, since the native side reads int arrays straight after them
+     */
+    private void checkStringLayout() {
+        for(String name : NAMES) {
+            byte[] utf8 = CommandRingBuffer.toUtf8(name);
+            for(int start = 0; start < 8; start += 4) {
+                int offset = CommandRingBuffer.HEADER_SIZE + start;
+                int end = ring.putString(offset, utf8);
+
+                if(end % 4 != 0 || end - offset != CommandRingBuffer.stringSize(utf8)) {
+                    throw new IllegalStateException("String '" + name + "' written at " + offset + " ended at " + end);
+                }
+                if(memory.get(offset + 4 + utf8.length) != 0) {
+                    throw new IllegalStateException("String '" + name + "' isn't null-terminated");
+                }
+                if(!CommandRingReader.getString(memory, offset).equals(name) || CommandRingReader.skipString(memory, offset) != end) {
+                    throw new IllegalStateException("String '" + name + "' didn't read back the way it was written");
+                }
+            }
+        }
+    }
+
+    private void checkEveryCommandType() {
+        for(String name : NAMES) {
+            setPlayerCameraTransform(12.5, 64, -3.25, 90, -45);
+            setFloatSetting(name, 0.75f);
+            setStringSetting(name, "value_" + name);
+            clearGuiBuffers();
+            addGuiGeometry(name, "tex", "atlas", new int[] {0, 1, 2}, 3, new int[] {1, 2, 3, 4, 5, 6}, 6);
+            addGuiGeometry("gui", name, name, IntBuffer.wrap(new int[] {2, 1, 0}), IntBuffer.wrap(new int[0]));
+            updateChunkIndices(name, 7, 3, new int[] {5, 4, 3, 2, 1, 0}, 6);
+            removeGuiGeometry(name);
+            ring.flush();
+        }
+
+        verify("every command type");
+    }
+
+    /**
+     * Camera transforms are 40 bytes, which doesn't divide the ring evenly, so every lap ends in padding
+     */
+    private void checkWrapAround() {
+        long startPosition = ring.getWritePosition();
+        long startStalls = ring.getFullStalls();
+
+        int count = CAPACITY / 40 * 5;
+        for(int i = 0; i < count; i++) {
+            setPlayerCameraTransform(i, i * 2, i * 3, i, -i);
+        }
+        ring.flush();
+
+        verify("wrap-around");
+        if(ring.getWritePosition() - startPosition == count * 40L) {
+            throw new IllegalStateException("Went around the ring without ever writing padding");
+        }
+        if(ring.getFullStalls() == startStalls) {
+            throw new IllegalStateException("Went around the ring without ever filling it up");
+        }
+        checkPadding();
+    }
+
+    /**
+     * Commands that take up the whole ring, written when the ring isn't empty, so the producer has to pad out the end
+     * and then wait for the consumer to drain everything
+     */
+    private void checkFullRing() {
+        int filterSize = CommandRingBuffer.stringSize(CommandRingBuffer.toUtf8("f"));
+        int chunkIndexCount = (CAPACITY - CommandRingBuffer.COMMAND_HEADER_SIZE - 12 - filterSize) / 4;
+        int[] chunkIndices = sequence(chunkIndexCount);
+
+        int guiStringsSize = 3 * CommandRingBuffer.stringSize(CommandRingBuffer.toUtf8("g"));
+        int guiWordCount = (CAPACITY - CommandRingBuffer.COMMAND_HEADER_SIZE - 8 - guiStringsSize) / 4;
+        int[] guiVertices = sequence(guiWordCount - 6);
+
+        for(int i = 0; i < 4; i++) {
+            long stalls = ring.getFullStalls();
+
+            setFloatSetting("abc", i);
+            updateChunkIndices("f", i, i + 1, chunkIndices, chunkIndexCount);
+            clearGuiBuffers();
+            addGuiGeometry("g", "g", "g", new int[] {0, 1, 2, 2, 3, 0}, 6, guiVertices, guiVertices.length);
+
+            // Eight bytes short of the whole ring
+            updateChunkIndices("f", i, i + 1, chunkIndices, chunkIndexCount - 2);
+
+            if(ring.getFullStalls() - stalls < 3) {
+                throw new IllegalStateException("Commands as big as the ring didn't wait for the ring to drain");
+            }
+        }
+        if(ring.getHighWaterMark() != CAPACITY) {
+            throw new IllegalStateException("Filled the ring but the high-water mark is " + ring.getHighWaterMark());
+        }
+
+        long position = ring.getWritePosition();
+        try {
+            ring.beginCommand(NativeCommands.CLEAR_GUI_BUFFERS, CAPACITY);
+            throw new IllegalStateException("A command bigger than the ring was let in");
+        } catch(IllegalArgumentException e) {
+            // This is what should happen
+        }
+        if(ring.getWritePosition() != position) {
+            throw new IllegalStateException("A command bigger than the ring moved the write position");
+        }
+
+        // The ring should still work after turning down a command
+        removeGuiGeometry("abcd");
+        ring.flush();
+
+        verify("full ring");
+        checkPadding();
+    }
+
+    /**
+     * Lots of commands with random sizes and random flushes, so the wrap lands in every possible spot
+     */
+    private void checkRandomCommands() {
+        Random random = new Random(1234);
+        int maxWords = (CAPACITY - CommandRingBuffer.COMMAND_HEADER_SIZE - 64) / 4;
+
+        for(int i = 0; i < 5000; i++) {
+            String name = NAMES[random.nextInt(NAMES.length)];
+            switch(random.nextInt(7)) {
+                case 0:
+                    setPlayerCameraTransform(random.nextDouble(), random.nextDouble(), random.nextDouble(), random.nextFloat(), random.nextFloat());
+                    break;
+
+                case 1:
+                    setFloatSetting(name, random.nextFloat());
+                    break;
+
+                case 2:
+                    setStringSetting(name, NAMES[random.nextInt(NAMES.length)]);
+                    break;
+
+                case 3:
+                    clearGuiBuffers();
+                    break;
+
+                case 4:
+                    int indexCount = random.nextInt(maxWords / 2);
+                    int vertexWordCount = random.nextInt(maxWords / 2);
+                    int[] indices = randomInts(random, indexCount + random.nextInt(4));
+                    int[] vertices = randomInts(random, vertexWordCount + random.nextInt(4));
+                    if(random.nextBoolean()) {
+                        addGuiGeometry(name, name, "atlas", indices, indexCount, vertices, vertexWordCount);
+                    } else {
+                        IntBuffer indexBuffer = ByteBuffer.allocateDirect(indexCount * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+                        indexBuffer.put(indices, 0, indexCount).flip();
+                        addGuiGeometry(name, "tex", name, indexBuffer, IntBuffer.wrap(vertices, 0, vertexWordCount));
+                    }
+                    break;
+
+                case 5:
+                    int chunkIndexCount = random.nextInt(maxWords);
+                    updateChunkIndices(name, random.nextInt(), random.nextInt(), randomInts(random, chunkIndexCount), chunkIndexCount);
+                    break;
+
+                case 6:
+                    removeGuiGeometry(name);
+                    break;
+            }
+
+            if(random.nextInt(20) == 0) {
+                ring.flush();
+            }
+        }
+        ring.flush();
+
+        verify("random commands");
+        checkPadding();
+    }
+
+    private void checkPadding() {
+        if(ring.getReadPosition() != ring.getWritePosition() || memory.getLong(CommandRingBuffer.WRITE_POSITION_OFFSET) != ring.getWritePosition()) {
+            throw new IllegalStateException("The reader stopped at " + ring.getReadPosition() + " but the writer is at " + ring.getWritePosition());
+        }
+        if(handledBytes > ring.getWritePosition()) {
+            throw new IllegalStateException("Read " + handledBytes + " bytes of commands but only " + ring.getWritePosition() + " were written");
+        }
+    }
+
+    private void verify(String what) {
+        List<List<Object>> actual = target.calls;
+        for(int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+            Object wanted = i < expected.size() ? expected.get(i) : "nothing";
+            Object got = i < actual.size() ? actual.get(i) : "nothing";
+            if(!wanted.equals(got)) {
+                throw new IllegalStateException("Checking " + what + ", call " + i + " should have been " + wanted + " but was " + got);
+            }
+        }
+
+        expected.clear();
+        actual.clear();
+    }
+
+    private void setPlayerCameraTransform(double x, double y, double z, float yaw, float pitch) {
+        commands.setPlayerCameraTransform(x, y, z, yaw, pitch);
+        expected.add(Arrays.asList("set_player_camera_transform", x, y, z, yaw, pitch));
+    }
+
+    private void setFloatSetting(String name, float value) {
+        commands.setFloatSetting(name, value);
+        expected.add(Arrays.asList("set_float_setting", name, value));
+    }
+
+    private void setStringSetting(String name, String value) {
+        commands.setStringSetting(name, value);
+        expected.add(Arrays.asList("set_string_setting", name, value));
+    }
+
+    private void clearGuiBuffers() {
+        commands.clearGuiBuffers();
+        expected.add(Arrays.asList("clear_gui_buffers"));
+    }
+
+    private void addGuiGeometry(String filterName, String textureName, String atlasName, int[] indices, int indexCount, int[] vertices, int vertexWordCount) {
+        commands.addGuiGeometry(filterName, textureName, atlasName, indices, indexCount, vertices, vertexWordCount);
+        expected.add(Arrays.asList("add_gui_geometry", filterName, textureName, atlasName,
+                Arrays.toString(Arrays.copyOf(indices, indexCount)), Arrays.toString(Arrays.copyOf(vertices, vertexWordCount))));
+    }
+
+    private void addGuiGeometry(String filterName, String textureName, String atlasName, IntBuffer indices, IntBuffer vertices) {
+        commands.addGuiGeometry(filterName, textureName, atlasName, indices, vertices);
+        expected.add(Arrays.asList("add_gui_geometry", filterName, textureName, atlasName, toString(indices), toString(vertices)));
+    }
+
+    private void updateChunkIndices(String filterName, int id, int geometryVersion, int[] indices, int indexCount) {
+        commands.updateChunkIndices(filterName, id, geometryVersion, indices, indexCount);
+        expected.add(Arrays.asList("update_chunk_indices", filterName, id, geometryVersion, Arrays.toString(Arrays.copyOf(indices, indexCount))));
+    }
+
+    private void removeGuiGeometry(String textureName) {
+        commands.removeGuiGeometry(textureName);
+        expected.add(Arrays.asList("remove_gui_geometry", textureName));
+    }
+
+    private static String toString(IntBuffer buffer) {
+        int[] ints = new int[buffer.remaining()];
+        buffer.duplicate().get(ints);
+        return Arrays.toString(ints);
+    }
+
+    private static int[] sequence(int length) {
+        int[] ints = new int[length];
+        for(int i = 0; i < length; i++) {
+            ints[i] = i;
+        }
+        return ints;
+    }
+
+    private static int[] randomInts(Random random, int length) {
+        int[] ints = new int[length];
+        for(int i = 0; i < length; i++) {
+            ints[i] = random.nextInt();
+        }
+        return ints;
+    }
+
+    /**
+     * Writes down every command call it gets, copying anything that lives in native memory
+     */
+    private static class RecordingTarget extends BenchmarkNovaNative {
+        final List<List<Object>> calls = new ArrayList<>();
+
+        @Override
+        public void set_player_camera_transform(double x, double y, double z, float yaw, float pitch) {
+            calls.add(Arrays.asList("set_player_camera_transform", x, y, z, yaw, pitch));
+        }
+
+        @Override
+        public void set_float_setting(String setting_name, float setting_value) {
+            calls.add(Arrays.asList("set_float_setting", setting_name, setting_value));
+        }
+
+        @Override
+        public void set_string_setting(String setting, String value) {
+            calls.add(Arrays.asList("set_string_setting", setting, value));
+        }
+
+        @Override
+        public void clear_gui_buffers() {
+            calls.add(Arrays.asList("clear_gui_buffers"));
+        }
+
+        @Override
+        public void add_gui_geometry(String type, mc_gui_buffer buffer) {
+            calls.add(Arrays.asList("add_gui_geometry", type, buffer.texture_name, buffer.atlas_name,
+                    ints(buffer.index_buffer, buffer.index_buffer_size), ints(buffer.vertex_buffer, buffer.vertex_buffer_size)));
+        }
+
+        @Override
+        public void update_chunk_indices(String filter_name, int id, int geometry_version, int[] indices, int num_indices) {
+            calls.add(Arrays.asList("update_chunk_indices", filter_name, id, geometry_version, Arrays.toString(Arrays.copyOf(indices, num_indices))));
+        }
+
+        @Override
+        public void remove_gui_geometry(String texture_name) {
+            calls.add(Arrays.asList("remove_gui_geometry", texture_name));
+        }
+
+        private static String ints(Pointer pointer, int count) {
+            return Arrays.toString(pointer == null ? new int[0] : pointer.getIntArray(0, count));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.continuum.nova.system;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-call cost of the JNA proxy against the direct mapped bindings in {@link DirectMappedNovaNative},
+ * for a few of the functions that get called every frame or every input event
+ *
+ * <p>Both go into {@link StubNovaLibrary}, so the score is what JNA costs per call and nothing else.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NativeCallBenchmark {
+    private NovaNative proxy;
+    private NovaNative directMapped;
+
+    private final int[] keyPressEvent = new int[4];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        proxy = StubNovaLibrary.proxy();
+        directMapped = StubNovaLibrary.directMapped();
+    }
+
+    @Benchmark
+    public boolean proxyShouldClose() {
+        return proxy.should_close();
+    }
+
+    @Benchmark
+    public boolean directShouldClose() {
+        return directMapped.should_close();
+    }
+
+    @Benchmark
+    public int proxyGetWindowWidth() {
+        return proxy.get_window_width();
+    }
+
+    @Benchmark
+    public int directGetWindowWidth() {
+        return directMapped.get_window_width();
+    }
+
+    @Benchmark
+    public int proxyPollKeyPressEvent() {
+        return proxy.poll_key_press_event(keyPressEvent);
+    }
+
+    @Benchmark
+    public int directPollKeyPressEvent() {
+        return directMapped.poll_key_press_event(keyPressEvent);
+    }
+}
@@ -0,0 +1,51 @@
+package com.continuum.nova.system;
+
+import com.sun.jna.FunctionMapper;
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Platform;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Stands in for Nova's native library in the JNA benchmarks, so they run without it or a GPU
+ *
+ * <p>Every Nova function resolves to the C library's getpid, which ignores its arguments. The caller cleans up the
+ * stack after a C call on every platform Nova runs on, so the extra arguments are harmless, and JNA still does all the
+ * marshalling that a call to the real function would. What the real function would do with the data isn't
+ * measured.</p>
+ */
+public final class StubNovaLibrary {
+    private static final String STUB_FUNCTION = Platform.isWindows() ? "_getpid" : "getpid";
+
+    private static final Map<String, Object> OPTIONS = Collections.singletonMap(Library.OPTION_FUNCTION_MAPPER,
+            (FunctionMapper) (library, method) -> STUB_FUNCTION);
+
+    private static NovaNative proxy;
+    private static DirectMappedNovaNative directMapped;
+
+    private StubNovaLibrary() {}
+
+    /**
+     * @return A NovaNative that makes every call through the JNA proxy
+     */
+    public static synchronized NovaNative proxy() {
+        if(proxy == null) {
+            proxy = (NovaNative) Native.loadLibrary(Platform.C_LIBRARY_NAME, NovaNative.class, OPTIONS);
+        }
+        return proxy;
+    }
+
+    /**
+     * @return The same {@link DirectMappedNovaNative} that Nova uses, bound to the stub. There's only ever one, since
+     * its bindings are registered once per class
+     */
+    public static synchronized DirectMappedNovaNative directMapped() {
+        if(directMapped == null) {
+            directMapped = new DirectMappedNovaNative(NativeLibrary.getInstance(Platform.C_LIBRARY_NAME, OPTIONS), proxy());
+        }
+        return directMapped;
+    }
+}
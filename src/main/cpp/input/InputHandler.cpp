@@ -111,6 +111,35 @@ namespace nova {
 		}
 		return {0,0};
 	}
+
+	bool input_handler::has_pending_events() {
+		{
+			std::lock_guard<std::mutex> lock_guard(lock_button);
+			if(!mouse_button_event_queue.empty()) {
+				return true;
+			}
+		}
+		{
+			std::lock_guard<std::mutex> lock_guard(lock_position);
+			if(!mouse_position_event_queue.empty()) {
+				return true;
+			}
+		}
+		{
+			std::lock_guard<std::mutex> lock_guard(lock_scroll);
+			if(!mouse_scroll_event_queue.empty()) {
+				return true;
+			}
+		}
+		{
+			std::lock_guard<std::mutex> lock_guard(lock_key_press);
+			if(!key_press_event_queue.empty()) {
+				return true;
+			}
+		}
+		std::lock_guard<std::mutex> lock_guard(lock_key_char);
+		return !key_char_event_queue.empty();
+	}
 	
 
 	void input_handler::create_keymap() {
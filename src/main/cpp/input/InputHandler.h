@@ -175,6 +175,11 @@ namespace nova {
         void queue_key_char_event(key_char_event  e);
         key_char_event dequeue_key_char_event();
 
+        /*!
+         * \brief Checks if any events are waiting to be dequeued
+         */
+        bool has_pending_events();
+
     private:
         std::unordered_map<int, lwjgl_keycodes> keymap;
         std::queue< mouse_button_event> mouse_button_event_queue;
@@ -0,0 +1,128 @@
+/*!
+ * \brief Consumes the commands that the Java code puts in the command ring buffer
+ *
+ * Each command just calls the same function that the Java code would have called through JNA, so the behavior is the
+ * same no matter which way a command gets here
+ */
+
+#include <atomic>
+#include <easylogging++.h>
+#include "command_ring.h"
+#include "nova.h"
+
+static uint8_t* ring_memory = nullptr;
+static uint64_t ring_capacity = 0;
+
+static std::atomic<uint64_t>* position_at(int offset) {
+    return reinterpret_cast<std::atomic<uint64_t>*>(ring_memory + offset);
+}
+
+/*!
+ * \brief Reads a string written by CommandRingBuffer#putString and moves the read head past it
+ */
+static const char* read_string(const uint8_t*& data) {
+    int32_t size = *reinterpret_cast<const int32_t*>(data);
+    auto* str = reinterpret_cast<const char*>(data + 4);
+    data += 4 + ((size + 3) & ~3);
+    return str;
+}
+
+static void run_command(int32_t type, const uint8_t* payload) {
+    switch(type) {
+        case MC_COMMAND_SET_PLAYER_CAMERA_TRANSFORM: {
+            const auto* doubles = reinterpret_cast<const double*>(payload);
+            const auto* floats = reinterpret_cast<const float*>(payload + 24);
+            set_player_camera_transform(doubles[0], doubles[1], doubles[2], floats[0], floats[1]);
+            break;
+        }
+
+        case MC_COMMAND_SET_FLOAT_SETTING: {
+            float value = *reinterpret_cast<const float*>(payload);
+            const uint8_t* data = payload + 4;
+            set_float_setting(read_string(data), value);
+            break;
+        }
+
+        case MC_COMMAND_SET_STRING_SETTING: {
+            const uint8_t* data = payload;
+            const char* name = read_string(data);
+            const char* value = read_string(data);
+            set_string_setting(name, value);
+            break;
+        }
+
+        case MC_COMMAND_CLEAR_GUI_BUFFERS:
+            clear_gui_buffers();
+            break;
+
+        case MC_COMMAND_ADD_GUI_GEOMETRY: {
+            const auto* counts = reinterpret_cast<const int32_t*>(payload);
+            const uint8_t* data = payload + 8;
+            const char* filter_name = read_string(data);
+
+            mc_gui_geometry geometry = {};
+            geometry.texture_name = read_string(data);
+            geometry.atlas_name = read_string(data);
+            geometry.index_buffer_size = counts[0];
+            geometry.vertex_buffer_size = counts[1];
+            geometry.index_buffer = reinterpret_cast<int*>(const_cast<uint8_t*>(data));
+            geometry.vertex_buffer = reinterpret_cast<uint32_t*>(const_cast<uint8_t*>(data) + counts[0] * 4);
+
+            add_gui_geometry(filter_name, &geometry);
+            break;
+        }
+
+        case MC_COMMAND_UPDATE_CHUNK_INDICES: {
+            const auto* header = reinterpret_cast<const int32_t*>(payload);
+            const uint8_t* data = payload + 12;
+            const char* filter_name = read_string(data);
+            update_chunk_indices(filter_name, header[0], header[1], reinterpret_cast<const int*>(data), header[2]);
+            break;
+        }
+
+        case MC_COMMAND_REMOVE_GUI_GEOMETRY: {
+            const uint8_t* data = payload;
+            remove_gui_geometry(read_string(data));
+            break;
+        }
+
+        default:
+            LOG(ERROR) << "Unknown command type " << type << " in the command ring buffer";
+            break;
+    }
+}
+
+void set_command_ring_memory(uint8_t* memory, int size) {
+    ring_memory = memory;
+    ring_capacity = static_cast<uint64_t>(size - COMMAND_RING_HEADER_SIZE);
+}
+
+void process_command_ring() {
+    if(ring_memory == nullptr) {
+        return;
+    }
+
+    uint64_t write_position = position_at(COMMAND_RING_WRITE_POSITION_OFFSET)->load(std::memory_order_acquire);
+    uint64_t read_position = position_at(COMMAND_RING_READ_POSITION_OFFSET)->load(std::memory_order_relaxed);
+    uint8_t* data = ring_memory + COMMAND_RING_HEADER_SIZE;
+
+    while(read_position < write_position) {
+        uint8_t* command = data + (read_position & (ring_capacity - 1));
+        int32_t type = *reinterpret_cast<int32_t*>(command);
+        int32_t size = *reinterpret_cast<int32_t*>(command + 4);
+        if(size < COMMAND_HEADER_SIZE || size % 8 != 0 || (read_position & (ring_capacity - 1)) + size > ring_capacity) {
+            // Nothing after this can be trusted, so drop the rest instead of reading garbage forever
+            LOG(ERROR) << "Command " << type << " at ring position " << read_position << " has a bad size of " << size << " bytes";
+            read_position = write_position;
+            break;
+        }
+
+        if(type != MC_COMMAND_PADDING) {
+            run_command(type, command + COMMAND_HEADER_SIZE);
+        }
+
+        read_position += size;
+    }
+
+    position_at(COMMAND_RING_READ_POSITION_OFFSET)->store(read_position, std::memory_order_release);
+}
@@ -0,0 +1,44 @@
+/*!
+ * \brief The native side of the command ring buffer that the Java code writes per-frame commands into
+ *
+ * The layout of the ring buffer and of every command must match CommandRingBuffer.java and NativeCommands.java
+ */
+
+#ifndef RENDERER_COMMAND_RING_H
+#define RENDERER_COMMAND_RING_H
+
+#include <cstdint>
+
+const int COMMAND_RING_HEADER_SIZE = 128;
+const int COMMAND_RING_WRITE_POSITION_OFFSET = 0;
+const int COMMAND_RING_READ_POSITION_OFFSET = 64;
+const int COMMAND_HEADER_SIZE = 8;
+
+/*!
+ * \brief All the kinds of commands the Java code can send through the ring buffer
+ */
+enum mc_command_type : int32_t {
+    MC_COMMAND_PADDING = 0,                 //!< Fills the space at the end of the ring buffer, should be skipped
+    MC_COMMAND_SET_PLAYER_CAMERA_TRANSFORM = 1,
+    MC_COMMAND_SET_FLOAT_SETTING = 2,
+    MC_COMMAND_SET_STRING_SETTING = 3,
+    MC_COMMAND_CLEAR_GUI_BUFFERS = 4,
+    MC_COMMAND_ADD_GUI_GEOMETRY = 5,
+    MC_COMMAND_UPDATE_CHUNK_INDICES = 6,
+    MC_COMMAND_REMOVE_GUI_GEOMETRY = 7
+};
+
+/*!
+ * \brief Tells the consumer where the ring buffer lives
+ *
+ * \param memory The start of the ring buffer, header included
+ * \param size The size of the ring buffer, header included
+ */
+void set_command_ring_memory(uint8_t* memory, int size);
+
+/*!
+ * \brief Runs every command that the Java code has published, and marks them as read
+ */
+void process_command_ring();
+
+#endif //RENDERER_COMMAND_RING_H
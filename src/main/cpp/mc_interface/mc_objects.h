@@ -105,6 +105,11 @@ struct mc_chunk_render_object {
 
 };
 
+/*!
+ * \brief The number of ints that describe a single mesh in add_chunk_geometry_batch
+ */
+const int CHUNK_BATCH_DESCRIPTOR_SIZE = 10;
+
 /*!
  * \brief Represents a single quad in Minecraft
  */
@@ -152,7 +157,7 @@ struct mc_gui_geometry {
 	int index_buffer_size;
 	int vertex_buffer_size;
 	int* index_buffer;
-    float* vertex_buffer;
+    uint32_t* vertex_buffer;    //!< Six words per vertex: float x, y, z, float u, v, and an RGBA8 color with red in the lowest byte
 	const char * atlas_name;
 };
 
@@ -77,15 +77,71 @@ NOVA_API void reset_texture_manager();
  * Chunks are identified by their chunk ID. Nova maintains a mapping from chunk ID to render_objects for that chunk.
  * This lets Nova clean out the geometry for an old chunk to make room for a new chunk
  *
+ * Each chunk ID has at most one mesh per filter, so adding geometry for a chunk ID and filter replaces the geometry
+ * that was there before. Sending a chunk with no vertices simply removes the old geometry
+ *
  * \param chunk The chunk to add to Nova
  */
 NOVA_API void add_chunk_geometry_for_filter(const char* filter_name, mc_chunk_render_object* chunk);
 
+/*!
+ * \brief Adds the geometry for many filters and chunks in one go
+ *
+ * Works just like add_chunk_geometry_for_filter, but takes all its data in flat arrays so that the Java code doesn't
+ * have to marshal a struct for every single mesh. Each mesh is described by CHUNK_BATCH_DESCRIPTOR_SIZE ints in the
+ * descriptors array: format, id, x, y, z, vertex offset, vertex size, index offset, index size, geometry version. x, y,
+ * and z are the bits of floats, and the offsets and sizes are measured in ints. The geometry version is what
+ * update_chunk_indices checks its indices against
+ *
+ * \param num_meshes The number of meshes in the batch
+ * \param filter_names The name of the filter for each mesh
+ * \param descriptors The descriptor of each mesh
+ * \param vertex_data The vertex data for all the meshes, seven ints per vertex
+ * \param vertex_count How many ints vertex_data holds
+ * \param indices The indices for all the meshes. Each mesh's indices are relative to the start of that mesh
+ * \param index_count How many ints indices holds
+ */
+NOVA_API void add_chunk_geometry_batch(int num_meshes, const char** filter_names, const int* descriptors, int* vertex_data, int vertex_count, int* indices, int index_count);
+
+/*!
+ * \brief Replaces the indices of a chunk section's mesh, leaving its vertex data alone
+ *
+ * Used to re-sort translucent geometry when the camera moves. The new indices are applied the next time geometry gets
+ * uploaded, and are ignored unless the mesh is still the build they were sorted for
+ *
+ * \param filter_name The filter that the mesh was built for
+ * \param id The ID of the chunk section the mesh belongs to
+ * \param geometry_version The geometry version of the build the indices were sorted for
+ * \param indices The new indices
+ * \param num_indices How many indices there are
+ */
+NOVA_API void update_chunk_indices(const char* filter_name, int id, int geometry_version, const int* indices, int num_indices);
+
 /*!
  * \brief Updates the Nova Renderer and renders the current frame
+ *
+ * Runs every command in the command ring buffer before rendering
  */
 NOVA_API void execute_frame();
 
+/*!
+ * \brief Tells Nova where the command ring buffer is
+ *
+ * The Java code writes commands into the ring buffer and Nova runs them during execute_frame, which saves a JNA call
+ * for each command. The memory is owned by the Java code and must stay alive as long as Nova does
+ *
+ * \param memory The ring buffer, including its header
+ * \param size The size of the ring buffer, including its header
+ */
+NOVA_API void set_command_ring(void* memory, int size);
+
+/*!
+ * \brief Runs every command in the command ring buffer right now
+ *
+ * The Java code calls this when the ring buffer fills up before the frame ends
+ */
+NOVA_API void flush_commands();
+
 /*!
  * \brief Checks if Minecraft should close
  *
@@ -95,14 +151,25 @@ NOVA_API void execute_frame();
  *
  * \return True if the window should close, false otherwise
  */
-NOVA_API bool should_close();
+NOVA_API int32_t should_close();
 
 /*!
  * \brief Checks if the window has focus
  *
  * \return True if the GLFW window is active, false otherwise
  */
-NOVA_API bool display_is_active();
+NOVA_API int32_t display_is_active();
+
+/*!
+ * \brief Sleeps until there's input for the window or the timeout runs out, whichever comes first
+ *
+ * Any input that arrives is queued the same as it is at the end of a frame. Other window events, like the window
+ * gaining focus, can end the wait early too
+ *
+ * \param timeout_seconds The longest to wait, in seconds
+ * \return 1 if there's input waiting to be polled, 0 if there isn't
+ */
+NOVA_API int32_t wait_for_events(double timeout_seconds);
 
 NOVA_API void add_gui_geometry(const char * geo_type, mc_gui_geometry * gui_geometry);
 
@@ -116,6 +183,15 @@ NOVA_API struct window_size get_window_size();
 */
 NOVA_API void clear_gui_buffers();
 
+/*!
+ * \brief Removes the GUI geometry that was drawn with the given texture, so that it can be replaced
+ *
+ * GUI geometry stays around from frame to frame until it's removed, so the Java code only has to send what changed
+ *
+ * \param texture_name The name of the texture, the same as the texture_name it was added with
+ */
+NOVA_API void remove_gui_geometry(const char* texture_name);
+
 /**
  * Settings updates
  */
@@ -171,6 +247,41 @@ NOVA_API struct key_press_event  get_next_key_press_event();
 
 NOVA_API struct key_char_event  get_next_key_char_event();
 
+/**
+ * Primitive-only versions of the event and window functions. These exist so the Java code can call them through JNA
+ * direct mapping, which can't pass structs by value without falling back to reflection. Each poll function returns 1
+ * and fills in the out parameter if there was an event, or returns 0 and leaves the out parameter alone if there wasn't
+ */
+
+/*!
+ * \param out button, action, mods
+ */
+NOVA_API int poll_mouse_button_event(int* out);
+
+/*!
+ * \param out x position, y position
+ */
+NOVA_API int poll_mouse_position_event(int* out);
+
+/*!
+ * \param out x offset, y offset
+ */
+NOVA_API int poll_mouse_scroll_event(double* out);
+
+/*!
+ * \param out key, scancode, action, mods
+ */
+NOVA_API int poll_key_press_event(int* out);
+
+/*!
+ * \param out The unicode character that was typed
+ */
+NOVA_API int poll_key_char_event(std::uint64_t* out);
+
+NOVA_API int get_window_width();
+
+NOVA_API int get_window_height();
+
 NOVA_API int get_num_loaded_shaders();
 
 NOVA_API char* get_materials_and_filters();
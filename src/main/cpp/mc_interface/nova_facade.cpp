@@ -13,7 +13,9 @@
  */
 
 #include <nova/profiler.h>
+#include <cstring>
 #include "nova.h"
+#include "command_ring.h"
 #include "../render/nova_renderer.h"
 #include "../render/objects/resources/texture_manager.h"
 #include "../input/InputHandler.h"
@@ -66,12 +68,51 @@ NOVA_API void add_chunk_geometry_for_filter(const char* filter_name, mc_chunk_re
     MESH_STORE.add_chunk_render_object(std::string(filter_name), *chunk);
 }
 
+NOVA_API void update_chunk_indices(const char* filter_name, int id, int geometry_version, const int* indices, int num_indices) {
+    NOVA_PROFILER_SCOPE;
+    MESH_STORE.update_chunk_indices(std::string(filter_name), id, geometry_version, indices, num_indices);
+}
+
+NOVA_API void add_chunk_geometry_batch(int num_meshes, const char** filter_names, const int* descriptors, int* vertex_data, int vertex_count, int* indices, int index_count) {
+    //NOVA_PROFILER_SCOPE;
+    for(int i = 0; i < num_meshes; i++) {
+        const int* descriptor = &descriptors[i * CHUNK_BATCH_DESCRIPTOR_SIZE];
+        if(descriptor[5] + descriptor[6] > vertex_count || descriptor[7] + descriptor[8] > index_count) {
+            LOG(ERROR) << "Mesh " << i << " for filter " << filter_names[i] << " reaches past the end of its batch, skipping it";
+            continue;
+        }
+
+        mc_chunk_render_object chunk = {};
+        chunk.format = descriptor[0];
+        chunk.id = descriptor[1];
+        std::memcpy(&chunk.x, &descriptor[2], sizeof(float));
+        std::memcpy(&chunk.y, &descriptor[3], sizeof(float));
+        std::memcpy(&chunk.z, &descriptor[4], sizeof(float));
+        chunk.vertex_data = reinterpret_cast<mc_block_vertex*>(&vertex_data[descriptor[5]]);
+        chunk.vertex_buffer_size = descriptor[6];
+        chunk.indices = &indices[descriptor[7]];
+        chunk.index_buffer_size = descriptor[8];
+
+        MESH_STORE.add_chunk_render_object(std::string(filter_names[i]), chunk, descriptor[9]);
+    }
+}
+
 NOVA_API void execute_frame() {
     NOVA_PROFILER_SCOPE;
+    process_command_ring();
     NOVA_RENDERER->render_frame();
     LOG(INFO) << "execute_frame done";
 }
 
+NOVA_API void set_command_ring(void* memory, int size) {
+    set_command_ring_memory(static_cast<uint8_t*>(memory), size);
+}
+
+NOVA_API void flush_commands() {
+    NOVA_PROFILER_SCOPE;
+    process_command_ring();
+}
+
 NOVA_API void set_fullscreen(int fullscreen) {
     NOVA_PROFILER_SCOPE;
     bool temp_bool = false;
@@ -81,12 +122,22 @@ NOVA_API void set_fullscreen(int fullscreen) {
     NOVA_RENDERER->get_game_window().set_fullscreen(temp_bool);
 }
 
-NOVA_API bool should_close() {
-    return NOVA_RENDERER->should_end();
+NOVA_API int32_t should_close() {
+    return NOVA_RENDERER->should_end() ? 1 : 0;
+}
+
+NOVA_API int32_t display_is_active() {
+    return NOVA_RENDERER->get_game_window().is_active() ? 1 : 0;
 }
 
-NOVA_API bool display_is_active() {
-    return NOVA_RENDERER->get_game_window().is_active();
+NOVA_API int32_t wait_for_events(double timeout_seconds) {
+    NOVA_PROFILER_SCOPE;
+    // Events that came in while the last frame was drawn are already queued, and glfw won't wake up for them
+    if(INPUT_HANDLER.has_pending_events()) {
+        return 1;
+    }
+    NOVA_RENDERER->get_game_window().wait_events(timeout_seconds);
+    return INPUT_HANDLER.has_pending_events() ? 1 : 0;
 }
 
 NOVA_API void add_gui_geometry(const char * geo_type, mc_gui_geometry * gui_geometry) {
@@ -105,6 +156,11 @@ NOVA_API void clear_gui_buffers() {
     NOVA_RENDERER->get_mesh_store().remove_gui_render_objects();
 }
 
+NOVA_API void remove_gui_geometry(const char* texture_name) {
+    NOVA_PROFILER_SCOPE;
+    NOVA_RENDERER->get_mesh_store().remove_gui_render_objects_for_texture(std::string(texture_name));
+}
+
 NOVA_API void set_string_setting(const char * setting_name, const char * setting_value) {
     NOVA_PROFILER_SCOPE;
     settings& settings = NOVA_RENDERER->get_render_settings();
@@ -149,6 +205,71 @@ NOVA_API struct key_char_event get_next_key_char_event()
 	return  INPUT_HANDLER.dequeue_key_char_event();
 }
 
+NOVA_API int poll_mouse_button_event(int* out) {
+    auto event = INPUT_HANDLER.dequeue_mouse_button_event();
+    if(event.filled == 0) {
+        return 0;
+    }
+
+    out[0] = event.button;
+    out[1] = event.action;
+    out[2] = event.mods;
+    return 1;
+}
+
+NOVA_API int poll_mouse_position_event(int* out) {
+    auto event = INPUT_HANDLER.dequeue_mouse_position_event();
+    if(event.filled == 0) {
+        return 0;
+    }
+
+    out[0] = event.xpos;
+    out[1] = event.ypos;
+    return 1;
+}
+
+NOVA_API int poll_mouse_scroll_event(double* out) {
+    auto event = INPUT_HANDLER.dequeue_mouse_scroll_event();
+    if(event.filled == 0) {
+        return 0;
+    }
+
+    out[0] = event.xoffset;
+    out[1] = event.yoffset;
+    return 1;
+}
+
+NOVA_API int poll_key_press_event(int* out) {
+    auto event = INPUT_HANDLER.dequeue_key_press_event();
+    if(event.filled == 0) {
+        return 0;
+    }
+
+    out[0] = event.key;
+    out[1] = event.scancode;
+    out[2] = event.action;
+    out[3] = event.mods;
+    return 1;
+}
+
+NOVA_API int poll_key_char_event(std::uint64_t* out) {
+    auto event = INPUT_HANDLER.dequeue_key_char_event();
+    if(event.filled == 0) {
+        return 0;
+    }
+
+    *out = event.unicode_char;
+    return 1;
+}
+
+NOVA_API int get_window_width() {
+    return (int)NOVA_RENDERER->get_game_window().get_size().x;
+}
+
+NOVA_API int get_window_height() {
+    return (int)NOVA_RENDERER->get_game_window().get_size().y;
+}
+
 NOVA_API void set_mouse_grabbed(int grabbed) {
     NOVA_RENDERER->get_game_window().set_mouse_grabbed(grabbed != 0);
 }
@@ -43,6 +43,7 @@ namespace nova {
         format vertex_format;
         glm::vec3 position;
         int id;
+        int geometry_version;   //!< Which build of the chunk section this is. Index updates only apply to the same build
     };
 }
 
@@ -6,6 +6,7 @@
 */
 
 #include <algorithm>
+#include <cstring>
 #include <easylogging++.h>
 #include <regex>
 #include <iomanip>
@@ -40,25 +41,28 @@ namespace nova {
 
         mesh_definition cur_screen_buffer = {};
         //cur_screen_buffer.vertex_data.resize(28 * static_cast<unsigned long>(command->vertex_buffer_size / 9), 0);
-        for (int i = 0; i + 8 < command->vertex_buffer_size; i += 9) {
+        for (int i = 0; i + 5 < command->vertex_buffer_size; i += 6) {
             nova_vertex new_vertex = {};
 
-            // position
-            new_vertex.position.x = command->vertex_buffer[i];
-            new_vertex.position.y = command->vertex_buffer[i+1];
-            new_vertex.position.z = command->vertex_buffer[i+2];
+            // position and UV0 are floats, stored as their bits
+            float position_and_uv[5];
+            std::memcpy(position_and_uv, &command->vertex_buffer[i], sizeof(position_and_uv));
 
-            // UV0
-            float u = command->vertex_buffer[i+3] * tex_size.x + tex_location.min.x;
+            new_vertex.position.x = position_and_uv[0];
+            new_vertex.position.y = position_and_uv[1];
+            new_vertex.position.z = position_and_uv[2];
+
+            float u = position_and_uv[3] * tex_size.x + tex_location.min.x;
             new_vertex.uv0.x = u;
-            float v = command->vertex_buffer[i+4] * tex_size.y + tex_location.min.y;
+            float v = position_and_uv[4] * tex_size.y + tex_location.min.y;
             new_vertex.uv0.y = v;
 
-            // Color
-            new_vertex.color.r = command->vertex_buffer[i+5];
-            new_vertex.color.g = command->vertex_buffer[i+6];
-            new_vertex.color.b = command->vertex_buffer[i+7];
-            new_vertex.color.a = command->vertex_buffer[i+8];
+            // Color, packed as RGBA8
+            uint32_t color = command->vertex_buffer[i+5];
+            new_vertex.color.r = (color & 0xFF) / 255.0f;
+            new_vertex.color.g = ((color >> 8) & 0xFF) / 255.0f;
+            new_vertex.color.b = ((color >> 16) & 0xFF) / 255.0f;
+            new_vertex.color.a = ((color >> 24) & 0xFF) / 255.0f;
 
             cur_screen_buffer.vertex_data.push_back(new_vertex);
         }
@@ -71,6 +75,7 @@ namespace nova {
         cur_screen_buffer.vertex_format = format::POS_UV_COLOR;
 
         render_object gui;
+        gui.texture_name = command->texture_name;
         gui.model_matrix_descriptor = shader_resources->create_model_matrix_descriptor();
         gui.per_model_buffer_range = shader_resources->get_uniform_buffers().get_per_model_buffer()->allocate_space(sizeof(glm::mat4));
         gui.upload_model_matrix(context->device);
@@ -86,7 +91,20 @@ namespace nova {
     }
 
     void mesh_store::remove_gui_render_objects() {
-        remove_render_objects([](auto& render_obj) {return render_obj.type == geometry_type::gui || render_obj.type == geometry_type::text;});
+        // Removal waits until the end of the frame, but geometry gets added right away. Anything added after this call
+        // is replacing what's being removed, so it has to stay
+        const int first_new_id = render_object::ID;
+        remove_render_objects([first_new_id](auto& render_obj) {
+            return (render_obj.type == geometry_type::gui || render_obj.type == geometry_type::text) && render_obj.id < first_new_id;
+        });
+    }
+
+    void mesh_store::remove_gui_render_objects_for_texture(const std::string& texture_name) {
+        const int first_new_id = render_object::ID;
+        remove_render_objects([first_new_id, texture_name](auto& render_obj) {
+            return (render_obj.type == geometry_type::gui || render_obj.type == geometry_type::text)
+                   && render_obj.id < first_new_id && render_obj.texture_name == texture_name;
+        });
     }
 
     void mesh_store::remove_render_objects(std::function<bool(render_object&)> filter) {
@@ -123,6 +141,16 @@ namespace nova {
         while(!geometry_to_upload.empty()) {
             const auto& entry = geometry_to_upload.front();
             const auto& def = std::get<1>(entry);
+            const std::string& material_name = std::get<0>(entry);
+
+            // A chunk section only ever has one mesh per material, so new geometry replaces whatever was there
+            remove_render_objects_for_material_with_parent(material_name, def.id);
+
+            if(def.vertex_data.empty()) {
+                LOG(TRACE) << "Removed geometry for parent " << def.id << " with material " << material_name;
+                geometry_to_upload.pop();
+                continue;
+            }
 
             render_object obj = {};
             obj.model_matrix_descriptor = shader_resources->create_model_matrix_descriptor();
@@ -138,6 +166,7 @@ namespace nova {
             obj.geometry = std::make_shared<vk_mesh>(def, context);
             obj.type = geometry_type::block;
             obj.parent_id = def.id;
+            obj.geometry_version = def.geometry_version;
             obj.position = def.position;
             obj.bounding_box.center = def.position;
             obj.bounding_box.center.y = 128;
@@ -145,7 +174,6 @@ namespace nova {
 
             LOG(INFO) << "Adding render object " << obj.id << " model matrix descriptor " << (VkDescriptorSet)obj.model_matrix_descriptor;
 
-            const std::string& material_name = std::get<0>(entry);
             if(renderables_grouped_by_material.find(material_name) == renderables_grouped_by_material.end()) {
                 renderables_grouped_by_material[material_name] = std::vector<render_object>{};
                 LOG(TRACE) << "Initialized storage for render objects with material " << material_name;
@@ -156,10 +184,39 @@ namespace nova {
             geometry_to_upload.pop();
             LOG(TRACE) << "Removed the object from the list of geometry to upload";
         }
+
+        // Index updates go last so that they land on the newest version of each mesh
+        while(!indices_to_update.empty()) {
+            const auto& update = indices_to_update.front();
+            const auto group = renderables_grouped_by_material.find(std::get<0>(update));
+            if(group != renderables_grouped_by_material.end()) {
+                const int parent_id = std::get<1>(update);
+                const int geometry_version = std::get<2>(update);
+                const auto& new_indices = std::get<3>(update);
+
+                for(auto& obj : group->second) {
+                    // Indices sorted for an older build of the section would scramble the new one, even with the same count
+                    if(obj.type == geometry_type::block && obj.parent_id == parent_id && obj.geometry_version == geometry_version
+                            && obj.geometry->num_indices == new_indices.size()) {
+                        obj.geometry->set_indices(new_indices);
+                    }
+                }
+            }
+
+            indices_to_update.pop();
+        }
         geometry_to_upload_lock.unlock();
     }
 
-    void mesh_store::add_chunk_render_object(std::string filter_name, mc_chunk_render_object &chunk) {
+    void mesh_store::update_chunk_indices(const std::string& filter_name, int id, int geometry_version, const int* indices, int num_indices) {
+        std::vector<int> new_indices(indices, indices + num_indices);
+
+        geometry_to_upload_lock.lock();
+        indices_to_update.emplace(filter_name, id, geometry_version, std::move(new_indices));
+        geometry_to_upload_lock.unlock();
+    }
+
+    void mesh_store::add_chunk_render_object(std::string filter_name, mc_chunk_render_object &chunk, int geometry_version) {
         mesh_definition def = {};
         auto& vertex_data = def.vertex_data;
 
@@ -193,12 +250,33 @@ namespace nova {
         def.vertex_format = format::all_values()[chunk.format];
         def.position = {chunk.x, chunk.y, chunk.z};
         def.id = chunk.id;
+        def.geometry_version = geometry_version;
 
         geometry_to_upload_lock.lock();
         geometry_to_upload.emplace(filter_name, def);
         geometry_to_upload_lock.unlock();
     }
 
+    void mesh_store::remove_render_objects_for_material_with_parent(const std::string& material_name, int parent_id) {
+        auto group = renderables_grouped_by_material.find(material_name);
+        if(group == renderables_grouped_by_material.end()) {
+            return;
+        }
+
+        auto& objects = group->second;
+        auto removed_elements = std::remove_if(objects.begin(), objects.end(), [&](const render_object& obj) {
+            return obj.type == geometry_type::block && obj.parent_id == parent_id;
+        });
+
+        auto per_model_buffer = shader_resources->get_uniform_buffers().get_per_model_buffer();
+        for(auto it = removed_elements; it != objects.end(); ++it) {
+            per_model_buffer->free_allocation((*it).per_model_buffer_range);
+            shader_resources->free_descriptor((*it).model_matrix_descriptor);
+        }
+
+        objects.erase(removed_elements, objects.end());
+    }
+
     void mesh_store::remove_render_objects_with_parent(long parent_id) {
         remove_render_objects([&](render_object& obj) { return obj.parent_id == parent_id; });
     }
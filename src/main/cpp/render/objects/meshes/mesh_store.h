@@ -35,8 +35,23 @@ namespace nova {
          * \brief Adds a chunk to the mesh store if the chunk doesn't exist, or replaces the chunks if it does exist
          *
          * \param chunk The chunk to add or update
+         * \param geometry_version Which build of the chunk section this is, for update_chunk_indices
          */
-        void add_chunk_render_object(std::string filter_name, mc_chunk_render_object &chunk);
+        void add_chunk_render_object(std::string filter_name, mc_chunk_render_object &chunk, int geometry_version = 0);
+
+        /*!
+         * \brief Schedules new indices for a chunk section's mesh, for when translucent geometry gets re-sorted
+         *
+         * The indices are applied in upload_new_geometry, after any new geometry. If the mesh isn't the build the
+         * indices were sorted for by then, the update is dropped
+         *
+         * \param filter_name The filter that the mesh was built for
+         * \param id The ID of the chunk section that owns the mesh
+         * \param geometry_version The build of the mesh that the indices were sorted for
+         * \param indices The new indices
+         * \param num_indices The number of new indices
+         */
+        void update_chunk_indices(const std::string& filter_name, int id, int geometry_version, const int* indices, int num_indices);
 
         void add_fullscreen_quad_for_material(const std::string& material_name);
 
@@ -60,9 +75,20 @@ namespace nova {
 
         /*!
         * \brief Removes all gui render objects and thereby deletes all the buffers
+        *
+        * GUI geometry added after this is called isn't removed, even though the removal happens later
         */
         void remove_gui_render_objects();
 
+        /*!
+         * \brief Removes the GUI render objects that were drawn with the given texture, for every material
+         *
+         * Like remove_gui_render_objects, GUI geometry added after this is called isn't removed
+         *
+         * \param texture_name The name of the texture, as it was given to add_gui_buffers
+         */
+        void remove_gui_render_objects_for_texture(const std::string& texture_name);
+
         /*!
          * \brief Removes all known render objects that come from the given ID
          *
@@ -85,6 +111,13 @@ namespace nova {
          */
         std::queue<std::tuple<std::string, mesh_definition>> geometry_to_upload;
 
+        /*!
+         * \brief New indices for existing chunk meshes, as (filter name, chunk section id, indices)
+         *
+         * Guarded by geometry_to_upload_lock
+         */
+        std::queue<std::tuple<std::string, int, int, std::vector<int>>> indices_to_update;
+
         /*!
          * \brief Filters describing the bits of geometry to remove next frame
          *
@@ -106,6 +139,16 @@ namespace nova {
          */
         void remove_render_objects(std::function<bool(render_object&)> filter);
 
+        /*!
+         * \brief Immediately removes the block geometry with the given parent ID from the given material
+         *
+         * Only safe to call while the GPU isn't using any geometry, like during upload_new_geometry
+         *
+         * \param material_name The material to remove geometry from
+         * \param parent_id The ID of the chunk section whose geometry should be removed
+         */
+        void remove_render_objects_for_material_with_parent(const std::string& material_name, int parent_id);
+
         std::unordered_map<std::string, bool> has_fullscreen_quad;
     };
 
@@ -40,6 +40,23 @@ namespace nova {
         upload_index_data(index_data);
     }
 
+    void vk_mesh::set_indices(const std::vector<int>& index_data) {
+        if((VkBuffer)indices != VK_NULL_HANDLE && index_data.size() == num_indices) {
+            void* mapped_indices;
+            vmaMapMemory(context->allocator, indices_alloc, &mapped_indices);
+            memcpy(mapped_indices, index_data.data(), index_data.size() * sizeof(int));
+            vmaUnmapMemory(context->allocator, indices_alloc);
+            return;
+        }
+
+        if((VkBuffer)indices != VK_NULL_HANDLE) {
+            vmaDestroyBuffer(context->allocator, (VkBuffer)indices, indices_alloc);
+            indices = vk::Buffer();
+        }
+
+        upload_index_data(index_data);
+    }
+
     format vk_mesh::get_format() {
         return data_format;
     }
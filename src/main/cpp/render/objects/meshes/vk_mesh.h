@@ -38,6 +38,16 @@ namespace nova {
          */
         void set_data(const std::vector<nova_vertex>& vertex_data, const std::vector<int>& index_data);
 
+        /*!
+         * \brief Replaces this mesh's indices without touching its vertex data
+         *
+         * If the number of indices doesn't change, the new indices are written into the existing index buffer.
+         * Otherwise the index buffer is re-created. Either way, the GPU must not be using this mesh
+         *
+         * \param index_data The new indices
+         */
+        void set_indices(const std::vector<int>& index_data);
+
         /*!
          * \brief Returns the format of this vertex buffer
          *
@@ -45,9 +45,12 @@ namespace nova {
     struct render_object {
         int parent_id;  //!< The ID of the thing that owns us. Could be the ID of a chunk, entity, whatever
 
+        std::string texture_name;   //!< For GUI geometry, the name of the texture it was drawn with
+
         geometry_type type;
 
         std::shared_ptr<vk_mesh> geometry;
+        int geometry_version = 0;   //!< For chunk sections, which build of the section the geometry came from
 
         glm::vec3 position;
 
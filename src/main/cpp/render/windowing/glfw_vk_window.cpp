@@ -131,6 +131,10 @@ namespace nova {
         }
     }
 
+    void glfw_vk_window::wait_events(double timeout_seconds) {
+        glfwWaitEventsTimeout(timeout_seconds);
+    }
+
     void glfw_vk_window::set_framebuffer_size(glm::ivec2 new_framebuffer_size) {
         nlohmann::json &settings = nova_renderer::instance->get_render_settings().get_options();
         settings["settings"]["viewWidth"] = new_framebuffer_size.x;
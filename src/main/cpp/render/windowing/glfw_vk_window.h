@@ -50,6 +50,13 @@ namespace nova {
 
         void end_frame();
 
+        /*!
+         * \brief Waits for input events, but no longer than the given timeout
+         *
+         * \param timeout_seconds The longest to wait, in seconds
+         */
+        void wait_events(double timeout_seconds);
+
         void set_fullscreen(bool fullscreen);
 
         glm::ivec2& get_size();
@@ -17,6 +17,8 @@ public class NovaConstants {
     public static final String BLOCK_COLOR_ATLAS_NAME   = "NovaColorAtlas";
     public static final String FONT_ATLAS_NAME          = "font";
 
+    public static final int COMMAND_RING_SIZE           = 8 * 1024 * 1024;
+
     public static final String MODEL_FILENAME           = "all_models.json";
     public static final String CHUNK_FILENAME           = "chunk.json";
 
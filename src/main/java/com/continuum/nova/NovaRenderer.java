@@ -1,18 +1,32 @@
 package com.continuum.nova;
 
+import com.continuum.nova.chunks.BlockGeometrySource;
+import com.continuum.nova.chunks.BlockIdMatcher;
 import com.continuum.nova.chunks.ChunkBuilder;
 import com.continuum.nova.chunks.ChunkUpdateListener;
 import com.continuum.nova.chunks.IGeometryFilter;
+import com.continuum.nova.chunks.MeshingStats;
+import com.continuum.nova.chunks.SectionMeshRegistry;
+import com.continuum.nova.chunks.TranslucentGeometrySorter;
+import com.continuum.nova.gui.IdleFrameLimiter;
 import com.continuum.nova.gui.NovaDraw;
+import com.continuum.nova.input.Keyboard;
+import com.continuum.nova.input.Mouse;
 import com.continuum.nova.interfaces.INovaDynamicTexture;
 import com.continuum.nova.interfaces.INovaEntityRenderer;
 import com.continuum.nova.interfaces.INovaTextureAtlasSprite;
 import com.continuum.nova.interfaces.INovaTextureMap;
+import com.continuum.nova.system.CommandRingBuffer;
+import com.continuum.nova.system.DirectMappedNovaNative;
+import com.continuum.nova.system.FrameArena;
+import com.continuum.nova.system.NativeCommands;
 import com.continuum.nova.system.NovaNative;
-import com.continuum.nova.system.NovaNative.window_size;
+import com.continuum.nova.system.RecordingNovaNative;
 import com.continuum.nova.utils.Profiler;
 import com.continuum.nova.utils.Utils;
+import com.sun.jna.Memory;
 import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
 import com.sun.jna.Platform;
 import com.sun.org.apache.xpath.internal.operations.Bool;
 import glm.Glm;
@@ -43,7 +57,10 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.lang.management.ManagementFactory;
 import java.nio.file.Paths;
 import java.util.*;
@@ -75,6 +92,17 @@ public class NovaRenderer implements IResourceManagerReloadListener {
 
     private static final List<ResourceLocation> FREE_TEXTURES = new ArrayList<>();
 
+    /**
+     * Which atlas each texture is in, keyed by the texture's location without "textures/" or ".png"
+     */
+    private static final Map<ResourceLocation, String> ATLAS_OF_TEXTURE = new HashMap<>();
+
+    /**
+     * Answers from {@link #atlasTextureOfSprite(ResourceLocation)}, keyed by the location it was given, so each
+     * location is only looked up once
+     */
+    private static final Map<ResourceLocation, String> atlasOfTextureCache = new HashMap<>();
+
     private int height;
     private int width;
 
@@ -92,11 +120,35 @@ public class NovaRenderer implements IResourceManagerReloadListener {
     final private Executor chunkUpdateThreadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
     private ChunkBuilder chunkBuilder;
+    private final SectionMeshRegistry sectionMeshRegistry = new SectionMeshRegistry();
+    private final TranslucentGeometrySorter translucentSorter = new TranslucentGeometrySorter();
     private HashMap<String, IGeometryFilter> filterMap;
     private NovaNative _native;
 
+    private Memory commandRingMemory;
+    private CommandRingBuffer commandRing;
+    private NativeCommands commands;
+
     private static NovaRenderer instance;
 
+    private static final String BACKEND_PROPERTY = "nova.backend";
+    private static final String TRACE_PROPERTY = "nova.trace";
+    private static final String MESHING_TIMERS_PROPERTY = "nova.meshing_timers";
+    private static final String MESHING_STATS_PROPERTY = "nova.meshing_stats";
+    private static final String IDLE_FPS_PROPERTY = "nova.idle_fps";
+
+    /**
+     * Frames per second to draw while a menu isn't changing, unless nova.idle_fps says otherwise
+     */
+    private static final int DEFAULT_IDLE_FPS = 10;
+
+    private IdleFrameLimiter idleFrameLimiter;
+
+    /**
+     * Where to write a line of JSON with the last second's meshing stats every second, if anywhere
+     */
+    private PrintWriter meshingStatsDump;
+
     public static NovaRenderer getInstance() {
         if (instance == null) {
             throw new IllegalStateException("Tried to access NovaRenderer before it was created");
@@ -117,6 +169,27 @@ public class NovaRenderer implements IResourceManagerReloadListener {
         Utils.initGuiTextureLocations(GUI_COLOR_TEXTURES_LOCATIONS);
         Utils.initFontTextureLocations(FONT_COLOR_TEXTURES_LOCATIONS);
         Utils.initFreeTextures(FREE_TEXTURES);
+        indexAtlases();
+    }
+
+    /**
+     * Rebuilds {@link #ATLAS_OF_TEXTURE} from the texture lists, and forgets everything that was looked up in it
+     */
+    private static void indexAtlases() {
+        ATLAS_OF_TEXTURE.clear();
+        atlasOfTextureCache.clear();
+
+        // If a texture is in more than one list, the first list wins
+        for (ResourceLocation location : BLOCK_COLOR_TEXTURES_LOCATIONS) {
+            ATLAS_OF_TEXTURE.putIfAbsent(location, BLOCK_COLOR_ATLAS_NAME);
+        }
+        for (ResourceLocation location : GUI_COLOR_TEXTURES_LOCATIONS) {
+            ATLAS_OF_TEXTURE.putIfAbsent(location, GUI_ATLAS_NAME);
+        }
+        ATLAS_OF_TEXTURE.putIfAbsent(WHITE_TEXTURE_GUI_LOCATION, GUI_ATLAS_NAME);
+        for (ResourceLocation location : FONT_COLOR_TEXTURES_LOCATIONS) {
+            ATLAS_OF_TEXTURE.putIfAbsent(location, FONT_ATLAS_NAME);
+        }
     }
 
     @Override
@@ -132,6 +205,11 @@ public class NovaRenderer implements IResourceManagerReloadListener {
         addGuiAtlas(resourceManager);
         addFontAtlas(resourceManager);
         addFreeTextures(resourceManager);
+
+        indexAtlases();
+
+        // The GUI batches move texture coordinates into the atlases, which might have just been laid out differently
+        NovaDraw.clearFilterRouting();
     }
 
     /**
@@ -260,13 +338,16 @@ public class NovaRenderer implements IResourceManagerReloadListener {
         String pid = ManagementFactory.getRuntimeMXBean().getName();
         LOG.info("PID: " + pid + " TID: " + Thread.currentThread().getId());
         try {
-            installNative();
+            installBackend();
         } catch (IOException e) {
             throw new LoaderExceptionModCrash("Nova renderer failed to load native library", e);
         }
         _native.initialize();
         LOG.info("Native code initialized");
+        createCommandRing();
         updateWindowSize();
+        setUpMeshingStats();
+        idleFrameLimiter = new IdleFrameLimiter(Integer.getInteger(IDLE_FPS_PROPERTY, DEFAULT_IDLE_FPS));
 
         // Moved here so that it's initialized after the native code is loaded
         chunksToUpdate = new PriorityQueue<>((range1, range2) -> {
@@ -286,14 +367,60 @@ public class NovaRenderer implements IResourceManagerReloadListener {
         chunkUpdateListener = new ChunkUpdateListener(chunksToUpdate);
     }
 
+    /**
+     * Picks the NovaNative to use from the nova.backend system property. "native" (the default) loads the native
+     * library, "record" loads it and writes every call to the trace file given by nova.trace, and "headless" writes the
+     * trace without loading the native library at all
+     */
+    private void installBackend() throws IOException {
+        String backend = System.getProperty(BACKEND_PROPERTY, "native");
+        if(backend.equals("native")) {
+            installNative();
+            return;
+        }
+
+        NovaNative delegate = null;
+        if(backend.equals("record")) {
+            installNative();
+            delegate = _native;
+        } else if(!backend.equals("headless")) {
+            throw new IOException("Unknown Nova backend '" + backend + "'. Use native, record, or headless");
+        }
+
+        File traceFile = new File(System.getProperty(TRACE_PROPERTY, "nova-trace.bin"));
+        LOG.info("Recording every call to the {} backend in {}", backend, traceFile.getAbsolutePath());
+
+        RecordingNovaNative recorder = new RecordingNovaNative(new FileOutputStream(traceFile), delegate);
+        Runtime.getRuntime().addShutdownHook(new Thread(recorder::close, "Nova trace writer"));
+        _native = recorder;
+    }
+
+    /**
+     * Turns on the meshing stage timers if nova.meshing_timers is true, and opens the file given by nova.meshing_stats
+     * to write meshing stats to
+     */
+    private void setUpMeshingStats() {
+        MeshingStats.setTimersEnabled(Boolean.getBoolean(MESHING_TIMERS_PROPERTY));
+
+        String statsPath = System.getProperty(MESHING_STATS_PROPERTY);
+        if (statsPath != null) {
+            try {
+                meshingStatsDump = new PrintWriter(new FileWriter(statsPath, true));
+                LOG.info("Writing meshing stats to {}", new File(statsPath).getAbsolutePath());
+            } catch (IOException e) {
+                LOG.error("Could not open " + statsPath + " to write meshing stats to", e);
+            }
+        }
+    }
+
     private void installNative() throws IOException {
         if((Boolean) Launch.blackboard.get("fml.deobfuscatedEnvironment")) {
             LOG.info("Nova is very likely running in a development environment, trying to load native from run directory...");
             try {
                 if (Platform.isWindows()) {
-                    _native = (NovaNative) Native.loadLibrary("./nova-renderer.dll", NovaNative.class);
+                    _native = loadNative("./nova-renderer.dll");
                 } else {
-                    _native = (NovaNative) Native.loadLibrary("./libnova-renderer.so", NovaNative.class);
+                    _native = loadNative("./libnova-renderer.so");
                 }
                 LOG.info("Succeeded in loading nova from run directory.");
                 return;
@@ -324,20 +451,41 @@ public class NovaRenderer implements IResourceManagerReloadListener {
             }
         }
 
-        _native = (NovaNative) Native.loadLibrary(toLoad.getAbsolutePath(), NovaNative.class);
+        _native = loadNative(toLoad.getAbsolutePath());
+    }
+
+    /**
+     * Loads the native library at the given path, binding the functions that get called every frame directly
+     *
+     * @param path The path to the native library
+     * @return The loaded native code
+     */
+    private static NovaNative loadNative(String path) {
+        NovaNative proxy = (NovaNative) Native.loadLibrary(path, NovaNative.class);
+        return new DirectMappedNovaNative(NativeLibrary.getInstance(path), proxy);
+    }
+
+    /**
+     * Makes the ring buffer that per-frame commands go through, and tells the native code about it
+     */
+    private void createCommandRing() {
+        // The native code holds on to this memory, so we need to keep a reference to it
+        commandRingMemory = new Memory(CommandRingBuffer.HEADER_SIZE + COMMAND_RING_SIZE);
+        commandRing = new CommandRingBuffer(commandRingMemory.getByteBuffer(0, commandRingMemory.size()), _native::flush_commands);
+        _native.set_command_ring(commandRingMemory, (int) commandRingMemory.size());
+        commands = new NativeCommands(commandRing);
     }
 
     private void updateWindowSize() {
-        window_size size = _native.get_window_size();
-        int oldHeight = height;
-        int oldWidth = width;
-        if (oldHeight != size.height || oldWidth != size.width) {
+        int newHeight = _native.get_window_height();
+        int newWidth = _native.get_window_width();
+        if (height != newHeight || width != newWidth) {
             resized = true;
         } else {
             resized = false;
         }
-        height = size.height;
-        width = size.width;
+        height = newHeight;
+        width = newWidth;
 
     }
 
@@ -372,15 +520,29 @@ public class NovaRenderer implements IResourceManagerReloadListener {
 
             NovaDraw.novaDrawScreen(mc.currentScreen, renderPartialTicks, filterMap);
 
+        } else {
+            NovaDraw.clearScreen();
         }
         Profiler.end("render_gui");
 
         Profiler.start("update_chunks");
+        ChunkBuilder.LightingMode lightingMode = mc.gameSettings.ambientOcclusion == 0 ? ChunkBuilder.LightingMode.FLAT : ChunkBuilder.LightingMode.SMOOTH;
+        if (chunkBuilder != null && chunkBuilder.getLightingMode() != lightingMode) {
+            // Every chunk has to be re-meshed to pick up the new lighting
+            chunkBuilder.setLightingMode(lightingMode);
+            chunksToUpdate.addAll(updatedChunks);
+            updatedChunks.clear();
+        }
+
         int numChunksUpdated = 0;
         while (!chunksToUpdate.isEmpty()) {
             ChunkUpdateListener.BlockUpdateRange range = chunksToUpdate.remove();
             // chunkBuilder.createMeshesForChunk(range);
-            chunkUpdateThreadPool.execute(() -> chunkBuilder.createMeshesForChunk(range));
+            long queuedAt = System.nanoTime();
+            chunkUpdateThreadPool.execute(() -> {
+                MeshingStats.forThread().addQueueWait(System.nanoTime() - queuedAt);
+                chunkBuilder.createMeshesForChunk(range);
+            });
             updatedChunks.add(range);
             numChunksUpdated++;
             if (numChunksUpdated > 10) {
@@ -397,10 +559,19 @@ public class NovaRenderer implements IResourceManagerReloadListener {
             double x = viewEntity.posX;
             double y = viewEntity.posY + viewEntity.getEyeHeight();
             double z = viewEntity.posZ;
-            _native.set_player_camera_transform(x, y, z, yaw, pitch);
+            commands.setPlayerCameraTransform(x, y, z, yaw, pitch);
         }
         Profiler.end("update_player");
 
+        if (viewEntity != null) {
+            Profiler.start("sort_translucent_geometry");
+            // The centers of the farthest drawn sections can be most of a chunk past the render distance
+            float maxSortDistance = (mc.gameSettings.renderDistanceChunks + 1) * 16;
+            translucentSorter.sortForCamera(viewEntity.posX, viewEntity.posY + viewEntity.getEyeHeight(), viewEntity.posZ,
+                    maxSortDistance, commands);
+            Profiler.end("sort_translucent_geometry");
+        }
+
         Profiler.start("execute_frame");
         _native.execute_frame();
         Profiler.end("execute_frame");
@@ -410,11 +581,19 @@ public class NovaRenderer implements IResourceManagerReloadListener {
         Profiler.end("update_window");
         int scalefactor = new ScaledResolution(mc).getScaleFactor() * 2;
         if (scalefactor != this.scalefactor) {
-            _native.set_float_setting("scalefactor", scalefactor);
+            commands.setFloatSetting("scalefactor", scalefactor);
             this.scalefactor = scalefactor;
         }
 
         printProfilerData();
+
+        // Input handled this frame usually changes what the next frame draws. Both are checked so both get reset
+        boolean hadInput = Mouse.hadEventsSinceLastCheck() | Keyboard.hadEventsSinceLastCheck();
+
+        // Menus only slow down when nothing behind them is moving either
+        boolean quiet = !hadInput && mc.currentScreen != null && (mc.world == null || mc.isGamePaused())
+                && !NovaDraw.didGeometryChange() && !shouldUpdateLightmap && chunksToUpdate.isEmpty() && !resized;
+        idleFrameLimiter.endFrame(quiet, _native);
     }
 
     private void sendLightmapTexture(DynamicTexture lightmapTexture) {
@@ -423,21 +602,77 @@ public class NovaRenderer implements IResourceManagerReloadListener {
     }
 
     private void printProfilerData() {
+        MeshingStats.Snapshot meshingStats = MeshingStats.update();
+        if (meshingStats != null) {
+            Profiler.setCounter("meshing.sections_per_second", meshingStats.sectionsMeshed);
+            Profiler.setCounter("meshing.quads_per_second", meshingStats.quads);
+            Profiler.setCounter("meshing.bytes_submitted_per_second", meshingStats.bytesSubmitted);
+            Profiler.setCounter("meshing.average_queue_wait_ms", meshingStats.averageQueueWaitMillis);
+            for (Map.Entry<String, Long> entry : meshingStats.quadsPerFilter.entrySet()) {
+                Profiler.setCounter("meshing.quads_per_second." + entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<MeshingStats.Stage, Double> entry : meshingStats.stageMillis.entrySet()) {
+                Profiler.setCounter("meshing.ms_per_second." + entry.getKey().name().toLowerCase(), entry.getValue());
+            }
+
+            if (meshingStatsDump != null) {
+                meshingStatsDump.println(meshingStats.toJson());
+                meshingStatsDump.flush();
+            }
+        }
+
+        if (commandRing != null) {
+            Profiler.setCounter("command_ring.high_water_bytes", commandRing.getHighWaterMark());
+            Profiler.setCounter("command_ring.full_stalls", commandRing.getFullStalls());
+        }
+        if (_native instanceof RecordingNovaNative) {
+            FrameArena guiArena = ((RecordingNovaNative) _native).getGuiArena();
+            Profiler.setCounter("gui_arena.high_water_bytes", guiArena.getHighWaterMark());
+            Profiler.setCounter("gui_arena.overflow_allocations", guiArena.getOverflowAllocations());
+        }
+
         Profiler.logData();
     }
 
     public void setWorld(World world) {
+        if (world != this.world) {
+            // Nothing from the old world belongs in the new one
+            if (chunkBuilder != null) {
+                if (world != null) {
+                    chunkBuilder.setWorld(world);
+                }
+                // Anything still being meshed from a world we just left gets caught the next time we join one
+                chunkBuilder.removeAllMeshes();
+            }
+            translucentSorter.clear();
+        }
+
         if (world != null) {
             world.addEventListener(chunkUpdateListener);
             this.world = world;
             chunksToUpdate.clear();
 
+            // Forge may have remapped block IDs when we joined this world
+            BlockIdMatcher.invalidateAll();
+
             if (chunkBuilder != null) {
                 chunkBuilder.setWorld(world);
             }
         }
     }
 
+    /**
+     * Throws away the meshes of a chunk that the client just unloaded
+     *
+     * @param chunkX The X coordinate of the chunk, in chunks
+     * @param chunkZ The Z coordinate of the chunk, in chunks
+     */
+    public void onChunkUnload(int chunkX, int chunkZ) {
+        if (chunkBuilder != null) {
+            chunkBuilder.removeMeshesForChunk(chunkX, chunkZ);
+        }
+    }
+
     /**
      * Loads the specified texture, adding it to Minecraft as a texture outside of an atlas
      *
@@ -460,18 +695,37 @@ public class NovaRenderer implements IResourceManagerReloadListener {
         _native.add_texture_location(loc);
     }
 
+    /**
+     * @return The name of the atlas that the given texture is in, or the texture's own name if it isn't in one
+     */
     public static String atlasTextureOfSprite(ResourceLocation texture) {
-        ResourceLocation strippedLocation = new ResourceLocation(texture.getResourceDomain(), texture.getResourcePath().replace(".png", "").replace("textures/", ""));
-
-        if (BLOCK_COLOR_TEXTURES_LOCATIONS.contains(strippedLocation)) {
-            return BLOCK_COLOR_ATLAS_NAME;
-        } else if (GUI_COLOR_TEXTURES_LOCATIONS.contains(strippedLocation) || texture == WHITE_TEXTURE_GUI_LOCATION) {
-            return GUI_ATLAS_NAME;
-        } else if (FONT_COLOR_TEXTURES_LOCATIONS.contains(strippedLocation)) {
-            return FONT_ATLAS_NAME;
+        String atlasName = atlasOfTextureCache.get(texture);
+        if (atlasName == null) {
+            atlasName = ATLAS_OF_TEXTURE.get(stripLocation(texture));
+            if (atlasName == null) {
+                atlasName = texture.toString();
+            }
+            atlasOfTextureCache.put(texture, atlasName);
         }
 
-        return texture.toString();
+        return atlasName;
+    }
+
+    /**
+     * @return The given location without "textures/" or ".png", which is how the atlases know their sprites
+     */
+    private static ResourceLocation stripLocation(ResourceLocation texture) {
+        return new ResourceLocation(texture.getResourceDomain(), texture.getResourcePath().replace(".png", "").replace("textures/", ""));
+    }
+
+    /**
+     * @return Where the given texture is in the GUI or font atlas, or null if it's in neither of them
+     */
+    public TextureAtlasSprite getGuiSprite(ResourceLocation texture) {
+        ResourceLocation strippedLocation = stripLocation(texture);
+
+        TextureAtlasSprite sprite = guiSpriteLocations.get(strippedLocation);
+        return sprite != null ? sprite : fontSpriteLocations.get(strippedLocation);
     }
 
     public void loadShaderpack(String shaderpackName, BlockColors blockColors) {
@@ -496,10 +750,16 @@ public class NovaRenderer implements IResourceManagerReloadListener {
             IGeometryFilter filter = IGeometryFilter.parseFilterString(filtersSplit[i + 1]);
             filterMap.put(filterName, filter);
         }
+        NovaDraw.clearFilterRouting();
         Profiler.end("build_filters");
 
         Profiler.start("new_chunk_builder");
-        chunkBuilder = new ChunkBuilder(filterMap, world, blockColors);
+        ChunkBuilder oldChunkBuilder = chunkBuilder;
+        chunkBuilder = new ChunkBuilder(filterMap, world, blockColors, sectionMeshRegistry, translucentSorter, _native,
+                BlockGeometrySource.fromMinecraft());
+        if (oldChunkBuilder != null) {
+            chunkBuilder.setLightingMode(oldChunkBuilder.getLightingMode());
+        }
 
         chunksToUpdate.addAll(updatedChunks);
         updatedChunks.clear();
@@ -510,6 +770,13 @@ public class NovaRenderer implements IResourceManagerReloadListener {
         return _native;
     }
 
+    /**
+     * @return The commands that get sent to the native code at the start of the next frame
+     */
+    public NativeCommands getCommands() {
+        return commands;
+    }
+
     public Logger getLog() {
         return LOG;
     }
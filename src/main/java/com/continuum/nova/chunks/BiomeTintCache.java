@@ -0,0 +1,225 @@
+package com.continuum.nova.chunks;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockOldLeaf;
+import net.minecraft.block.BlockPlanks;
+import net.minecraft.block.BlockTallGrass;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockAccess;
+import net.minecraft.world.biome.Biome;
+
+import java.util.Arrays;
+
+/**
+ * Caches the biome tints of every block in a chunk section
+ *
+ * <p>Vanilla's BiomeColorHelper averages the biome color of the nine columns around a block every time a tinted quad
+ * asks for its color, so a forest section ends up looking up the same biomes thousands of times. This cache looks up
+ * the biome of each column in the section (plus a one column border) once. Biome colors change with height, so each
+ * column's color is worked out at every height a tinted block asks for, and blended the same way BiomeColorHelper
+ * does. Both are kept until the next section, so every block's tint is only worked out once, and every column's color
+ * at a given height is only asked of its biome once.</p>
+ *
+ * <p>Only the blocks whose tint is exactly the blended biome color go through here, see {@link #hasCachedTint}.
+ * Everything else still goes through BlockColors.</p>
+ */
+public class BiomeTintCache {
+    private static final int SECTION_SIZE = SectionMeshRegistry.SECTION_SIZE;
+    private static final int SAMPLED_SIZE = SECTION_SIZE + 2;
+
+    private enum TintType {
+        NONE,
+        GRASS,
+        FOLIAGE
+    }
+
+    /**
+     * The colors of one tint type. A color is only valid if its stamp matches the cache's current stamp, so nothing
+     * has to be cleared between sections
+     */
+    private final class TintColors {
+        private final TintType type;
+
+        /**
+         * Each sampled column's own color, by height in the section
+         */
+        private final int[] unblended = new int[SECTION_SIZE * SAMPLED_SIZE * SAMPLED_SIZE];
+        private final int[] unblendedStamps = new int[unblended.length];
+
+        /**
+         * Each block's color, averaged with the eight columns around it
+         */
+        private final int[] blended = new int[SECTION_SIZE * SECTION_SIZE * SECTION_SIZE];
+        private final int[] blendedStamps = new int[blended.length];
+
+        TintColors(TintType type) {
+            this.type = type;
+        }
+
+        /**
+         * @return The blended color of the block at the given position in the section
+         */
+        int get(int x, int y, int z) {
+            int index = (y * SECTION_SIZE + z) * SECTION_SIZE + x;
+            if(blendedStamps[index] != stamp) {
+                blended[index] = blend(x, y, z);
+                blendedStamps[index] = stamp;
+            }
+            return blended[index];
+        }
+
+        /**
+         * Averages a block's column color with the eight columns around it, just like BiomeColorHelper
+         */
+        private int blend(int x, int y, int z) {
+            int red = 0;
+            int green = 0;
+            int blue = 0;
+
+            for(int dz = 0; dz < 3; dz++) {
+                for(int dx = 0; dx < 3; dx++) {
+                    int color = getUnblended(x + dx, y, z + dz);
+                    red += (color & 0xFF0000) >> 16;
+                    green += (color & 0x00FF00) >> 8;
+                    blue += color & 0x0000FF;
+                }
+            }
+
+            return (red / 9 & 255) << 16 | (green / 9 & 255) << 8 | blue / 9 & 255;
+        }
+
+        /**
+         * @param sampleX The X coordinate of the column in the sampled area, which starts one block before the section
+         */
+        private int getUnblended(int sampleX, int y, int sampleZ) {
+            int index = (y * SAMPLED_SIZE + sampleZ) * SAMPLED_SIZE + sampleX;
+            if(unblendedStamps[index] != stamp) {
+                Biome biome = getBiome(sampleX, sampleZ);
+                samplePos.setPos(originX + sampleX - 1, originY + y, originZ + sampleZ - 1);
+                unblended[index] = type == TintType.GRASS ? biome.getGrassColorAtPos(samplePos) : biome.getFoliageColorAtPos(samplePos);
+                unblendedStamps[index] = stamp;
+            }
+            return unblended[index];
+        }
+
+        void clearStamps() {
+            Arrays.fill(unblendedStamps, 0);
+            Arrays.fill(blendedStamps, 0);
+        }
+    }
+
+    private final Biome[] biomes = new Biome[SAMPLED_SIZE * SAMPLED_SIZE];
+    private final TintColors grassColors = new TintColors(TintType.GRASS);
+    private final TintColors foliageColors = new TintColors(TintType.FOLIAGE);
+
+    private boolean hasBiomes;
+
+    /**
+     * Goes up by one every section. Starts at 1 so that the stamps arrays start out invalid
+     */
+    private int stamp = 1;
+
+    private final BlockPos.MutableBlockPos samplePos = new BlockPos.MutableBlockPos();
+
+    private IBlockAccess world;
+    private int originX;
+    private int originY;
+    private int originZ;
+
+    /**
+     * Points this cache at a new section. Nothing is sampled until a tint is actually asked for, so sections without
+     * any tinted blocks cost nothing
+     *
+     * @param world The world the section is in
+     * @param sectionPos The position of the section's lowest corner
+     */
+    public void reset(IBlockAccess world, BlockPos sectionPos) {
+        this.world = world;
+        originX = sectionPos.getX();
+        originY = sectionPos.getY();
+        originZ = sectionPos.getZ();
+
+        hasBiomes = false;
+
+        stamp++;
+        if(stamp == 0) {
+            // Wrapped all the way around, so old stamps could look valid again
+            grassColors.clearStamps();
+            foliageColors.clearStamps();
+            stamp = 1;
+        }
+    }
+
+    /**
+     * @return True if the given block's tint can come from this cache
+     */
+    public static boolean hasCachedTint(IBlockState blockState) {
+        return getTintType(blockState) != TintType.NONE;
+    }
+
+    /**
+     * Gets the tint of the given block. Only valid for blocks where {@link #hasCachedTint(IBlockState)} is true, and
+     * for positions inside the section this cache was last reset to
+     *
+     * @param blockState The block to get the tint of
+     * @param pos The block's position in the world
+     * @return The tint, as packed RGB
+     */
+    public int getTint(IBlockState blockState, BlockPos pos) {
+        int x = pos.getX() - originX;
+        int y = pos.getY() - originY;
+        int z = pos.getZ() - originZ;
+
+        switch(getTintType(blockState)) {
+            case GRASS:
+                return grassColors.get(x, y, z);
+
+            case FOLIAGE:
+                return foliageColors.get(x, y, z);
+
+            default:
+                throw new IllegalArgumentException("Block " + blockState + " doesn't have a cached tint");
+        }
+    }
+
+    /**
+     * Mirrors the blocks in BlockColors whose color is nothing but BiomeColorHelper's grass or foliage color
+     */
+    private static TintType getTintType(IBlockState blockState) {
+        Block block = blockState.getBlock();
+
+        if(block == Blocks.GRASS || block == Blocks.REEDS) {
+            return TintType.GRASS;
+
+        } else if(block == Blocks.TALLGRASS) {
+            return blockState.getValue(BlockTallGrass.TYPE) == BlockTallGrass.EnumType.DEAD_BUSH ? TintType.NONE : TintType.GRASS;
+
+        } else if(block == Blocks.LEAVES) {
+            // Spruce and birch leaves have fixed colors
+            BlockPlanks.EnumType variant = blockState.getValue(BlockOldLeaf.VARIANT);
+            return variant == BlockPlanks.EnumType.OAK || variant == BlockPlanks.EnumType.JUNGLE ? TintType.FOLIAGE : TintType.NONE;
+
+        } else if(block == Blocks.LEAVES2 || block == Blocks.VINE) {
+            return TintType.FOLIAGE;
+        }
+
+        return TintType.NONE;
+    }
+
+    private Biome getBiome(int sampleX, int sampleZ) {
+        if(!hasBiomes) {
+            // Biomes are the same all the way up a column
+            for(int z = 0; z < SAMPLED_SIZE; z++) {
+                for(int x = 0; x < SAMPLED_SIZE; x++) {
+                    samplePos.setPos(originX + x - 1, originY, originZ + z - 1);
+                    biomes[z * SAMPLED_SIZE + x] = world.getBiome(samplePos);
+                }
+            }
+            hasBiomes = true;
+        }
+
+        return biomes[sampleZ * SAMPLED_SIZE + sampleX];
+    }
+}
@@ -0,0 +1,43 @@
+package com.continuum.nova.chunks;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.client.renderer.block.model.IBakedModel;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockAccess;
+
+/**
+ * Where the chunk builder gets block models and fluid geometry from
+ *
+ * <p>In the game this is Minecraft's BlockRendererDispatcher, see {@link #fromMinecraft()}. Minecraft's dispatcher
+ * can't be created without a stitched texture atlas, so anything that runs the chunk builder outside the game (like the
+ * meshing benchmarks) supplies its own.</p>
+ */
+public interface BlockGeometrySource {
+    IBakedModel getModelForState(IBlockState blockState);
+
+    /**
+     * Writes the geometry of the fluid at the given position into the given buffer
+     */
+    void renderFluid(IBlockAccess world, IBlockState blockState, BlockPos pos, BufferBuilder buffer);
+
+    /**
+     * @return A source that asks Minecraft's BlockRendererDispatcher for everything. The dispatcher is looked up on
+     * every call, since it doesn't exist yet when the chunk builder is created
+     */
+    static BlockGeometrySource fromMinecraft() {
+        return new BlockGeometrySource() {
+            @Override
+            public IBakedModel getModelForState(IBlockState blockState) {
+                return Minecraft.getMinecraft().getBlockRendererDispatcher().getModelForState(blockState);
+            }
+
+            @Override
+            public void renderFluid(IBlockAccess world, IBlockState blockState, BlockPos pos, BufferBuilder buffer) {
+                // FIXME: blockRendererDispatcher.getFluidRenderer();
+                Minecraft.getMinecraft().getBlockRendererDispatcher().fluidRenderer.renderFluid(world, blockState, pos, buffer);
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.continuum.nova.chunks;
+
+import net.minecraft.block.Block;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Matches blocks by their unlocalized name, without building the name every time
+ *
+ * <p>Block.getUnlocalizedName makes a new string every time it's called. Instead, this checks the name of every
+ * registered block once, up front, and remembers which block IDs matched. After that, matching a block is looking up
+ * its ID and testing a bit.</p>
+ *
+ * <p>Blocks registered after that are checked by name the first time they're seen. Forge can also change block IDs
+ * when joining a server, so {@link #invalidateAll()} makes every matcher start over.</p>
+ *
+ * <p>Chunks are built on several threads at once, so the bits are never changed in place. A block that hasn't been
+ * seen before makes a new copy with its bit set.</p>
+ */
+public final class BlockIdMatcher {
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    private static final class Resolved {
+        final int generation;
+        /**
+         * Which IDs have had their name checked
+         */
+        final BitSet known;
+        /**
+         * Which IDs matched
+         */
+        final BitSet matching;
+
+        Resolved(int generation, BitSet known, BitSet matching) {
+            this.generation = generation;
+            this.known = known;
+            this.matching = matching;
+        }
+    }
+
+    private final Predicate<String> namePredicate;
+    private volatile Resolved resolved;
+
+    /**
+     * @param namePredicate Which unlocalized names to match
+     */
+    public BlockIdMatcher(Predicate<String> namePredicate) {
+        this.namePredicate = namePredicate;
+        this.resolved = resolveAll();
+    }
+
+    /**
+     * Makes every matcher check every block's name again the next time it's used. Call this when block IDs change
+     */
+    public static void invalidateAll() {
+        GENERATION.incrementAndGet();
+    }
+
+    public boolean matches(Block block) {
+        int id = Block.getIdFromBlock(block);
+        if(id < 0) {
+            // Not registered, so there's no ID to remember it by
+            return namePredicate.test(block.getUnlocalizedName());
+        }
+
+        Resolved current = resolved;
+        if(current.generation != GENERATION.get()) {
+            current = resolveAll();
+            resolved = current;
+        }
+
+        if(!current.known.get(id)) {
+            BitSet known = (BitSet) current.known.clone();
+            BitSet matching = (BitSet) current.matching.clone();
+            known.set(id);
+            matching.set(id, namePredicate.test(block.getUnlocalizedName()));
+
+            current = new Resolved(current.generation, known, matching);
+            resolved = current;
+        }
+
+        return current.matching.get(id);
+    }
+
+    private Resolved resolveAll() {
+        int generation = GENERATION.get();
+        BitSet known = new BitSet();
+        BitSet matching = new BitSet();
+
+        for(Block block : Block.REGISTRY) {
+            int id = Block.getIdFromBlock(block);
+            if(id >= 0) {
+                known.set(id);
+                matching.set(id, namePredicate.test(block.getUnlocalizedName()));
+            }
+        }
+
+        return new Resolved(generation, known, matching);
+    }
+}
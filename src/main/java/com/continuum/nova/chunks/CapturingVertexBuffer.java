@@ -140,11 +140,17 @@ public class CapturingVertexBuffer extends BufferBuilder {
         curVertex = new Vertex();
     }
 
-    public List<Integer> getData() {
-        List<Integer> finalData = new ArrayList<>();
+    /**
+     * @return All the captured vertex data, seven ints per vertex
+     */
+    public int[] getData() {
+        int[] finalData = new int[data.size() * 7];
 
+        int writePos = 0;
         for(Vertex v : data) {
-            finalData.addAll(v.toInts());
+            for(int i : v.toInts()) {
+                finalData[writePos++] = i;
+            }
         }
 
         return finalData;
@@ -1,22 +1,23 @@
 package com.continuum.nova.chunks;
 
-import com.continuum.nova.NovaRenderer;
+import com.continuum.nova.NovaConstants;
 import com.continuum.nova.system.NovaNative;
 import net.minecraft.block.state.IBlockState;
-import net.minecraft.client.Minecraft;
-import net.minecraft.client.renderer.BlockFluidRenderer;
-import net.minecraft.client.renderer.BlockRendererDispatcher;
 import net.minecraft.client.renderer.block.model.BakedQuad;
 import net.minecraft.client.renderer.block.model.IBakedModel;
 import net.minecraft.client.renderer.color.BlockColors;
+import net.minecraft.util.BlockRenderLayer;
 import net.minecraft.util.EnumBlockRenderType;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3i;
+import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Splits chunks up into meshes with one mesh for each shader
@@ -25,47 +26,271 @@ import java.util.*;
  * @since 27-Jul-17
  */
 public class ChunkBuilder {
+    /**
+     * How the mesher lights the vertices of each quad
+     */
+    public enum LightingMode {
+        /**
+         * Every vertex of a quad gets the light of the block in front of the quad
+         */
+        FLAT,
+
+        /**
+         * Light is averaged per vertex and darkened by ambient occlusion, like vanilla's smooth lighting
+         */
+        SMOOTH
+    }
+
     private static final Logger LOG = LogManager.getLogger(ChunkBuilder.class);
     private static final int VERTEX_COLOR_OFFSET = 3;
     private static final int LIGHTMAP_COORD_OFFSET = 6;
-    private World world;
+    private volatile IBlockAccess world;
 
     private final Map<String, IGeometryFilter> filters;
 
     private final BlockColors blockColors;
 
-    private BlockRendererDispatcher blockRendererDispatcher;
+    private final NovaNative nativeCode;
+
+    private final BlockGeometrySource geometrySource;
+
+    /**
+     * Chunks are built on a thread pool, so each thread gets its own batch to avoid re-allocating the arrays
+     */
+    private static final ThreadLocal<ChunkGeometryBatch> BATCHES = ThreadLocal.withInitial(ChunkGeometryBatch::new);
+
+    private static final ThreadLocal<BiomeTintCache> TINT_CACHES = ThreadLocal.withInitial(BiomeTintCache::new);
+
+    private static final ThreadLocal<SectionLightVolume> LIGHT_VOLUMES = ThreadLocal.withInitial(SectionLightVolume::new);
+
+    private final SectionMeshRegistry sectionMeshRegistry;
 
-    public ChunkBuilder(Map<String, IGeometryFilter> filters, World world, BlockColors blockColors) {
+    private final TranslucentGeometrySorter translucentSorter;
+
+    private volatile LightingMode lightingMode = LightingMode.FLAT;
+
+    /**
+     * @param world The blocks to mesh. In the game this is the client world
+     * @param nativeCode Where finished meshes get sent
+     * @param geometrySource Where block models and fluid geometry come from
+     */
+    public ChunkBuilder(Map<String, IGeometryFilter> filters, IBlockAccess world, BlockColors blockColors, SectionMeshRegistry sectionMeshRegistry,
+                        TranslucentGeometrySorter translucentSorter, NovaNative nativeCode, BlockGeometrySource geometrySource) {
         this.filters = filters;
         this.world = world;
         this.blockColors = blockColors;
+        this.sectionMeshRegistry = sectionMeshRegistry;
+        this.translucentSorter = translucentSorter;
+        this.nativeCode = nativeCode;
+        this.geometrySource = geometrySource;
     }
 
+    /**
+     * Re-meshes every section that the given range touches, and sends all the new meshes to the native code at once
+     *
+     * @param range The range of blocks that changed
+     */
     public void createMeshesForChunk(ChunkUpdateListener.BlockUpdateRange range) {
-        blockRendererDispatcher = Minecraft.getMinecraft().getBlockRendererDispatcher(); //FIXME: Minecraft.getMinecraft().getBlockRenderDispatcher();
+        ChunkGeometryBatch batch = BATCHES.get();
+        Map<Integer, List<TranslucentGeometrySorter.TranslucentMesh>> translucentMeshes = new HashMap<>();
+
+        int minSectionY = Math.max(range.min.y, 0) >> 4;
+        int maxSectionY = Math.min(range.max.y, NovaConstants.CHUNK_HEIGHT - 1) >> 4;
+
+        for(int sectionX = range.min.x >> 4; sectionX <= range.max.x >> 4; sectionX++) {
+            for(int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                for(int sectionZ = range.min.z >> 4; sectionZ <= range.max.z >> 4; sectionZ++) {
+                    createMeshesForSection(sectionX, sectionY, sectionZ, batch, translucentMeshes);
+                }
+            }
+        }
+
+        MeshingStats.ThreadStats stats = MeshingStats.forThread();
+        stats.addBytesSubmitted((batch.getVertexDataSize() + batch.getIndexSize()
+                + batch.getNumMeshes() * ChunkGeometryBatch.DESCRIPTOR_SIZE) * 4L);
+
+        Lock unloadLock = sectionMeshRegistry.getUnloadLock().readLock();
+        unloadLock.lock();
+        try {
+            long submitStart = stats.startTimer();
+            batch.submit(nativeCode);
+            stats.stopTimer(MeshingStats.Stage.SUBMIT, submitStart);
+
+            for(Map.Entry<Integer, List<TranslucentGeometrySorter.TranslucentMesh>> entry : translucentMeshes.entrySet()) {
+                translucentSorter.replaceSection(entry.getKey(), entry.getValue());
+            }
+
+            // If a chunk unloaded while we were meshing it, its unload may have already thrown its meshes away, and
+            // the ones we just sent would never go away
+            for(int chunkX = range.min.x >> 4; chunkX <= range.max.x >> 4; chunkX++) {
+                for(int chunkZ = range.min.z >> 4; chunkZ <= range.max.z >> 4; chunkZ++) {
+                    if(!isChunkLoaded(chunkX, chunkZ)) {
+                        removeSectionsOfChunk(chunkX, chunkZ, batch);
+                    }
+                }
+            }
+        } finally {
+            unloadLock.unlock();
+        }
+    }
+
+    /**
+     * Forgets about every section in the given chunk column and throws away their meshes, for when the chunk unloads
+     *
+     * <p>Call this once the chunk is gone from the world, so that builder threads can tell it's unloaded. See
+     * {@link SectionMeshRegistry#getUnloadLock()}</p>
+     *
+     * @param chunkX The X coordinate of the chunk, in chunks
+     * @param chunkZ The Z coordinate of the chunk, in chunks
+     */
+    public void removeMeshesForChunk(int chunkX, int chunkZ) {
+        Lock unloadLock = sectionMeshRegistry.getUnloadLock().writeLock();
+        unloadLock.lock();
+        try {
+            removeSectionsOfChunk(chunkX, chunkZ, BATCHES.get());
+        } finally {
+            unloadLock.unlock();
+        }
+    }
+
+    /**
+     * Forgets about every section and throws away all their meshes, for when the world changes
+     *
+     * <p>Call this after {@link #setWorld(IBlockAccess)}, so that builder threads still meshing the old world can tell
+     * its chunks are gone</p>
+     */
+    public void removeAllMeshes() {
+        Lock unloadLock = sectionMeshRegistry.getUnloadLock().writeLock();
+        unloadLock.lock();
+        try {
+            ChunkGeometryBatch batch = BATCHES.get();
+            for(int handle : sectionMeshRegistry.removeAll()) {
+                // An empty mesh is never drawn, so where it is doesn't matter
+                addEmptyMeshes(batch, handle, 0, 0, 0);
+            }
+            batch.submit(nativeCode);
+            translucentSorter.clear();
+        } finally {
+            unloadLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the sections of the given chunk column from the registry and the sorter, and sends empty meshes for
+     * them with the given batch, which must be empty
+     */
+    private void removeSectionsOfChunk(int chunkX, int chunkZ, ChunkGeometryBatch batch) {
+        final int size = SectionMeshRegistry.SECTION_SIZE;
+        for(int sectionY = 0; sectionY < NovaConstants.CHUNK_HEIGHT / size; sectionY++) {
+            int handle = sectionMeshRegistry.remove(SectionMeshRegistry.packSectionKey(chunkX, sectionY, chunkZ));
+            if(handle != SectionMeshRegistry.NO_HANDLE) {
+                addEmptyMeshes(batch, handle, chunkX * size, sectionY * size, chunkZ * size);
+                translucentSorter.removeSection(handle);
+            }
+        }
+        batch.submit(nativeCode);
+    }
+
+    /**
+     * @return Whether the given chunk column is loaded. Anything that isn't a {@link World} counts as always loaded
+     */
+    private boolean isChunkLoaded(int chunkX, int chunkZ) {
+        IBlockAccess world = this.world;
+        if(!(world instanceof World)) {
+            return world != null;
+        }
+
+        return ((World) world).isBlockLoaded(new BlockPos(chunkX << 4, 0, chunkZ << 4), false);
+    }
+
+    /**
+     * Adds an empty mesh for every filter to the given batch, which makes the native code throw away whatever geometry
+     * the section with the given handle had
+     */
+    private void addEmptyMeshes(ChunkGeometryBatch batch, int handle, int x, int y, int z) {
+        for(String filterName : filters.keySet()) {
+            batch.beginMesh(filterName, handle, 0, x, y, z, NovaNative.NovaVertexFormat.POS_UV_LIGHTMAPUV_NORMAL_TANGENT.ordinal());
+            batch.endMesh();
+        }
+    }
+
+    /**
+     * Builds one mesh per filter for the given 16x16x16 section and adds them to the given batch
+     *
+     * <p>Every filter gets a mesh, even if that mesh is empty, so that the native code can throw away whatever
+     * geometry the section had for that filter before. Sections that have never had any geometry and still don't are
+     * skipped entirely</p>
+     *
+     * <p>Meshes with translucent blocks in them are added to translucentMeshes, so they can be sorted once they've
+     * been submitted</p>
+     */
+    private void createMeshesForSection(int sectionX, int sectionY, int sectionZ, ChunkGeometryBatch batch,
+                                        Map<Integer, List<TranslucentGeometrySorter.TranslucentMesh>> translucentMeshes) {
+        final int size = SectionMeshRegistry.SECTION_SIZE;
+        BlockPos sectionPos = new BlockPos(sectionX * size, sectionY * size, sectionZ * size);
+        if(!isChunkLoaded(sectionX, sectionZ)) {
+            // The chunk unloaded after this update was queued, so there's no point meshing it
+            return;
+        }
+
         Map<String, List<BlockPos>> blocksForFilter = new HashMap<>();
+        MeshingStats.ThreadStats stats = MeshingStats.forThread();
 
-        for(int x = range.min.x; x <= range.max.x; x++) {
-            for(int y = range.min.y; y < range.max.y; y++) {
-                for(int z = range.min.z; z <= range.max.z; z++) {
-                    filterBlockAtPos(blocksForFilter, new BlockPos(x, y, z));
+        long lookupStart = stats.startTimer();
+        for(int x = 0; x < size; x++) {
+            for(int y = 0; y < size; y++) {
+                for(int z = 0; z < size; z++) {
+                    filterBlockAtPos(blocksForFilter, sectionPos.add(x, y, z));
                 }
             }
         }
+        stats.stopTimer(MeshingStats.Stage.BLOCK_LOOKUP, lookupStart);
+
+        long sectionKey = SectionMeshRegistry.packSectionKey(sectionX, sectionY, sectionZ);
+        if(blocksForFilter.isEmpty() && sectionMeshRegistry.getHandle(sectionKey) == SectionMeshRegistry.NO_HANDLE) {
+            return;
+        }
+
+        final int handle = sectionMeshRegistry.getOrCreateHandle(sectionKey);
+        final int geometryVersion = sectionMeshRegistry.nextGeometryVersion();
+        List<TranslucentGeometrySorter.TranslucentMesh> sectionTranslucentMeshes = new ArrayList<>();
+
+        long lightStart = stats.startTimer();
+        BiomeTintCache tintCache = TINT_CACHES.get();
+        tintCache.reset(world, sectionPos);
+
+        SectionLightVolume lightVolume = LIGHT_VOLUMES.get();
+        final boolean smoothLighting = lightingMode == LightingMode.SMOOTH;
+        lightVolume.fill(world, sectionPos, smoothLighting);
+        stats.stopTimer(MeshingStats.Stage.LIGHT_VOLUME, lightStart);
+
+        for(String filterName : filters.keySet()) {
+            batch.beginMesh(filterName, handle, geometryVersion, sectionPos.getX(), sectionPos.getY(), sectionPos.getZ(),
+                    NovaNative.NovaVertexFormat.POS_UV_LIGHTMAPUV_NORMAL_TANGENT.ordinal());
+
+            boolean hasTranslucentBlocks = false;
+            List<BlockPos> blocks = blocksForFilter.get(filterName);
+            if(blocks != null) {
+                hasTranslucentBlocks = makeMeshForBlocks(blocks, world, sectionPos, batch, tintCache, lightVolume, smoothLighting, stats);
+            }
 
-        final int chunkHashCode = 31 * range.min.x + range.min.z;
+            batch.endMesh();
+            stats.addQuads(filterName, batch.getMeshVertexSize(batch.getNumMeshes() - 1) / ChunkGeometryBatch.INTS_PER_QUAD);
 
-        for(String filterName : blocksForFilter.keySet()) {
-            Optional<NovaNative.mc_chunk_render_object> renderObj = makeMeshForBlocks(blocksForFilter.get(filterName), world, new BlockPos(range.min.x, range.min.y, range.min.z));
-            renderObj.ifPresent(obj -> {
-                obj.id = chunkHashCode;
-                obj.x = range.min.x;
-                obj.y = range.min.y;
-                obj.z = range.min.z;
-                NovaRenderer.getInstance().getNative().add_chunk_geometry_for_filter(filterName, obj);
-            });
+            if(hasTranslucentBlocks) {
+                long sortPrepStart = stats.startTimer();
+                TranslucentGeometrySorter.TranslucentMesh mesh = TranslucentGeometrySorter.prepareMesh(batch, filterName,
+                        handle, geometryVersion, sectionPos.getX(), sectionPos.getY(), sectionPos.getZ());
+                if(mesh != null) {
+                    sectionTranslucentMeshes.add(mesh);
+                }
+                stats.stopTimer(MeshingStats.Stage.SORT_PREP, sortPrepStart);
+            }
         }
+
+        stats.addSectionMeshed();
+
+        translucentMeshes.put(handle, sectionTranslucentMeshes);
     }
 
     /**
@@ -90,20 +315,35 @@ public class ChunkBuilder {
         }
     }
 
-    private Optional<NovaNative.mc_chunk_render_object> makeMeshForBlocks(List<BlockPos> positions, World world, BlockPos chunkPos) {
-        List<Integer> vertexData = new ArrayList<>();
-        IndexList indices = new IndexList();
-        NovaNative.mc_chunk_render_object chunk_render_object = new NovaNative.mc_chunk_render_object();
+    /**
+     * Adds the quads for all the given blocks to the current mesh of the given batch
+     *
+     * @param tintCache The biome tints of the section the blocks are in
+     * @param lightVolume The light in and around the section the blocks are in
+     * @param smoothLighting If true, use smooth lighting and ambient occlusion. The light volume must have opacity
+     * @param stats Where to record how long culling, quad copying, and fluids take
+     * @return True if any of the blocks are translucent, meaning that the mesh needs to be sorted
+     */
+    private boolean makeMeshForBlocks(List<BlockPos> positions, IBlockAccess world, BlockPos chunkPos, ChunkGeometryBatch batch,
+                                      BiomeTintCache tintCache, SectionLightVolume lightVolume, boolean smoothLighting,
+                                      MeshingStats.ThreadStats stats) {
         CapturingVertexBuffer capturingVertexBuffer = new CapturingVertexBuffer(chunkPos);
-        BlockFluidRenderer fluidRenderer = blockRendererDispatcher.fluidRenderer; // FIXME: blockRendererDispatcher.getFluidRenderer();
+        boolean hasTranslucentBlocks = false;
 
-        int blockIndexCounter = 0;
         for(BlockPos blockPos : positions) {
             IBlockState blockState = world.getBlockState(blockPos);
+            if(blockState.getBlock().getBlockLayer() == BlockRenderLayer.TRANSLUCENT) {
+                hasTranslucentBlocks = true;
+            }
 
             if(blockState.getRenderType() == EnumBlockRenderType.MODEL) {
-                IBakedModel blockModel = blockRendererDispatcher.getModelForState(blockState);
+                IBakedModel blockModel = geometrySource.getModelForState(blockState);
                 int colorMultiplier = blockColors.colorMultiplier(blockState, null, null, 0);
+                int lightValue = blockState.getLightValue(world, blockPos);
+                BlockPos posInSection = blockPos.subtract(chunkPos);
+
+                // Vanilla leaves ambient occlusion off for blocks that give off light and models that don't want it
+                boolean smoothQuads = smoothLighting && lightValue == 0 && blockModel.isAmbientOcclusion();
 
                 List<EnumFacing> actuallyAllValuesOfEnumFacing = new ArrayList<>();
                 Collections.addAll(actuallyAllValuesOfEnumFacing, EnumFacing.values());
@@ -112,8 +352,8 @@ public class ChunkBuilder {
                 // AND FUCK WHOEVER DECIDED THAT NULL WAS A MEMBER OF ENUMFACING
                 actuallyAllValuesOfEnumFacing.add(null);
 
-                int faceIndexCounter = 0;
                 for(EnumFacing facing : actuallyAllValuesOfEnumFacing) {
+                    long cullStart = stats.startTimer();
                     List<BakedQuad> quads = blockModel.getQuads(blockState, facing, 0);
                     boolean shouldSideBeRendered = true;
                     if(facing != null) {
@@ -123,60 +363,50 @@ public class ChunkBuilder {
                         shouldSideBeRendered = blockState.shouldSideBeRendered(world, blockPos, facing);
                     }
                     boolean hasQuads = !quads.isEmpty();
+                    stats.stopTimer(MeshingStats.Stage.CULLING, cullStart);
+
                     if(shouldSideBeRendered && hasQuads) {
-                        int lmCoords;
-                        if(facing == null) {
-                            // This logic would be reasonable to write and simple to maintain IF THEY HAD JUST ADDED
-                            // ANOTHER FUCKING VALUE TO THEIR STUPID FUCKING ENUM
-                            lmCoords = blockState.getPackedLightmapCoords(world, blockPos.offset(EnumFacing.UP));
-                        } else {
-                            lmCoords = blockState.getPackedLightmapCoords(world, blockPos.offset(facing));
-                        }
-                        
+                        long copyStart = stats.startTimer();
+                        // This logic would be reasonable to write and simple to maintain IF THEY HAD JUST ADDED
+                        // ANOTHER FUCKING VALUE TO THEIR STUPID FUCKING ENUM
+                        Vec3i lightOffset = (facing == null ? EnumFacing.UP : facing).getDirectionVec();
+                        int lmCoords = lightVolume.getPackedLightmapCoords(posInSection.getX() + lightOffset.getX(),
+                                posInSection.getY() + lightOffset.getY(), posInSection.getZ() + lightOffset.getZ(), lightValue);
+
                         for(BakedQuad quad : quads) {
                             if(quad.hasTintIndex()) {
-                                colorMultiplier = blockColors.colorMultiplier(blockState, world, blockPos, quad.getTintIndex());
+                                if(BiomeTintCache.hasCachedTint(blockState)) {
+                                    colorMultiplier = tintCache.getTint(blockState, blockPos);
+                                } else {
+                                    colorMultiplier = blockColors.colorMultiplier(blockState, world, blockPos, quad.getTintIndex());
+                                }
                             }
-                            int[] quadVertexData = addPosition(quad, blockPos.subtract(chunkPos));
+                            int[] quadVertexData = addPosition(quad, posInSection);
                             setVertexColor(quadVertexData, colorMultiplier);
-                            setLightmapCoord(quadVertexData, lmCoords);
-
-                            for(int data : quadVertexData) {
-                                vertexData.add(data);
+                            if(smoothQuads) {
+                                SmoothLighting.apply(quadVertexData, quad.getFace(), posInSection, lightVolume, lightValue);
+                            } else {
+                                setLightmapCoord(quadVertexData, lmCoords);
                             }
 
-                            indices.addIndicesForFace(faceIndexCounter, blockIndexCounter);
-                            faceIndexCounter += 4;
+                            batch.addQuads(quadVertexData);
                         }
+                        stats.stopTimer(MeshingStats.Stage.QUAD_COPY, copyStart);
                     }
                 }
 
-                blockIndexCounter += faceIndexCounter;
-
             } else if(blockState.getRenderType() == EnumBlockRenderType.LIQUID) {
                 // Why do liquids have to be different? :(
-                fluidRenderer.renderFluid(world, blockState, blockPos, capturingVertexBuffer);
+                long fluidStart = stats.startTimer();
+                geometrySource.renderFluid(world, blockState, blockPos, capturingVertexBuffer);
+                stats.stopTimer(MeshingStats.Stage.FLUID_CAPTURE, fluidStart);
             }
         }
 
-        vertexData.addAll(capturingVertexBuffer.getData());
-
-        int offset = indices.size();
-        for(int i = 0; i < capturingVertexBuffer.getVertexCount() / 4; i++) {
-            indices.addIndicesForFace(offset, 0);
-
-            offset += 4;
-        }
-
-        if(vertexData.isEmpty()) {
-            return Optional.empty();
-        }
-
-        chunk_render_object.setVertex_data(vertexData);
-        chunk_render_object.setIndices(indices);
-        chunk_render_object.format = NovaNative.NovaVertexFormat.POS_UV_LIGHTMAPUV_NORMAL_TANGENT.ordinal();
+        int[] fluidData = capturingVertexBuffer.getData();
+        batch.addQuads(fluidData, fluidData.length - fluidData.length % ChunkGeometryBatch.INTS_PER_QUAD);
 
-        return Optional.of(chunk_render_object);
+        return hasTranslucentBlocks;
     }
 
     private void setLightmapCoord(int[] quadVertexData, int lmCoords) {
@@ -215,10 +445,22 @@ public class ChunkBuilder {
         data[vertex + 2] = Float.floatToIntBits(z);
     }
 
-    public void setWorld(World world) {
+    public void setWorld(IBlockAccess world) {
         this.world = world;
     }
 
+    public LightingMode getLightingMode() {
+        return lightingMode;
+    }
+
+    /**
+     * Changes how new meshes are lit. Meshes that have already been built keep their old lighting until they're
+     * rebuilt
+     */
+    public void setLightingMode(LightingMode lightingMode) {
+        this.lightingMode = lightingMode;
+    }
+
     /**
      * Returns the IBlockState of the block next to the block at the provided position in the given direction
      *
@@ -227,7 +469,7 @@ public class ChunkBuilder {
      * @param direction The direction to look in
      * @return The IBlockState of the block in the provided direction
      */
-    private static IBlockState blockNextTo(BlockPos pos, World world, EnumFacing direction) {
+    private static IBlockState blockNextTo(BlockPos pos, IBlockAccess world, EnumFacing direction) {
         BlockPos lookupPos = pos.add(direction.getDirectionVec());
         return world.getBlockState(lookupPos);
     }
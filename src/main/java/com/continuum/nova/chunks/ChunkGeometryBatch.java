@@ -0,0 +1,184 @@
+package com.continuum.nova.chunks;
+
+import com.continuum.nova.system.NovaNative;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the meshes for any number of chunk sections so they can be sent to the native code in a single call
+ *
+ * <p>Each mesh is described by {@link #DESCRIPTOR_SIZE} ints in a flat descriptor array, laid out as
+ * <code>format, id, x, y, z, vertex_offset, vertex_size, index_offset, index_size, geometry_version</code>. x, y and
+ * z are the raw bits of floats. The offsets and sizes are counted in ints and point into the shared vertex and index
+ * arrays. The native side of this lives in <code>add_chunk_geometry_batch</code></p>
+ *
+ * <p>Indices are relative to the start of their mesh, so every mesh can be uploaded on its own</p>
+ */
+public class ChunkGeometryBatch {
+    public static final int DESCRIPTOR_SIZE = 10;
+    public static final int INTS_PER_VERTEX = 7;
+    public static final int INTS_PER_QUAD = INTS_PER_VERTEX * 4;
+
+    private final List<String> filterNames = new ArrayList<>();
+    private int[] descriptors = new int[DESCRIPTOR_SIZE * 16];
+    private int[] vertexData = new int[INTS_PER_QUAD * 1024];
+    private int[] indices = new int[6 * 1024];
+
+    private int numMeshes;
+    private int vertexDataSize;
+    private int indexSize;
+
+    private boolean inMesh;
+    private int meshVertexStart;
+    private int meshIndexStart;
+    private int meshVertexCount;
+
+    /**
+     * Starts a new mesh. All geometry added until {@link #endMesh()} is called belongs to this mesh
+     *
+     * @param filterName The name of the filter that the mesh was built for
+     * @param id The handle of the chunk section that the mesh belongs to
+     * @param geometryVersion Which build of the section this is, from {@link SectionMeshRegistry#nextGeometryVersion()}.
+     *                        Index updates for the mesh have to name the same version
+     * @param format The ordinal of the {@link NovaNative.NovaVertexFormat} of the mesh's vertices
+     */
+    public void beginMesh(String filterName, int id, int geometryVersion, float x, float y, float z, int format) {
+        if(inMesh) {
+            throw new IllegalStateException("Tried to begin a mesh for filter " + filterName + " without ending the previous one");
+        }
+        inMesh = true;
+
+        descriptors = ensureCapacity(descriptors, (numMeshes + 1) * DESCRIPTOR_SIZE);
+        int base = numMeshes * DESCRIPTOR_SIZE;
+        descriptors[base] = format;
+        descriptors[base + 1] = id;
+        descriptors[base + 2] = Float.floatToIntBits(x);
+        descriptors[base + 3] = Float.floatToIntBits(y);
+        descriptors[base + 4] = Float.floatToIntBits(z);
+        descriptors[base + 9] = geometryVersion;
+
+        filterNames.add(filterName);
+
+        meshVertexStart = vertexDataSize;
+        meshIndexStart = indexSize;
+        meshVertexCount = 0;
+    }
+
+    /**
+     * Adds some number of whole quads to the current mesh, along with the indices to draw them
+     *
+     * @param quadData The vertex data for the quads, {@link #INTS_PER_QUAD} ints per quad
+     * @param length How many ints of quadData to use
+     */
+    public void addQuads(int[] quadData, int length) {
+        if(!inMesh) {
+            throw new IllegalStateException("Tried to add quads outside of a mesh");
+        }
+
+        vertexData = ensureCapacity(vertexData, vertexDataSize + length);
+        System.arraycopy(quadData, 0, vertexData, vertexDataSize, length);
+        vertexDataSize += length;
+
+        int numQuads = length / INTS_PER_QUAD;
+        indices = ensureCapacity(indices, indexSize + numQuads * 6);
+        for(int i = 0; i < numQuads; i++) {
+            int firstVertex = meshVertexCount;
+            indices[indexSize++] = firstVertex;
+            indices[indexSize++] = firstVertex + 1;
+            indices[indexSize++] = firstVertex + 2;
+            indices[indexSize++] = firstVertex;
+            indices[indexSize++] = firstVertex + 2;
+            indices[indexSize++] = firstVertex + 3;
+            meshVertexCount += 4;
+        }
+    }
+
+    public void addQuads(int[] quadData) {
+        addQuads(quadData, quadData.length);
+    }
+
+    /**
+     * Finishes the current mesh. A mesh without any quads is still sent, and tells the native code to remove the old
+     * geometry for that filter and chunk section
+     */
+    public void endMesh() {
+        if(!inMesh) {
+            throw new IllegalStateException("Tried to end a mesh that was never begun");
+        }
+        inMesh = false;
+
+        int base = numMeshes * DESCRIPTOR_SIZE;
+        descriptors[base + 5] = meshVertexStart;
+        descriptors[base + 6] = vertexDataSize - meshVertexStart;
+        descriptors[base + 7] = meshIndexStart;
+        descriptors[base + 8] = indexSize - meshIndexStart;
+
+        numMeshes++;
+    }
+
+    /**
+     * Sends every mesh in this batch to the native code in one call, then clears the batch
+     */
+    public void submit(NovaNative nativeCode) {
+        if(inMesh) {
+            throw new IllegalStateException("Tried to submit a batch with an unfinished mesh");
+        }
+
+        if(numMeshes > 0) {
+            nativeCode.add_chunk_geometry_batch(numMeshes, filterNames.toArray(new String[0]), descriptors, vertexData, vertexDataSize, indices, indexSize);
+        }
+
+        clear();
+    }
+
+    public void clear() {
+        filterNames.clear();
+        numMeshes = 0;
+        vertexDataSize = 0;
+        indexSize = 0;
+        inMesh = false;
+    }
+
+    public int getNumMeshes() {
+        return numMeshes;
+    }
+
+    public int getVertexDataSize() {
+        return vertexDataSize;
+    }
+
+    public int getIndexSize() {
+        return indexSize;
+    }
+
+    /**
+     * @return The vertex data of every mesh in this batch. Only the first {@link #getVertexDataSize()} ints are used
+     */
+    public int[] getVertexData() {
+        return vertexData;
+    }
+
+    /**
+     * @return Where the given finished mesh's vertex data starts in {@link #getVertexData()}
+     */
+    public int getMeshVertexStart(int mesh) {
+        return descriptors[mesh * DESCRIPTOR_SIZE + 5];
+    }
+
+    /**
+     * @return How many ints of vertex data the given finished mesh has
+     */
+    public int getMeshVertexSize(int mesh) {
+        return descriptors[mesh * DESCRIPTOR_SIZE + 6];
+    }
+
+    private static int[] ensureCapacity(int[] array, int neededSize) {
+        if(array.length >= neededSize) {
+            return array;
+        }
+
+        return Arrays.copyOf(array, Math.max(neededSize, array.length * 2));
+    }
+}
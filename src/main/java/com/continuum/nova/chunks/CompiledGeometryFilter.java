@@ -0,0 +1,232 @@
+package com.continuum.nova.chunks;
+
+import com.continuum.nova.system.NovaNative;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.BlockRenderLayer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A filter tree flattened into a list of tests with jumps between them, so matching a block is one loop instead of a
+ * virtual call for every node in the tree
+ *
+ * <p>Each test says where to go next if it passes and where to go if it fails, which is either another test or the
+ * final answer. NOT doesn't need a test of its own, it just swaps where its child jumps to. geometry_type is always
+ * the same for blocks, so it's worked out while compiling and never tested at all.</p>
+ *
+ * <p>AND and OR don't care what order their children run in, so the children are sorted to run the cheap tests first.
+ * Checking the render layer is a virtual call, and checking a name means looking up the block's ID, so a block that
+ * fails the cheap test never gets to the more expensive one.</p>
+ *
+ * <p>GUI geometry is still matched with the original tree, since there's a lot less of it.</p>
+ */
+public final class CompiledGeometryFilter implements IGeometryFilter {
+    private static final int ACCEPT = -1;
+    private static final int REJECT = -2;
+
+    private static final byte TEST_TRANSPARENT = 0;
+    private static final byte TEST_EMISSIVE = 1;
+    /**
+     * For name and name_part. The operand is the filter's {@link BlockIdMatcher}
+     */
+    private static final byte TEST_BLOCK_ID = 2;
+    /**
+     * For filters that the compiler doesn't know about. Calls the filter's own matches method
+     */
+    private static final byte TEST_FILTER = 3;
+
+    private final IGeometryFilter source;
+    private final int entry;
+    private final byte[] tests;
+    private final Object[] operands;
+    private final int[] onPass;
+    private final int[] onFail;
+
+    private CompiledGeometryFilter(IGeometryFilter source, int entry, byte[] tests, Object[] operands, int[] onPass, int[] onFail) {
+        this.source = source;
+        this.entry = entry;
+        this.tests = tests;
+        this.operands = operands;
+        this.onPass = onPass;
+        this.onFail = onFail;
+    }
+
+    public static CompiledGeometryFilter compile(IGeometryFilter filter) {
+        Compiler compiler = new Compiler();
+        int entry = compiler.compile(filter, ACCEPT, REJECT);
+        return compiler.build(filter, entry);
+    }
+
+    @Override
+    public boolean matches(IBlockState blockState) {
+        Block block = blockState.getBlock();
+
+        int next = entry;
+        while(next >= 0) {
+            boolean passed;
+            switch(tests[next]) {
+                case TEST_TRANSPARENT:
+                    passed = block.getBlockLayer() == BlockRenderLayer.TRANSLUCENT;
+                    break;
+                case TEST_EMISSIVE:
+                    passed = blockState.getLightValue() > 0;
+                    break;
+                case TEST_BLOCK_ID:
+                    passed = ((BlockIdMatcher) operands[next]).matches(block);
+                    break;
+                default:
+                    passed = ((IGeometryFilter) operands[next]).matches(blockState);
+                    break;
+            }
+
+            next = passed ? onPass[next] : onFail[next];
+        }
+
+        return next == ACCEPT;
+    }
+
+    @Override
+    public boolean matches(NovaNative.mc_gui_buffer guiBuffer) {
+        return source.matches(guiBuffer);
+    }
+
+    /**
+     * @return The number of tests that matching a block can run, at most
+     */
+    public int getNumTests() {
+        return tests.length;
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+
+    private static final class Compiler {
+        private final List<Byte> tests = new ArrayList<>();
+        private final List<Object> operands = new ArrayList<>();
+        private final List<Integer> onPass = new ArrayList<>();
+        private final List<Integer> onFail = new ArrayList<>();
+
+        /**
+         * Emits the tests for the given filter
+         *
+         * @param pass Where to go if the filter matches
+         * @param fail Where to go if it doesn't
+         * @return Where to go to start testing the filter. Might be pass or fail if the answer is always the same
+         */
+        int compile(IGeometryFilter filter, int pass, int fail) {
+            if(filter instanceof AndGeometryFilter) {
+                List<IGeometryFilter> children = new ArrayList<>();
+                flatten(filter, AndGeometryFilter.class, children);
+
+                // Compile back to front, so each child knows where the next one starts
+                int next = pass;
+                for(int i = children.size() - 1; i >= 0; i--) {
+                    next = compile(children.get(i), next, fail);
+                }
+                return next;
+
+            } else if(filter instanceof OrGeometryFilter) {
+                List<IGeometryFilter> children = new ArrayList<>();
+                flatten(filter, OrGeometryFilter.class, children);
+
+                int next = fail;
+                for(int i = children.size() - 1; i >= 0; i--) {
+                    next = compile(children.get(i), pass, next);
+                }
+                return next;
+
+            } else if(filter instanceof NotGeometryFilter) {
+                return compile(((NotGeometryFilter) filter).inner, fail, pass);
+
+            } else if(filter instanceof GeometryTypeGeometryFilter) {
+                return ((GeometryTypeGeometryFilter) filter).type == NovaNative.GeometryType.BLOCK ? pass : fail;
+
+            } else if(filter instanceof TransparentGeometryFilter) {
+                boolean shouldBeTransparent = ((TransparentGeometryFilter) filter).shouldBeTransparent;
+                return emit(TEST_TRANSPARENT, null, shouldBeTransparent ? pass : fail, shouldBeTransparent ? fail : pass);
+
+            } else if(filter instanceof EmissiveGeometryFilter) {
+                boolean shouldBeEmissive = ((EmissiveGeometryFilter) filter).shouldBeEmissive;
+                return emit(TEST_EMISSIVE, null, shouldBeEmissive ? pass : fail, shouldBeEmissive ? fail : pass);
+
+            } else if(filter instanceof NameGeometryFilter) {
+                return emit(TEST_BLOCK_ID, ((NameGeometryFilter) filter).blockIds, pass, fail);
+
+            } else if(filter instanceof NamePartGeometryFilter) {
+                return emit(TEST_BLOCK_ID, ((NamePartGeometryFilter) filter).blockIds, pass, fail);
+            }
+
+            return emit(TEST_FILTER, filter, pass, fail);
+        }
+
+        /**
+         * Collects the children of a chain of ANDs or ORs into one list, cheapest first
+         */
+        private static void flatten(IGeometryFilter filter, Class<? extends IGeometryFilter> type, List<IGeometryFilter> children) {
+            collect(filter, type, children);
+            children.sort(Comparator.comparingInt(Compiler::cost));
+        }
+
+        private static void collect(IGeometryFilter filter, Class<? extends IGeometryFilter> type, List<IGeometryFilter> children) {
+            if(filter instanceof AndGeometryFilter && type == AndGeometryFilter.class) {
+                collect(((AndGeometryFilter) filter).left, type, children);
+                collect(((AndGeometryFilter) filter).right, type, children);
+            } else if(filter instanceof OrGeometryFilter && type == OrGeometryFilter.class) {
+                collect(((OrGeometryFilter) filter).left, type, children);
+                collect(((OrGeometryFilter) filter).right, type, children);
+            } else {
+                children.add(filter);
+            }
+        }
+
+        /**
+         * A rough guess at how expensive a filter is to test
+         */
+        private static int cost(IGeometryFilter filter) {
+            if(filter instanceof AndGeometryFilter) {
+                return cost(((AndGeometryFilter) filter).left) + cost(((AndGeometryFilter) filter).right);
+            } else if(filter instanceof OrGeometryFilter) {
+                return cost(((OrGeometryFilter) filter).left) + cost(((OrGeometryFilter) filter).right);
+            } else if(filter instanceof NotGeometryFilter) {
+                return cost(((NotGeometryFilter) filter).inner);
+            } else if(filter instanceof GeometryTypeGeometryFilter) {
+                return 0;
+            } else if(filter instanceof TransparentGeometryFilter) {
+                return 1;
+            } else if(filter instanceof EmissiveGeometryFilter) {
+                return 2;
+            } else if(filter instanceof NameGeometryFilter || filter instanceof NamePartGeometryFilter) {
+                return 3;
+            }
+
+            return 16;
+        }
+
+        private int emit(byte test, Object operand, int pass, int fail) {
+            tests.add(test);
+            operands.add(operand);
+            onPass.add(pass);
+            onFail.add(fail);
+            return tests.size() - 1;
+        }
+
+        CompiledGeometryFilter build(IGeometryFilter source, int entry) {
+            int size = tests.size();
+            byte[] testArray = new byte[size];
+            int[] onPassArray = new int[size];
+            int[] onFailArray = new int[size];
+            for(int i = 0; i < size; i++) {
+                testArray[i] = tests.get(i);
+                onPassArray[i] = onPass.get(i);
+                onFailArray[i] = onFail.get(i);
+            }
+
+            return new CompiledGeometryFilter(source, entry, testArray, operands.toArray(), onPassArray, onFailArray);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.continuum.nova.chunks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive descent parser for geometry filter expressions
+ *
+ * <p>The grammar, loosest binding first:</p>
+ * <pre>
+ * or      := and ("OR" and)*
+ * and     := not ("AND" not)*
+ * not     := "NOT" not | primary
+ * primary := "(" or ")" | token
+ * </pre>
+ *
+ * <p>Tokens are split on whitespace, and parentheses don't need whitespace around them</p>
+ */
+final class GeometryFilterParser {
+    private final String filterString;
+    private final List<String> tokens;
+    private int pos;
+
+    GeometryFilterParser(String filterString) {
+        this.filterString = filterString;
+        this.tokens = tokenize(filterString);
+    }
+
+    IGeometryFilter parse() {
+        if(tokens.isEmpty()) {
+            throw new IllegalArgumentException("Geometry filter expression is empty");
+        }
+
+        IGeometryFilter filter = parseOr();
+        if(pos < tokens.size()) {
+            throw error("Unexpected '" + tokens.get(pos) + "'");
+        }
+
+        return filter;
+    }
+
+    private IGeometryFilter parseOr() {
+        IGeometryFilter filter = parseAnd();
+        while(accept("OR")) {
+            filter = new IGeometryFilter.OrGeometryFilter(filter, parseAnd());
+        }
+
+        return filter;
+    }
+
+    private IGeometryFilter parseAnd() {
+        IGeometryFilter filter = parseNot();
+        while(accept("AND")) {
+            filter = new IGeometryFilter.AndGeometryFilter(filter, parseNot());
+        }
+
+        return filter;
+    }
+
+    private IGeometryFilter parseNot() {
+        if(accept("NOT")) {
+            return new IGeometryFilter.NotGeometryFilter(parseNot());
+        }
+
+        return parsePrimary();
+    }
+
+    private IGeometryFilter parsePrimary() {
+        if(pos >= tokens.size()) {
+            throw error("Expression ends where a filter was expected");
+        }
+
+        if(accept("(")) {
+            IGeometryFilter filter = parseOr();
+            if(!accept(")")) {
+                throw error("Missing ')'");
+            }
+            return filter;
+        }
+
+        String token = tokens.get(pos);
+        if(token.equals(")") || token.equals("AND") || token.equals("OR")) {
+            throw error("Expected a filter but found '" + token + "'");
+        }
+
+        pos++;
+        return IGeometryFilter.makeFilterFromToken(token);
+    }
+
+    private boolean accept(String token) {
+        if(pos < tokens.size() && tokens.get(pos).equals(token)) {
+            pos++;
+            return true;
+        }
+
+        return false;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at token " + pos + " of geometry filter expression '" + filterString + "'");
+    }
+
+    private static List<String> tokenize(String filterString) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+
+        for(int i = 0; i < filterString.length(); i++) {
+            char c = filterString.charAt(i);
+            if(Character.isWhitespace(c) || c == '(' || c == ')') {
+                if(token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+                if(c == '(' || c == ')') {
+                    tokens.add(String.valueOf(c));
+                }
+            } else {
+                token.append(c);
+            }
+        }
+
+        if(token.length() > 0) {
+            tokens.add(token.toString());
+        }
+
+        return tokens;
+    }
+}
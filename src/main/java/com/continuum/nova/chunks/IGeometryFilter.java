@@ -16,8 +16,8 @@ public interface IGeometryFilter {
     boolean matches(NovaNative.mc_gui_buffer guiBuffer);
 
     class AndGeometryFilter implements IGeometryFilter {
-        private IGeometryFilter left;
-        private IGeometryFilter right;
+        final IGeometryFilter left;
+        final IGeometryFilter right;
 
         public AndGeometryFilter(IGeometryFilter left, IGeometryFilter right) {
             this.left = left;
@@ -41,8 +41,8 @@ public interface IGeometryFilter {
     }
 
     class OrGeometryFilter implements IGeometryFilter {
-        private IGeometryFilter left;
-        private IGeometryFilter right;
+        final IGeometryFilter left;
+        final IGeometryFilter right;
 
         public OrGeometryFilter(IGeometryFilter left, IGeometryFilter right) {
             this.left = left;
@@ -65,16 +65,41 @@ public interface IGeometryFilter {
         }
     }
 
+    class NotGeometryFilter implements IGeometryFilter {
+        final IGeometryFilter inner;
+
+        public NotGeometryFilter(IGeometryFilter inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public boolean matches(IBlockState blockState) {
+            return !inner.matches(blockState);
+        }
+
+        @Override
+        public boolean matches(NovaNative.mc_gui_buffer guiBuffer) {
+            return !inner.matches(guiBuffer);
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + inner.toString();
+        }
+    }
+
     class NameGeometryFilter implements IGeometryFilter {
-        private String name;
+        final String name;
+        final BlockIdMatcher blockIds;
 
         public NameGeometryFilter(String name) {
             this.name = name;
+            this.blockIds = new BlockIdMatcher(name::equals);
         }
 
         @Override
         public boolean matches(IBlockState blockState) {
-            return blockState.getBlock().getUnlocalizedName().equals(name);
+            return blockIds.matches(blockState.getBlock());
         }
 
         @Override
@@ -90,15 +115,17 @@ public interface IGeometryFilter {
     }
 
     class NamePartGeometryFilter implements IGeometryFilter {
-        private String namePart;
+        final String namePart;
+        final BlockIdMatcher blockIds;
 
         public NamePartGeometryFilter(String namePart) {
             this.namePart = namePart;
+            this.blockIds = new BlockIdMatcher(name -> name.contains(namePart));
         }
 
         @Override
         public boolean matches(IBlockState blockState) {
-            return blockState.getBlock().getUnlocalizedName().contains(namePart);
+            return blockIds.matches(blockState.getBlock());
         }
 
         @Override
@@ -113,7 +140,7 @@ public interface IGeometryFilter {
     }
 
     class GeometryTypeGeometryFilter implements IGeometryFilter {
-        private NovaNative.GeometryType type;
+        final NovaNative.GeometryType type;
 
         public GeometryTypeGeometryFilter(NovaNative.GeometryType type) {
             this.type = type;
@@ -146,7 +173,7 @@ public interface IGeometryFilter {
      * Matches blocks in the translucent render layer
      */
     class TransparentGeometryFilter implements IGeometryFilter {
-        boolean shouldBeTransparent;
+        final boolean shouldBeTransparent;
 
         private static final Logger LOG = LogManager.getLogger(TransparentGeometryFilter.class);
 
@@ -176,7 +203,7 @@ public interface IGeometryFilter {
     }
 
     class EmissiveGeometryFilter implements IGeometryFilter {
-        boolean shouldBeEmissive;
+        final boolean shouldBeEmissive;
 
         public EmissiveGeometryFilter(boolean shouldBeEmissive) {
             this.shouldBeEmissive = shouldBeEmissive;
@@ -203,45 +230,22 @@ public interface IGeometryFilter {
         }
     }
 
+    /**
+     * Parses a filter expression and compiles it into a {@link CompiledGeometryFilter}
+     *
+     * <p>Expressions are made of the tokens that {@link #makeFilterFromToken(String)} knows about, combined with NOT,
+     * AND, and OR. NOT binds tightest and OR loosest, and parentheses group things, so
+     * <code>geometry_type::block AND NOT (transparent OR emissive)</code> does what it looks like it does</p>
+     */
     static IGeometryFilter parseFilterString(final String filterString) {
-        String[] tokens = filterString.split(" ");
-
-        if(tokens.length % 2 == 0) {
-            throw new IllegalArgumentException("Cannot have an even number of tokens in your geometry filter expressions");
-        }
-
-        IGeometryFilter filter = makeFilterFromToken(tokens[0]);
-        if(tokens.length == 1) {
-            return filter;
-        }
-
-        return makeFilterExpression(filter, tokens, 1);
+        return CompiledGeometryFilter.compile(parseFilterTree(filterString));
     }
 
-    static IGeometryFilter makeFilterExpression(IGeometryFilter previousFilter, String[] tokens, int curToken) {
-        IGeometryFilter thisFilter;
-
-        switch(tokens[curToken]) {
-            case "AND":
-                thisFilter = new AndGeometryFilter(previousFilter, makeFilterFromToken(tokens[curToken + 1]));
-                break;
-
-            case "OR":
-                thisFilter = new OrGeometryFilter(previousFilter, makeFilterFromToken(tokens[curToken + 1]));
-                break;
-
-            default:
-                return makeFilterFromToken(tokens[curToken + 1]);
-        }
-
-        boolean hasAnotherExpression = curToken + 2 < tokens.length - 1;
-
-        if(hasAnotherExpression) {
-            return makeFilterExpression(thisFilter, tokens, curToken + 2);
-
-        } else {
-            return thisFilter;
-        }
+    /**
+     * Parses a filter expression into a tree of filters without compiling it. See {@link #parseFilterString(String)}
+     */
+    static IGeometryFilter parseFilterTree(final String filterString) {
+        return new GeometryFilterParser(filterString).parse();
     }
 
     static IGeometryFilter makeFilterFromToken(final String token) {
@@ -0,0 +1,301 @@
+package com.continuum.nova.chunks;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Counters and timers for each stage of chunk meshing
+ *
+ * <p>Meshing happens on the chunk builder threads, so each thread keeps its own counts in a {@link ThreadStats} and
+ * nothing is shared while meshing. Once a second the render thread calls {@link #update()}, which adds up every
+ * thread's counts and works out how much each one went up by over the last second. The counts are read without
+ * locking, so a second can be a few blocks off, but nothing is lost.</p>
+ *
+ * <p>Counters are always on. The stage timers call System.nanoTime a few times per block, which is a noticeable cost,
+ * so they're off until {@link #setTimersEnabled(boolean)} turns them on.</p>
+ */
+public final class MeshingStats {
+    public enum Stage {
+        /**
+         * Looking up each block in a section and running the filters on it
+         */
+        BLOCK_LOOKUP,
+
+        /**
+         * Filling the light volume and resetting the biome tint cache for a section
+         */
+        LIGHT_VOLUME,
+
+        /**
+         * Deciding which sides of each block are visible
+         */
+        CULLING,
+
+        /**
+         * Copying, tinting, and lighting quads, and adding them to the batch
+         */
+        QUAD_COPY,
+
+        /**
+         * Rendering fluids into the capturing vertex buffer
+         */
+        FLUID_CAPTURE,
+
+        /**
+         * Working out quad centers for translucent meshes
+         */
+        SORT_PREP,
+
+        /**
+         * Sending the finished batch to the native code
+         */
+        SUBMIT
+    }
+
+    /**
+     * One thread's running totals. Only the thread that owns it writes to it
+     */
+    public static final class ThreadStats {
+        private final long[] stageNanos = new long[Stage.values().length];
+        private long sectionsMeshed;
+        private long quads;
+        private long bytesSubmitted;
+        private long queueWaitNanos;
+        private long updates;
+
+        /**
+         * Quads per filter, each in a one-element array so it can be added to without boxing. It's concurrent only so
+         * that {@link #update()} can safely iterate it while a new filter gets added
+         */
+        private final Map<String, long[]> quadsPerFilter = new ConcurrentHashMap<>();
+
+        private ThreadStats() {}
+
+        /**
+         * @return The time to pass to {@link #stopTimer(Stage, long)}, or 0 if timers are off
+         */
+        public long startTimer() {
+            return timersEnabled ? System.nanoTime() : 0;
+        }
+
+        public void stopTimer(Stage stage, long startTime) {
+            if(startTime != 0) {
+                stageNanos[stage.ordinal()] += System.nanoTime() - startTime;
+            }
+        }
+
+        public void addSectionMeshed() {
+            sectionsMeshed++;
+        }
+
+        public void addQuads(String filterName, int numQuads) {
+            quads += numQuads;
+            if(numQuads > 0) {
+                long[] filterQuads = quadsPerFilter.get(filterName);
+                if(filterQuads == null) {
+                    filterQuads = new long[1];
+                    quadsPerFilter.put(filterName, filterQuads);
+                }
+                filterQuads[0] += numQuads;
+            }
+        }
+
+        public void addBytesSubmitted(long bytes) {
+            bytesSubmitted += bytes;
+        }
+
+        /**
+         * Records how long a chunk update sat in the thread pool's queue before a thread picked it up
+         */
+        public void addQueueWait(long nanos) {
+            queueWaitNanos += nanos;
+            updates++;
+        }
+    }
+
+    /**
+     * How much each counter went up by over one second
+     */
+    public static final class Snapshot {
+        public final long timestampMillis;
+        public final long sectionsMeshed;
+        public final long quads;
+        public final Map<String, Long> quadsPerFilter;
+        public final long bytesSubmitted;
+        public final long updates;
+        public final double averageQueueWaitMillis;
+        public final Map<Stage, Double> stageMillis;
+
+        Snapshot(long timestampMillis, long sectionsMeshed, long quads, Map<String, Long> quadsPerFilter, long bytesSubmitted,
+                 long updates, double averageQueueWaitMillis, Map<Stage, Double> stageMillis) {
+            this.timestampMillis = timestampMillis;
+            this.sectionsMeshed = sectionsMeshed;
+            this.quads = quads;
+            this.quadsPerFilter = quadsPerFilter;
+            this.bytesSubmitted = bytesSubmitted;
+            this.updates = updates;
+            this.averageQueueWaitMillis = averageQueueWaitMillis;
+            this.stageMillis = stageMillis;
+        }
+
+        /**
+         * @return This snapshot as a single line of JSON
+         */
+        public String toJson() {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"timestamp\":").append(timestampMillis)
+                    .append(",\"sections_meshed\":").append(sectionsMeshed)
+                    .append(",\"quads\":").append(quads)
+                    .append(",\"bytes_submitted\":").append(bytesSubmitted)
+                    .append(",\"updates\":").append(updates)
+                    .append(",\"average_queue_wait_ms\":").append(averageQueueWaitMillis);
+
+            json.append(",\"quads_per_filter\":{");
+            boolean first = true;
+            for(Map.Entry<String, Long> entry : quadsPerFilter.entrySet()) {
+                if(!first) {
+                    json.append(',');
+                }
+                json.append('"').append(entry.getKey().replace("\\", "\\\\").replace("\"", "\\\"")).append("\":").append(entry.getValue());
+                first = false;
+            }
+
+            json.append("},\"stage_ms\":{");
+            first = true;
+            for(Map.Entry<Stage, Double> entry : stageMillis.entrySet()) {
+                if(!first) {
+                    json.append(',');
+                }
+                json.append('"').append(entry.getKey().name().toLowerCase()).append("\":").append(entry.getValue());
+                first = false;
+            }
+
+            return json.append("}}").toString();
+        }
+    }
+
+    private static final long UPDATE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private static volatile boolean timersEnabled = false;
+
+    private static final List<ThreadStats> ALL_THREAD_STATS = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<ThreadStats> THREAD_STATS = ThreadLocal.withInitial(() -> {
+        ThreadStats stats = new ThreadStats();
+        ALL_THREAD_STATS.add(stats);
+        return stats;
+    });
+
+    // Totals as of the last update, so that the next update can work out how much they went up by. Only the render
+    // thread touches these
+    private static long lastUpdateTime = System.nanoTime();
+    private static final long[] lastStageNanos = new long[Stage.values().length];
+    private static long lastSectionsMeshed;
+    private static long lastQuads;
+    private static long lastBytesSubmitted;
+    private static long lastQueueWaitNanos;
+    private static long lastUpdates;
+    private static final Map<String, Long> lastQuadsPerFilter = new TreeMap<>();
+
+    private static volatile Snapshot lastSecond;
+
+    private MeshingStats() {}
+
+    /**
+     * @return The calling thread's stats
+     */
+    public static ThreadStats forThread() {
+        return THREAD_STATS.get();
+    }
+
+    public static void setTimersEnabled(boolean enabled) {
+        timersEnabled = enabled;
+    }
+
+    public static boolean areTimersEnabled() {
+        return timersEnabled;
+    }
+
+    /**
+     * Makes a new snapshot if it's been a second since the last one
+     *
+     * @return The new snapshot, or null if it hasn't been a second yet
+     */
+    public static Snapshot update() {
+        long now = System.nanoTime();
+        long elapsed = now - lastUpdateTime;
+        if(elapsed < UPDATE_INTERVAL_NANOS) {
+            return null;
+        }
+
+        long[] stageNanos = new long[Stage.values().length];
+        long sectionsMeshed = 0;
+        long quads = 0;
+        long bytesSubmitted = 0;
+        long queueWaitNanos = 0;
+        long updates = 0;
+        Map<String, Long> quadsPerFilterTotals = new TreeMap<>();
+        for(ThreadStats stats : ALL_THREAD_STATS) {
+            for(int i = 0; i < stageNanos.length; i++) {
+                stageNanos[i] += stats.stageNanos[i];
+            }
+            sectionsMeshed += stats.sectionsMeshed;
+            quads += stats.quads;
+            bytesSubmitted += stats.bytesSubmitted;
+            queueWaitNanos += stats.queueWaitNanos;
+            updates += stats.updates;
+            for(Map.Entry<String, long[]> entry : stats.quadsPerFilter.entrySet()) {
+                quadsPerFilterTotals.merge(entry.getKey(), entry.getValue()[0], Long::sum);
+            }
+        }
+
+        // Scale everything to exactly one second, since update probably wasn't called exactly one second after the
+        // last time
+        double scale = (double) UPDATE_INTERVAL_NANOS / elapsed;
+
+        Map<Stage, Double> stageMillis = new EnumMap<>(Stage.class);
+        for(Stage stage : Stage.values()) {
+            stageMillis.put(stage, (stageNanos[stage.ordinal()] - lastStageNanos[stage.ordinal()]) * scale / 1e6);
+        }
+
+        Map<String, Long> quadsPerFilter = new TreeMap<>();
+        for(Map.Entry<String, Long> entry : quadsPerFilterTotals.entrySet()) {
+            long total = entry.getValue();
+            quadsPerFilter.put(entry.getKey(), Math.round((total - lastQuadsPerFilter.getOrDefault(entry.getKey(), 0L)) * scale));
+            lastQuadsPerFilter.put(entry.getKey(), total);
+        }
+
+        long newUpdates = updates - lastUpdates;
+        double averageQueueWaitMillis = newUpdates == 0 ? 0 : (queueWaitNanos - lastQueueWaitNanos) / (newUpdates * 1e6);
+
+        Snapshot snapshot = new Snapshot(System.currentTimeMillis(),
+                Math.round((sectionsMeshed - lastSectionsMeshed) * scale),
+                Math.round((quads - lastQuads) * scale),
+                quadsPerFilter,
+                Math.round((bytesSubmitted - lastBytesSubmitted) * scale),
+                Math.round(newUpdates * scale),
+                averageQueueWaitMillis,
+                stageMillis);
+
+        System.arraycopy(stageNanos, 0, lastStageNanos, 0, stageNanos.length);
+        lastSectionsMeshed = sectionsMeshed;
+        lastQuads = quads;
+        lastBytesSubmitted = bytesSubmitted;
+        lastQueueWaitNanos = queueWaitNanos;
+        lastUpdates = updates;
+        lastUpdateTime = now;
+
+        lastSecond = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * @return The most recent snapshot, or null if there hasn't been one yet
+     */
+    public static Snapshot getLastSecond() {
+        return lastSecond;
+    }
+}
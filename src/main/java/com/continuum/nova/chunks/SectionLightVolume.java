@@ -0,0 +1,94 @@
+package com.continuum.nova.chunks;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockAccess;
+
+/**
+ * The sky and block light of every block in a chunk section, plus a one block border around it
+ *
+ * <p>Reading light through the world means a BlockPos and a chunk lookup for every light value, and the mesher wants
+ * the light next to every face it builds. This reads all the light the section could need once, packed into one byte
+ * per block, so the mesher can index straight into an array instead.</p>
+ *
+ * <p>It can also record which blocks are opaque cubes, which smooth lighting and ambient occlusion need.</p>
+ *
+ * <p>Coordinates are relative to the section's origin, and go from -1 to 16 on every axis.</p>
+ */
+public class SectionLightVolume {
+    public static final int SIZE = SectionMeshRegistry.SECTION_SIZE + 2;
+
+    /**
+     * Sky light in the high four bits, block light in the low four bits
+     */
+    private final byte[] light = new byte[SIZE * SIZE * SIZE];
+
+    private final boolean[] opaque = new boolean[SIZE * SIZE * SIZE];
+    private boolean hasOpacity;
+
+    private final BlockPos.MutableBlockPos samplePos = new BlockPos.MutableBlockPos();
+
+    /**
+     * Reads the light of the given section and its border out of the world
+     *
+     * @param world The world the section is in
+     * @param sectionPos The position of the section's lowest corner
+     * @param withOpacity If true, also record which blocks are opaque cubes
+     */
+    public void fill(IBlockAccess world, BlockPos sectionPos, boolean withOpacity) {
+        int index = 0;
+        for(int y = -1; y < SIZE - 1; y++) {
+            for(int z = -1; z < SIZE - 1; z++) {
+                for(int x = -1; x < SIZE - 1; x++) {
+                    samplePos.setPos(sectionPos.getX() + x, sectionPos.getY() + y, sectionPos.getZ() + z);
+                    // With no light value of its own this is just the sky and block light, packed as sky << 20 | block << 4
+                    int combinedLight = world.getCombinedLight(samplePos, 0);
+                    light[index] = (byte) (((combinedLight >> 20) & 0xF) << 4 | ((combinedLight >> 4) & 0xF));
+
+                    if(withOpacity) {
+                        opaque[index] = world.getBlockState(samplePos).isOpaqueCube();
+                    }
+
+                    index++;
+                }
+            }
+        }
+
+        hasOpacity = withOpacity;
+    }
+
+    /**
+     * Only valid if the last call to {@link #fill(IBlockAccess, BlockPos, boolean)} recorded opacity
+     */
+    public boolean isOpaque(int x, int y, int z) {
+        if(!hasOpacity) {
+            throw new IllegalStateException("This light volume was filled without opacity");
+        }
+
+        return opaque[indexOf(x, y, z)];
+    }
+
+    public int getSkyLight(int x, int y, int z) {
+        return (light[indexOf(x, y, z)] >> 4) & 0xF;
+    }
+
+    public int getBlockLight(int x, int y, int z) {
+        return light[indexOf(x, y, z)] & 0xF;
+    }
+
+    /**
+     * Gets the packed lightmap coordinates for the given position, the same way IBlockAccess#getCombinedLight does
+     *
+     * @param lightValue The light that the block being meshed gives off. Block light is never less than this
+     */
+    public int getPackedLightmapCoords(int x, int y, int z, int lightValue) {
+        int packedLight = light[indexOf(x, y, z)];
+        int skyLight = (packedLight >> 4) & 0xF;
+        int blockLight = Math.max(packedLight & 0xF, lightValue);
+
+        return skyLight << 20 | blockLight << 4;
+    }
+
+    private static int indexOf(int x, int y, int z) {
+        return ((y + 1) * SIZE + (z + 1)) * SIZE + (x + 1);
+    }
+}
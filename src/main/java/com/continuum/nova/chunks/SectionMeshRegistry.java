@@ -0,0 +1,144 @@
+package com.continuum.nova.chunks;
+
+import com.continuum.nova.utils.LongIntHashMap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maps 16x16x16 chunk sections to the handles that the native code uses to identify their meshes
+ *
+ * <p>Sections are keyed by their section coordinates packed into a single long, and every section gets its own
+ * handle for as long as it's in the registry. Re-meshing a section re-uses its handle, so the native code replaces
+ * the old meshes instead of piling new ones on top of them.</p>
+ *
+ * <p>Meshing happens on a thread pool, so every method here is synchronized. Handles can still come back for a chunk
+ * that's unloading, since a builder thread might have checked the chunk just before it went away, so see
+ * {@link #getUnloadLock()} for how that's dealt with.</p>
+ */
+public class SectionMeshRegistry {
+    public static final int SECTION_SIZE = 16;
+
+    public static final int NO_HANDLE = -1;
+
+    private static final int XZ_BITS = 26;
+    private static final int Y_BITS = 12;
+    private static final long XZ_MASK = (1L << XZ_BITS) - 1;
+    private static final long Y_MASK = (1L << Y_BITS) - 1;
+    private static final int Z_SHIFT = Y_BITS;
+    private static final int X_SHIFT = Y_BITS + XZ_BITS;
+
+    private final LongIntHashMap handlesBySection = new LongIntHashMap(1024, NO_HANDLE);
+
+    private final ReadWriteLock unloadLock = new ReentrantReadWriteLock();
+
+    /**
+     * 0 is left for meshes that nothing will ever sort
+     */
+    private final AtomicInteger nextGeometryVersion = new AtomicInteger(1);
+
+    /**
+     * Handle 0 is used natively for things that don't belong to a chunk (like fullscreen quads), so we start at 1
+     */
+    private int nextHandle = 1;
+
+    /**
+     * Packs the given section coordinates into a single long
+     *
+     * @param sectionX The X coordinate of the section, in sections
+     * @param sectionY The Y coordinate of the section, in sections
+     * @param sectionZ The Z coordinate of the section, in sections
+     * @return A key that's unique for every section in a Minecraft world
+     */
+    public static long packSectionKey(int sectionX, int sectionY, int sectionZ) {
+        return ((sectionX & XZ_MASK) << X_SHIFT) | ((sectionZ & XZ_MASK) << Z_SHIFT) | (sectionY & Y_MASK);
+    }
+
+    public static int unpackSectionX(long key) {
+        return (int) (key << (64 - X_SHIFT - XZ_BITS) >> (64 - XZ_BITS));
+    }
+
+    public static int unpackSectionY(long key) {
+        return (int) (key << (64 - Y_BITS) >> (64 - Y_BITS));
+    }
+
+    public static int unpackSectionZ(long key) {
+        return (int) (key << (64 - Z_SHIFT - XZ_BITS) >> (64 - XZ_BITS));
+    }
+
+    /**
+     * Returns the handle of the given section, allocating a new handle if the section doesn't have one yet
+     */
+    public synchronized int getOrCreateHandle(long sectionKey) {
+        int handle = handlesBySection.get(sectionKey);
+        if(handle == NO_HANDLE) {
+            handle = nextHandle++;
+            handlesBySection.put(sectionKey, handle);
+        }
+
+        return handle;
+    }
+
+    /**
+     * @return The handle of the given section, or {@link #NO_HANDLE} if the section has never been meshed
+     */
+    public synchronized int getHandle(long sectionKey) {
+        return handlesBySection.get(sectionKey);
+    }
+
+    /**
+     * Associates the given section with a handle, replacing any handle it had before
+     *
+     * @return The old handle of the section, or {@link #NO_HANDLE} if it didn't have one
+     */
+    public synchronized int replace(long sectionKey, int handle) {
+        return handlesBySection.put(sectionKey, handle);
+    }
+
+    /**
+     * Forgets about the given section
+     *
+     * @return The handle the section had, or {@link #NO_HANDLE} if it didn't have one
+     */
+    public synchronized int remove(long sectionKey) {
+        return handlesBySection.remove(sectionKey);
+    }
+
+    /**
+     * @return A geometry version that no other build of any section has had. Every build of a section gets a new one,
+     * so that indices sorted for an old build can be told apart from ones sorted for the new build
+     */
+    public int nextGeometryVersion() {
+        return nextGeometryVersion.getAndIncrement();
+    }
+
+    /**
+     * Builder threads hold this for reading while they submit meshes and then check whether the chunks they meshed are
+     * still loaded. Throwing away an unloaded chunk's meshes holds it for writing, and only starts once the chunk is
+     * gone. So either the unload comes after the submit and throws the new meshes away, or the builder thread sees
+     * that the chunk is gone and throws them away itself
+     */
+    public ReadWriteLock getUnloadLock() {
+        return unloadLock;
+    }
+
+    public synchronized int size() {
+        return handlesBySection.size();
+    }
+
+    public synchronized void clear() {
+        handlesBySection.clear();
+    }
+
+    /**
+     * Forgets about every section
+     *
+     * @return The handles the sections had
+     */
+    public synchronized int[] removeAll() {
+        int[] handles = handlesBySection.values();
+        handlesBySection.clear();
+        return handles;
+    }
+}
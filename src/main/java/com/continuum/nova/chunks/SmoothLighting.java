@@ -0,0 +1,145 @@
+package com.continuum.nova.chunks;
+
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3i;
+
+/**
+ * Per-vertex smooth lighting and ambient occlusion for chunk quads, worked out from a {@link SectionLightVolume}
+ *
+ * <p>Each vertex looks at the four blocks in front of its face that touch it: the block straight in front of the face,
+ * the two blocks to the sides of the vertex, and the block diagonal to it. Light is averaged over the ones that aren't
+ * opaque, and each opaque one darkens the vertex, like vanilla's smooth lighting does. If both side blocks are opaque
+ * the diagonal one can't be seen, so it's treated as opaque too.</p>
+ *
+ * <p>Quads that aren't flush with their block's face, like flowers, torches, and the top of carpet, look at the
+ * blocks around their own block instead, like vanilla does. Otherwise a flower next to stone would take its light
+ * from inside the stone and come out black.</p>
+ */
+public class SmoothLighting {
+    private static final int VERTEX_COLOR_OFFSET = 3;
+    private static final int LIGHTMAP_COORD_OFFSET = 6;
+
+    /**
+     * How bright a vertex is with zero, one, two, or three occluding neighbors
+     */
+    private static final float[] AO_BRIGHTNESS = {1.0f, 0.8f, 0.6f, 0.4f};
+
+    /**
+     * How close, in blocks, a quad has to be to its block's face to count as flush with it
+     */
+    private static final float FLUSH_EPSILON = 1.0e-4f;
+
+    private SmoothLighting() {}
+
+    /**
+     * Writes smooth lightmap coordinates and ambient occlusion into each vertex of the given quad
+     *
+     * @param quadVertexData The quad's vertex data, with positions relative to the section
+     * @param face The direction the quad faces
+     * @param posInSection The position of the quad's block relative to the section
+     * @param lightVolume The light and opacity of the section. Must have been filled with opacity
+     * @param lightValue The light that the quad's block gives off
+     */
+    public static void apply(int[] quadVertexData, EnumFacing face, BlockPos posInSection, SectionLightVolume lightVolume, int lightValue) {
+        EnumFacing.Axis axis = face.getAxis();
+
+        int frontX = posInSection.getX();
+        int frontY = posInSection.getY();
+        int frontZ = posInSection.getZ();
+        if(isFlushWithFace(quadVertexData, face, posInSection)) {
+            Vec3i normal = face.getDirectionVec();
+            frontX += normal.getX();
+            frontY += normal.getY();
+            frontZ += normal.getZ();
+        }
+
+        for(int vertex = 0; vertex < 4; vertex++) {
+            int base = vertex * ChunkGeometryBatch.INTS_PER_VERTEX;
+
+            // Which way the vertex leans along each axis, inside its block. The axis the face points along is ignored
+            int stepX = axis == EnumFacing.Axis.X ? 0 : sideOf(quadVertexData[base], posInSection.getX());
+            int stepY = axis == EnumFacing.Axis.Y ? 0 : sideOf(quadVertexData[base + 1], posInSection.getY());
+            int stepZ = axis == EnumFacing.Axis.Z ? 0 : sideOf(quadVertexData[base + 2], posInSection.getZ());
+
+            // The two side blocks each take one of the two axes the face lies along
+            int side1X = frontX, side1Y = frontY, side1Z = frontZ;
+            int side2X = frontX, side2Y = frontY, side2Z = frontZ;
+            if(axis == EnumFacing.Axis.X) {
+                side1Y += stepY;
+                side2Z += stepZ;
+            } else if(axis == EnumFacing.Axis.Y) {
+                side1X += stepX;
+                side2Z += stepZ;
+            } else {
+                side1X += stepX;
+                side2Y += stepY;
+            }
+
+            boolean side1Opaque = lightVolume.isOpaque(side1X, side1Y, side1Z);
+            boolean side2Opaque = lightVolume.isOpaque(side2X, side2Y, side2Z);
+            boolean cornerOpaque = (side1Opaque && side2Opaque)
+                    || lightVolume.isOpaque(frontX + stepX, frontY + stepY, frontZ + stepZ);
+
+            int occluders = (side1Opaque ? 1 : 0) + (side2Opaque ? 1 : 0) + (cornerOpaque ? 1 : 0);
+
+            int skyLight = lightVolume.getSkyLight(frontX, frontY, frontZ);
+            int blockLight = Math.max(lightVolume.getBlockLight(frontX, frontY, frontZ), lightValue);
+            int samples = 1;
+            if(!side1Opaque) {
+                skyLight += lightVolume.getSkyLight(side1X, side1Y, side1Z);
+                blockLight += lightVolume.getBlockLight(side1X, side1Y, side1Z);
+                samples++;
+            }
+            if(!side2Opaque) {
+                skyLight += lightVolume.getSkyLight(side2X, side2Y, side2Z);
+                blockLight += lightVolume.getBlockLight(side2X, side2Y, side2Z);
+                samples++;
+            }
+            if(!cornerOpaque) {
+                skyLight += lightVolume.getSkyLight(frontX + stepX, frontY + stepY, frontZ + stepZ);
+                blockLight += lightVolume.getBlockLight(frontX + stepX, frontY + stepY, frontZ + stepZ);
+                samples++;
+            }
+
+            quadVertexData[base + LIGHTMAP_COORD_OFFSET] = (skyLight * 16 / samples) << 16 | (blockLight * 16 / samples);
+            quadVertexData[base + VERTEX_COLOR_OFFSET] = darken(quadVertexData[base + VERTEX_COLOR_OFFSET], AO_BRIGHTNESS[occluders]);
+        }
+    }
+
+    /**
+     * @return Whether all four vertices of the quad lie on the given face of their block
+     */
+    private static boolean isFlushWithFace(int[] quadVertexData, EnumFacing face, BlockPos posInSection) {
+        int axis = face.getAxis().ordinal();
+        int blockCoordinate = axis == 0 ? posInSection.getX() : axis == 1 ? posInSection.getY() : posInSection.getZ();
+        float faceCoordinate = face.getAxisDirection() == EnumFacing.AxisDirection.POSITIVE ? blockCoordinate + 1 : blockCoordinate;
+
+        for(int vertex = 0; vertex < 4; vertex++) {
+            float coordinate = Float.intBitsToFloat(quadVertexData[vertex * ChunkGeometryBatch.INTS_PER_VERTEX + axis]);
+            if(Math.abs(coordinate - faceCoordinate) > FLUSH_EPSILON) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return -1 if the coordinate is in the lower half of its block, 1 if it's in the upper half
+     */
+    private static int sideOf(int coordinateBits, int blockCoordinate) {
+        return Float.intBitsToFloat(coordinateBits) - blockCoordinate < 0.5f ? -1 : 1;
+    }
+
+    /**
+     * Scales the three color channels of a packed color, and leaves the alpha alone
+     */
+    private static int darken(int color, float brightness) {
+        int c0 = (int) ((color & 0xFF) * brightness);
+        int c1 = (int) (((color >> 8) & 0xFF) * brightness);
+        int c2 = (int) (((color >> 16) & 0xFF) * brightness);
+
+        return (color & 0xFF000000) | c2 << 16 | c1 << 8 | c0;
+    }
+}
@@ -0,0 +1,225 @@
+package com.continuum.nova.chunks;
+
+import com.continuum.nova.system.NativeCommands;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the quads of translucent chunk meshes sorted back-to-front
+ *
+ * <p>The chunk builder registers every mesh that has translucent blocks in it, along with the center of each of its
+ * quads. Every frame the render thread checks how far the camera has moved since each mesh was last sorted, and if
+ * it's moved far enough the mesh gets re-sorted. Sorting only changes the order of the quads, so only a new index
+ * buffer is sent to the native code. The vertex data stays where it is.</p>
+ */
+public class TranslucentGeometrySorter {
+    /**
+     * How far, in blocks, the camera has to move before a mesh is sorted again
+     */
+    public static final float SORT_DISTANCE_THRESHOLD = 1.0f;
+
+    private static final float SORT_DISTANCE_THRESHOLD_SQUARED = SORT_DISTANCE_THRESHOLD * SORT_DISTANCE_THRESHOLD;
+
+    static class TranslucentMesh {
+        final String filterName;
+        final int handle;
+        final int geometryVersion;
+
+        /**
+         * The center of each quad, relative to the section it's in. Three floats per quad
+         */
+        final float[] quadCenters;
+        final int numQuads;
+
+        final float originX;
+        final float originY;
+        final float originZ;
+
+        float lastSortX = Float.NaN;
+        float lastSortY = Float.NaN;
+        float lastSortZ = Float.NaN;
+
+        TranslucentMesh(String filterName, int handle, int geometryVersion, float[] quadCenters, float originX, float originY, float originZ) {
+            this.filterName = filterName;
+            this.handle = handle;
+            this.geometryVersion = geometryVersion;
+            this.quadCenters = quadCenters;
+            this.numQuads = quadCenters.length / 3;
+            this.originX = originX;
+            this.originY = originY;
+            this.originZ = originZ;
+        }
+    }
+
+    /**
+     * Translucent meshes by section handle, then by filter name
+     */
+    private final Map<Integer, Map<String, TranslucentMesh>> meshesBySection = new ConcurrentHashMap<>();
+
+    // Only touched on the render thread, re-used between sorts so sorting doesn't allocate
+    private long[] sortKeys = new long[0];
+    private int[] sortedIndices = new int[0];
+
+    /**
+     * Replaces all the translucent meshes of a section
+     *
+     * <p>Call this after the section's new geometry has been submitted, so that indices sorted for the new geometry
+     * never reach the native code before the geometry itself does</p>
+     *
+     * @param handle The handle of the section
+     * @param meshes The section's new translucent meshes. May be empty, which forgets about the section
+     */
+    public void replaceSection(int handle, List<TranslucentMesh> meshes) {
+        if(meshes.isEmpty()) {
+            meshesBySection.remove(handle);
+            return;
+        }
+
+        Map<String, TranslucentMesh> meshesByFilter = new ConcurrentHashMap<>();
+        for(TranslucentMesh mesh : meshes) {
+            meshesByFilter.put(mesh.filterName, mesh);
+        }
+        meshesBySection.put(handle, meshesByFilter);
+    }
+
+    /**
+     * Forgets about the translucent meshes of a section, for when the section goes away
+     *
+     * @param handle The handle the section had
+     */
+    public void removeSection(int handle) {
+        meshesBySection.remove(handle);
+    }
+
+    /**
+     * Forgets about every translucent mesh, for when the world changes
+     */
+    public void clear() {
+        meshesBySection.clear();
+    }
+
+    /**
+     * Finds the center of each quad in the most recently finished mesh of the given batch, so that the mesh can be
+     * sorted later
+     *
+     * @param batch The batch that the mesh was just built in
+     * @param filterName The filter the mesh was built for
+     * @param handle The handle of the section the mesh is in
+     * @param geometryVersion The geometry version the mesh was built with. Sorted indices are only applied to that build
+     * @param originX The world X coordinate of the section's origin
+     * @return The mesh to hand to {@link #replaceSection(int, List)}, or null if the mesh has no quads
+     */
+    public static TranslucentMesh prepareMesh(ChunkGeometryBatch batch, String filterName, int handle, int geometryVersion, float originX, float originY, float originZ) {
+        int mesh = batch.getNumMeshes() - 1;
+        int start = batch.getMeshVertexStart(mesh);
+        int size = batch.getMeshVertexSize(mesh);
+        int[] vertexData = batch.getVertexData();
+
+        int numQuads = size / ChunkGeometryBatch.INTS_PER_QUAD;
+        if(numQuads == 0) {
+            return null;
+        }
+
+        float[] quadCenters = new float[numQuads * 3];
+        for(int quad = 0; quad < numQuads; quad++) {
+            int quadStart = start + quad * ChunkGeometryBatch.INTS_PER_QUAD;
+            float x = 0;
+            float y = 0;
+            float z = 0;
+            for(int vertex = 0; vertex < 4; vertex++) {
+                int vertexStart = quadStart + vertex * ChunkGeometryBatch.INTS_PER_VERTEX;
+                x += Float.intBitsToFloat(vertexData[vertexStart]);
+                y += Float.intBitsToFloat(vertexData[vertexStart + 1]);
+                z += Float.intBitsToFloat(vertexData[vertexStart + 2]);
+            }
+
+            quadCenters[quad * 3] = x * 0.25f;
+            quadCenters[quad * 3 + 1] = y * 0.25f;
+            quadCenters[quad * 3 + 2] = z * 0.25f;
+        }
+
+        return new TranslucentMesh(filterName, handle, geometryVersion, quadCenters, originX, originY, originZ);
+    }
+
+    /**
+     * Re-sorts every translucent mesh that the camera has moved far enough away from since it was last sorted, and
+     * sends the new indices to the native code
+     *
+     * <p>Meshes farther away horizontally than maxDistance aren't drawn, so they're left alone until the camera gets
+     * close enough again</p>
+     *
+     * <p>Must be called from the render thread</p>
+     *
+     * @param maxDistance How far from the camera, in blocks along X or Z, a mesh can be and still get sorted
+     */
+    public void sortForCamera(double cameraX, double cameraY, double cameraZ, float maxDistance, NativeCommands commands) {
+        final float halfSection = SectionMeshRegistry.SECTION_SIZE / 2f;
+        for(Map<String, TranslucentMesh> meshes : meshesBySection.values()) {
+            for(TranslucentMesh mesh : meshes.values()) {
+                if(Math.abs(mesh.originX + halfSection - cameraX) > maxDistance
+                        || Math.abs(mesh.originZ + halfSection - cameraZ) > maxDistance) {
+                    continue;
+                }
+
+                float dx = (float) cameraX - mesh.lastSortX;
+                float dy = (float) cameraY - mesh.lastSortY;
+                float dz = (float) cameraZ - mesh.lastSortZ;
+
+                // The NaNs we start with make this false, so new meshes always get sorted
+                if(dx * dx + dy * dy + dz * dz < SORT_DISTANCE_THRESHOLD_SQUARED) {
+                    continue;
+                }
+
+                sortMesh(mesh, cameraX, cameraY, cameraZ);
+                commands.updateChunkIndices(mesh.filterName, mesh.handle, mesh.geometryVersion, sortedIndices, mesh.numQuads * 6);
+
+                mesh.lastSortX = (float) cameraX;
+                mesh.lastSortY = (float) cameraY;
+                mesh.lastSortZ = (float) cameraZ;
+            }
+        }
+    }
+
+    /**
+     * Sorts the quads of the given mesh from farthest to nearest, and writes the resulting indices into sortedIndices
+     */
+    private void sortMesh(TranslucentMesh mesh, double cameraX, double cameraY, double cameraZ) {
+        int numQuads = mesh.numQuads;
+        if(sortKeys.length < numQuads) {
+            sortKeys = new long[numQuads];
+        }
+        if(sortedIndices.length < numQuads * 6) {
+            sortedIndices = new int[numQuads * 6];
+        }
+
+        float relativeCameraX = (float) (cameraX - mesh.originX);
+        float relativeCameraY = (float) (cameraY - mesh.originY);
+        float relativeCameraZ = (float) (cameraZ - mesh.originZ);
+
+        for(int quad = 0; quad < numQuads; quad++) {
+            float dx = mesh.quadCenters[quad * 3] - relativeCameraX;
+            float dy = mesh.quadCenters[quad * 3 + 1] - relativeCameraY;
+            float dz = mesh.quadCenters[quad * 3 + 2] - relativeCameraZ;
+            float distanceSquared = dx * dx + dy * dy + dz * dz;
+
+            // Positive floats sort the same way as their bits, so we can sort the distance and the quad together
+            sortKeys[quad] = ((long) Float.floatToIntBits(distanceSquared) << 32) | quad;
+        }
+
+        Arrays.sort(sortKeys, 0, numQuads);
+
+        int writePos = 0;
+        for(int i = numQuads - 1; i >= 0; i--) {
+            int firstVertex = (int) sortKeys[i] * 4;
+            sortedIndices[writePos++] = firstVertex;
+            sortedIndices[writePos++] = firstVertex + 1;
+            sortedIndices[writePos++] = firstVertex + 2;
+            sortedIndices[writePos++] = firstVertex;
+            sortedIndices[writePos++] = firstVertex + 2;
+            sortedIndices[writePos++] = firstVertex + 3;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.continuum.nova.gui;
+
+import net.minecraft.util.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The glyph quads for one string, laid out relative to where the string starts, so drawing the same string again is
+ * one translated append per texture instead of laying out every glyph again
+ *
+ * <p>Built by the font renderer as it lays out a string. Glyphs are grouped by texture, since unicode text can use a
+ * few glyph pages.</p>
+ */
+public class GlyphRun {
+    private static final int[] GLYPH_INDICES = {0, 1, 2, 2, 1, 3};
+
+    private final ResourceLocation[] textures;
+    private final int[][] indices;
+    private final int[][] vertices;
+    private final float advance;
+
+    private GlyphRun(ResourceLocation[] textures, int[][] indices, int[][] vertices, float advance) {
+        this.textures = textures;
+        this.indices = indices;
+        this.vertices = vertices;
+        this.advance = advance;
+    }
+
+    /**
+     * Draws the run with its origin at the given position, through the current model matrix and at the current Z
+     */
+    public void draw(float x, float y) {
+        for(int i = 0; i < textures.length; i++) {
+            NovaDraw.drawTranslated(textures[i], indices[i], vertices[i], x, y);
+        }
+    }
+
+    /**
+     * @return How far the string moves the cursor along
+     */
+    public float getAdvance() {
+        return advance;
+    }
+
+    public static class Builder {
+        private final List<ResourceLocation> textures = new ArrayList<>();
+        private final List<Segment> segments = new ArrayList<>();
+
+        private float originX;
+        private float originY;
+        private int color;
+
+        private static final class Segment {
+            int[] indices = new int[GLYPH_INDICES.length * 16];
+            int[] vertices = new int[NovaDraw.Buffers.WORDS_PER_VERTEX * 4 * 16];
+            int numGlyphs;
+        }
+
+        /**
+         * Starts a new run. The builder's memory is kept, so one builder can be used for every string
+         *
+         * @param originX Where the string starts. Glyph positions are stored relative to this
+         * @param originY Where the string starts
+         */
+        public void begin(float originX, float originY) {
+            this.originX = originX;
+            this.originY = originY;
+            for(Segment segment : segments) {
+                segment.numGlyphs = 0;
+            }
+        }
+
+        /**
+         * Sets the color of the glyphs added after this
+         *
+         * @param color The packed color, see {@link NovaDraw#packColor(int, int, int, int)}
+         */
+        public void setColor(int color) {
+            this.color = color;
+        }
+
+        /**
+         * Adds one glyph quad. The corners go top left, bottom left, top right, bottom right, in the same coordinates
+         * as the string's origin
+         */
+        public void addGlyph(ResourceLocation texture,
+                             float topLeftX, float bottomLeftX, float topRightX, float bottomRightX, float top, float bottom,
+                             float minU, float minV, float maxU, float maxV) {
+            Segment segment = segmentFor(texture);
+            int glyph = segment.numGlyphs++;
+
+            int indexBase = glyph * GLYPH_INDICES.length;
+            if(segment.indices.length < indexBase + GLYPH_INDICES.length) {
+                segment.indices = Arrays.copyOf(segment.indices, segment.indices.length * 2);
+                segment.vertices = Arrays.copyOf(segment.vertices, segment.vertices.length * 2);
+            }
+            for(int i = 0; i < GLYPH_INDICES.length; i++) {
+                segment.indices[indexBase + i] = GLYPH_INDICES[i] + glyph * 4;
+            }
+
+            int vertexBase = glyph * 4;
+            putVertex(segment.vertices, vertexBase, topLeftX, top, minU, minV);
+            putVertex(segment.vertices, vertexBase + 1, bottomLeftX, bottom, minU, maxV);
+            putVertex(segment.vertices, vertexBase + 2, topRightX, top, maxU, minV);
+            putVertex(segment.vertices, vertexBase + 3, bottomRightX, bottom, maxU, maxV);
+        }
+
+        private Segment segmentFor(ResourceLocation texture) {
+            int index = textures.indexOf(texture);
+            if(index < 0) {
+                textures.add(texture);
+                segments.add(new Segment());
+                index = segments.size() - 1;
+            }
+            return segments.get(index);
+        }
+
+        private void putVertex(int[] vertices, int v, float x, float y, float u, float texV) {
+            int base = v * NovaDraw.Buffers.WORDS_PER_VERTEX;
+            vertices[base] = Float.floatToRawIntBits(x - originX);
+            vertices[base + 1] = Float.floatToRawIntBits(y - originY);
+            vertices[base + 2] = 0;
+            vertices[base + 3] = Float.floatToRawIntBits(u);
+            vertices[base + 4] = Float.floatToRawIntBits(texV);
+            vertices[base + 5] = color;
+        }
+
+        /**
+         * @param advance How far the string moved the cursor along
+         * @return A run with a copy of everything added since {@link #begin(float, float)}
+         */
+        public GlyphRun build(float advance) {
+            int numTextures = 0;
+            for(Segment segment : segments) {
+                if(segment.numGlyphs > 0) {
+                    numTextures++;
+                }
+            }
+
+            ResourceLocation[] runTextures = new ResourceLocation[numTextures];
+            int[][] runIndices = new int[numTextures][];
+            int[][] runVertices = new int[numTextures][];
+
+            int i = 0;
+            for(int s = 0; s < segments.size(); s++) {
+                Segment segment = segments.get(s);
+                if(segment.numGlyphs == 0) {
+                    continue;
+                }
+
+                runTextures[i] = textures.get(s);
+                runIndices[i] = Arrays.copyOf(segment.indices, segment.numGlyphs * GLYPH_INDICES.length);
+                runVertices[i] = Arrays.copyOf(segment.vertices, segment.numGlyphs * 4 * NovaDraw.Buffers.WORDS_PER_VERTEX);
+                i++;
+            }
+
+            return new GlyphRun(runTextures, runIndices, runVertices, advance);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.continuum.nova.gui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the {@link GlyphRun} for strings that a font renderer has drawn recently
+ *
+ * <p>Text like chat, the scoreboard, and the debug screen is mostly the same from frame to frame, so most strings get
+ * drawn from here. The least recently drawn strings are forgotten once there are too many. Each font renderer has its
+ * own cache, since the same string looks different in a different font.</p>
+ */
+public class GlyphRunCache {
+    private static final class Key {
+        final String text;
+        final int color;
+        final boolean shadow;
+        final boolean unicode;
+        final int hash;
+
+        Key(String text, int color, boolean shadow, boolean unicode) {
+            this.text = text;
+            this.color = color;
+            this.shadow = shadow;
+            this.unicode = unicode;
+            this.hash = ((text.hashCode() * 31 + color) * 31 + (shadow ? 1 : 0)) * 31 + (unicode ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return hash == other.hash && color == other.color && shadow == other.shadow && unicode == other.unicode && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final Map<Key, GlyphRun> runs;
+
+    /**
+     * @param maxRuns How many strings to remember
+     */
+    public GlyphRunCache(int maxRuns) {
+        this.runs = new LinkedHashMap<Key, GlyphRun>(maxRuns, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, GlyphRun> eldest) {
+                return size() > maxRuns;
+            }
+        };
+    }
+
+    /**
+     * @param color The string's color, after the shadow has darkened it
+     * @param unicode Whether the string was laid out with the unicode font
+     * @return The run for the string, or null if it isn't remembered
+     */
+    public GlyphRun get(String text, int color, boolean shadow, boolean unicode) {
+        return runs.get(new Key(text, color, shadow, unicode));
+    }
+
+    public void put(String text, int color, boolean shadow, boolean unicode, GlyphRun run) {
+        runs.put(new Key(text, color, shadow, unicode), run);
+    }
+
+    /**
+     * Forgets every string. Call this when the font's glyphs change, like after a resource reload
+     */
+    public void clear() {
+        runs.clear();
+    }
+}
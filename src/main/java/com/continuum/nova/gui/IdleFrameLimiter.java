@@ -0,0 +1,68 @@
+package com.continuum.nova.gui;
+
+import com.continuum.nova.system.NovaNative;
+
+/**
+ * Slows frames down while a menu just sits there, so a static menu doesn't keep a core and the GPU busy
+ *
+ * <p>After a few frames in a row where nothing changed, each frame waits for input before it ends, up to the idle frame
+ * time. Input wakes the wait straight away, and then frames run at full speed for a little while, so that the game gets
+ * a tick in to handle the input and whatever it changes gets drawn. Any frame where something changed also goes back
+ * to full speed.</p>
+ */
+public class IdleFrameLimiter {
+    /**
+     * How many unchanged frames in a row it takes to count as idle, so that one quiet frame between the steps of an
+     * animation doesn't slow it down
+     */
+    private static final int QUIET_FRAMES_BEFORE_IDLE = 3;
+
+    /**
+     * How long frames run at full speed after input, which has to be longer than a game tick
+     */
+    private static final long FULL_SPEED_AFTER_INPUT_NANOS = 250_000_000L;
+
+    private final long idleFrameNanos;
+
+    private int quietFrames;
+    private long fullSpeedUntil;
+    private long lastFrameEnd = System.nanoTime();
+
+    /**
+     * @param idleFps How many frames per second to draw while idle, or 0 to never slow down
+     */
+    public IdleFrameLimiter(int idleFps) {
+        this.idleFrameNanos = idleFps > 0 ? 1_000_000_000L / idleFps : 0;
+    }
+
+    /**
+     * Call at the end of every frame. Waits for input if things have been quiet long enough
+     *
+     * @param quiet Whether nothing changed this frame
+     */
+    public void endFrame(boolean quiet, NovaNative nativeCode) {
+        long now = System.nanoTime();
+        if(idleFrameNanos == 0 || !quiet) {
+            quietFrames = 0;
+        } else if(++quietFrames >= QUIET_FRAMES_BEFORE_IDLE && now - fullSpeedUntil >= 0) {
+            long timeout = idleFrameNanos - (now - lastFrameEnd);
+            if(timeout > 0) {
+                boolean gotInput = nativeCode.wait_for_events(timeout / 1e9) != 0;
+
+                now = System.nanoTime();
+                if(gotInput) {
+                    quietFrames = 0;
+                    fullSpeedUntil = now + FULL_SPEED_AFTER_INPUT_NANOS;
+                }
+            }
+        }
+        lastFrameEnd = now;
+    }
+
+    /**
+     * @return Whether the last frame waited, or would have if nothing had woken it
+     */
+    public boolean isIdle() {
+        return quietFrames >= QUIET_FRAMES_BEFORE_IDLE;
+    }
+}
@@ -0,0 +1,151 @@
+package com.continuum.nova.gui;
+
+/**
+ * A stack of 4x4 matrices that lives in one preallocated float array, like the matrix stack in old OpenGL
+ *
+ * <p>Translating, rotating, and scaling change the top matrix in place, multiplying on the right the same way
+ * glTranslate and friends do, so nothing is allocated after the stack is made. Matrices are column major.</p>
+ *
+ * <p>The stack remembers whether the top matrix is still the identity. Most of the GUI is drawn without any transform,
+ * and then {@link #transform(int[], int, float, float, float)} just copies the position.</p>
+ */
+public class MatrixStack {
+    private static final int MATRIX_SIZE = 16;
+
+    private final float[] matrices;
+    private final boolean[] identity;
+    private int top;
+
+    /**
+     * @param maxDepth How many matrices can be pushed on top of the first one
+     */
+    public MatrixStack(int maxDepth) {
+        this.matrices = new float[(maxDepth + 1) * MATRIX_SIZE];
+        this.identity = new boolean[maxDepth + 1];
+        loadIdentity();
+    }
+
+    /**
+     * Pushes a copy of the top matrix
+     *
+     * @throws IllegalStateException If the stack is full
+     */
+    public void push() {
+        if(top + 1 >= identity.length) {
+            throw new IllegalStateException("Matrix stack overflow, it can only hold " + identity.length + " matrices");
+        }
+
+        System.arraycopy(matrices, top * MATRIX_SIZE, matrices, (top + 1) * MATRIX_SIZE, MATRIX_SIZE);
+        identity[top + 1] = identity[top];
+        top++;
+    }
+
+    /**
+     * @throws IllegalStateException If there's nothing to pop
+     */
+    public void pop() {
+        if(top == 0) {
+            throw new IllegalStateException("Matrix stack underflow");
+        }
+        top--;
+    }
+
+    /**
+     * Makes the top matrix the identity
+     */
+    public void loadIdentity() {
+        int m = top * MATRIX_SIZE;
+        for(int i = 0; i < MATRIX_SIZE; i++) {
+            matrices[m + i] = (i % 5 == 0) ? 1 : 0;
+        }
+        identity[top] = true;
+    }
+
+    /**
+     * Goes back to just one matrix, the identity
+     */
+    public void reset() {
+        top = 0;
+        loadIdentity();
+    }
+
+    public boolean isIdentity() {
+        return identity[top];
+    }
+
+    public void translate(float x, float y, float z) {
+        int m = top * MATRIX_SIZE;
+        for(int row = 0; row < 4; row++) {
+            matrices[m + 12 + row] += matrices[m + row] * x + matrices[m + 4 + row] * y + matrices[m + 8 + row] * z;
+        }
+        identity[top] &= x == 0 && y == 0 && z == 0;
+    }
+
+    public void scale(float x, float y, float z) {
+        int m = top * MATRIX_SIZE;
+        for(int row = 0; row < 4; row++) {
+            matrices[m + row] *= x;
+            matrices[m + 4 + row] *= y;
+            matrices[m + 8 + row] *= z;
+        }
+        identity[top] &= x == 1 && y == 1 && z == 1;
+    }
+
+    /**
+     * Rotates around the given axis. The axis doesn't have to be normalized
+     *
+     * @param degrees How far to rotate, in degrees
+     */
+    public void rotate(float degrees, float axisX, float axisY, float axisZ) {
+        float length = (float) Math.sqrt(axisX * axisX + axisY * axisY + axisZ * axisZ);
+        if(degrees == 0 || length == 0) {
+            return;
+        }
+
+        float x = axisX / length;
+        float y = axisY / length;
+        float z = axisZ / length;
+
+        double radians = Math.toRadians(degrees);
+        float c = (float) Math.cos(radians);
+        float s = (float) Math.sin(radians);
+        float t = 1 - c;
+
+        // The rotation matrix, row by row
+        float r00 = t * x * x + c,     r01 = t * x * y - s * z, r02 = t * x * z + s * y;
+        float r10 = t * x * y + s * z, r11 = t * y * y + c,     r12 = t * y * z - s * x;
+        float r20 = t * x * z - s * y, r21 = t * y * z + s * x, r22 = t * z * z + c;
+
+        int m = top * MATRIX_SIZE;
+        for(int row = 0; row < 4; row++) {
+            float col0 = matrices[m + row];
+            float col1 = matrices[m + 4 + row];
+            float col2 = matrices[m + 8 + row];
+            matrices[m + row] = col0 * r00 + col1 * r10 + col2 * r20;
+            matrices[m + 4 + row] = col0 * r01 + col1 * r11 + col2 * r21;
+            matrices[m + 8 + row] = col0 * r02 + col1 * r12 + col2 * r22;
+        }
+        identity[top] = false;
+    }
+
+    /**
+     * Transforms a position by the top matrix, treating it as affine, and writes the x, y, and z of the result as the
+     * raw bits of the floats, the way GUI vertices hold them
+     *
+     * @param out Where to write the result
+     * @param offset Where in out to write it
+     */
+    public void transform(int[] out, int offset, float x, float y, float z) {
+        if(identity[top]) {
+            out[offset] = Float.floatToRawIntBits(x);
+            out[offset + 1] = Float.floatToRawIntBits(y);
+            out[offset + 2] = Float.floatToRawIntBits(z);
+            return;
+        }
+
+        int m = top * MATRIX_SIZE;
+        out[offset] = Float.floatToRawIntBits(matrices[m] * x + matrices[m + 4] * y + matrices[m + 8] * z + matrices[m + 12]);
+        out[offset + 1] = Float.floatToRawIntBits(matrices[m + 1] * x + matrices[m + 5] * y + matrices[m + 9] * z + matrices[m + 13]);
+        out[offset + 2] = Float.floatToRawIntBits(matrices[m + 2] * x + matrices[m + 6] * y + matrices[m + 10] * z + matrices[m + 14]);
+    }
+}
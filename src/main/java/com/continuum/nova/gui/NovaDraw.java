@@ -1,22 +1,23 @@
 package com.continuum.nova.gui;
 
+import com.continuum.nova.system.NativeCommands;
 import com.continuum.nova.system.NovaNative;
 import com.continuum.nova.NovaRenderer;
 import com.continuum.nova.chunks.IGeometryFilter;
 import com.continuum.nova.input.Mouse;
-import com.sun.jna.Memory;
-import com.sun.jna.Native;
-import glm.mat._4.Mat4;
-import glm.vec._4.Vec4;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiScreen;
 import net.minecraft.client.gui.ScaledResolution;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.util.ResourceLocation;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.awt.*;
 import java.awt.geom.Rectangle2D;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.util.*;
 import java.util.List;
 
@@ -24,7 +25,13 @@ public class NovaDraw {
 
     private static int mouseX, mouseY;
 
-    static HashMap<ResourceLocation, Buffers> buffers = new HashMap<>();
+    /**
+     * The GUI geometry for this frame, in batches named by {@link Buffers#getTextureName()}. Textures in the GUI or
+     * font atlas share one batch per atlas and set of filters, so a whole screen is only a handful of batches.
+     * Merging doesn't change what ends up on top of what, since that comes from the Z each vertex is drawn at (see
+     * {@link #incrementZ()}) and geometry keeps the order it was drawn in inside a batch
+     */
+    static Map<String, Buffers> buffers = new LinkedHashMap<>();
 
     private static final Logger LOG = LogManager.getLogger(NovaRenderer.class);
 
@@ -32,7 +39,59 @@ public class NovaDraw {
 
     private static float currentZ;
 
-    private static Mat4 ModelMatrix = new Mat4();
+    private static final int MODEL_MATRIX_STACK_DEPTH = 16;
+
+    private static final MatrixStack modelMatrix = new MatrixStack(MODEL_MATRIX_STACK_DEPTH);
+
+    private static final int[] RECTANGLE_INDICES = {0, 1, 2, 0, 2, 3};
+
+    /**
+     * Vertices get built in here before being copied into a texture's buffers. The GUI is only drawn from the render
+     * thread, so one array is enough
+     */
+    private static int[] vertexScratch = new int[Buffers.WORDS_PER_VERTEX * 64];
+
+    /**
+     * Indices that survive clipping get copied in here, see {@link #setClip(float, float)}
+     */
+    private static int[] indexScratch = new int[6 * 64];
+
+    /**
+     * Whether triangles outside of {@link #clipTop} - {@link #clipBottom} are being dropped
+     */
+    private static boolean clipping;
+
+    private static float clipTop;
+
+    private static float clipBottom;
+
+    /**
+     * Where the GUI geometry for each texture goes. Whether GUI geometry matches a filter only depends on its texture,
+     * so this only changes when the filters or the atlases do
+     */
+    private static final Map<ResourceLocation, TextureRoute> routes = new HashMap<>();
+
+    /**
+     * The filters of the screen that's being drawn, for routing textures that haven't been seen before
+     */
+    private static Map<String, IGeometryFilter> currentFilters = Collections.emptyMap();
+
+    /**
+     * The content hash of the GUI geometry that the native code has for each batch. GUI geometry stays on the native
+     * side until it's removed, so a batch whose geometry hashes the same as last frame doesn't need to be sent again
+     */
+    private static final Map<String, Long> uploadedGeometry = new HashMap<>();
+
+    /**
+     * Set when the native code might have GUI geometry that isn't in {@link #uploadedGeometry}, like after the
+     * filters change. The next frame clears all of it and uploads everything
+     */
+    private static boolean needsFullUpload = true;
+
+    /**
+     * Whether the last frame sent or removed any GUI geometry
+     */
+    private static boolean geometryChanged = true;
 
 
     /**
@@ -40,10 +99,57 @@ public class NovaDraw {
      */
     private NovaDraw() {}
 
+    /**
+     * Empties every batch's buffers but keeps their memory around for the next frame. Batches that weren't drawn
+     * at all last frame are dropped. The native code keeps its copy of the geometry, see {@link #uploadChangedGeometry}
+     */
     private static void clearBuffers() {
-        buffers.clear();
-        NovaRenderer.getInstance().getNative().clear_gui_buffers();
+        boolean droppedAny = false;
+        Iterator<Buffers> it = buffers.values().iterator();
+        while (it.hasNext()) {
+            Buffers b = it.next();
+            if (b.isEmpty()) {
+                it.remove();
+                droppedAny = true;
+            } else {
+                b.clear();
+            }
+        }
+        if (droppedAny) {
+            routes.values().removeIf(route -> route.buffers != null && buffers.get(route.buffers.getTextureName()) != route.buffers);
+        }
         currentZ = 0.9999f;
+        modelMatrix.reset();
+        clipping = false;
+    }
+
+    /**
+     * Forgets where the GUI geometry for each texture goes. Call this whenever the filters change, like when a
+     * shaderpack is loaded, or the atlases do
+     */
+    public static void clearFilterRouting() {
+        routes.clear();
+        buffers.clear();
+        needsFullUpload = true;
+    }
+
+    /**
+     * Removes all the GUI geometry from the native code. Call this when there's no screen open, since
+     * {@link #novaDrawScreen} isn't called then
+     */
+    public static void clearScreen() {
+        geometryChanged = !uploadedGeometry.isEmpty();
+        if (geometryChanged) {
+            NovaRenderer.getInstance().getCommands().clearGuiBuffers();
+            uploadedGeometry.clear();
+        }
+    }
+
+    /**
+     * @return Whether the last frame's GUI looked any different from the one before it
+     */
+    public static boolean didGeometryChange() {
+        return geometryChanged;
     }
 
     public static int getMouseX() {
@@ -55,18 +161,128 @@ public class NovaDraw {
     }
 
     /**
-     * Add data to the indexBuffer and vertexBuffer which is associated with the specified texture.
+     * Packs a color into the word that GUI vertices hold it in: RGBA8, with red in the lowest byte so the bytes are in
+     * R, G, B, A order in memory
+     */
+    public static int packColor(int r, int g, int b, int a) {
+        return (a & 255) << 24 | (b & 255) << 16 | (g & 255) << 8 | (r & 255);
+    }
+
+    /**
+     * Packs a color given the way Minecraft and AWT give them, as 0xAARRGGBB. See {@link #packColor(int, int, int, int)}
+     */
+    public static int packColor(int argb) {
+        return (argb & 0xFF00FF00) | (argb >> 16 & 255) | (argb & 255) << 16;
+    }
+
+    /**
+     * Add data to the index and vertex buffers of the batch that the specified texture goes in.
+     *
+     * @param texture         the texture, which decides the batch
+     * @param indices         index data, relative to the first of the given vertices
+     * @param indexCount      how many indices to use
+     * @param vertices        vertex data, {@link Buffers#WORDS_PER_VERTEX} words per vertex, see {@link Buffers}
+     * @param vertexWordCount how many words of vertex data to use
+     */
+    public static void draw(ResourceLocation texture, int[] indices, int indexCount, int[] vertices, int vertexWordCount) {
+        TextureRoute route = getRoute(texture);
+        if (route.buffers == null) {
+            return;
+        }
+
+        if (clipping) {
+            indexCount = clipTriangles(indices, indexCount, vertices);
+            if (indexCount == 0) {
+                return;
+            }
+            indices = indexScratch;
+        }
+
+        int firstWord = route.buffers.getVertexWordCount();
+        route.buffers.add(indices, indexCount, vertices, vertexWordCount);
+        if (route.sprite != null) {
+            route.buffers.moveTextureCoordinates(firstWord, route.sprite.getMinU(), route.sprite.getMinV(),
+                    route.sprite.getMaxU(), route.sprite.getMaxV());
+        }
+    }
+
+    /**
+     * Copies the triangles that aren't entirely above or below the clip range into {@link #indexScratch}
      *
-     * @param texture      the texture by which the index buffers and vertex buffers are grouped
-     * @param indexBuffer  index buffer data
-     * @param vertexbuffer vertex buffer data
+     * @return How many indices were kept
+     */
+    private static int clipTriangles(int[] indices, int indexCount, int[] vertices) {
+        if (indexScratch.length < indexCount) {
+            indexScratch = new int[Math.max(indexCount, indexScratch.length * 2)];
+        }
+
+        int kept = 0;
+        for (int i = 0; i + 2 < indexCount; i += 3) {
+            float y0 = Float.intBitsToFloat(vertices[indices[i] * Buffers.WORDS_PER_VERTEX + 1]);
+            float y1 = Float.intBitsToFloat(vertices[indices[i + 1] * Buffers.WORDS_PER_VERTEX + 1]);
+            float y2 = Float.intBitsToFloat(vertices[indices[i + 2] * Buffers.WORDS_PER_VERTEX + 1]);
+
+            if ((y0 < clipTop && y1 < clipTop && y2 < clipTop) || (y0 > clipBottom && y1 > clipBottom && y2 > clipBottom)) {
+                continue;
+            }
+
+            indexScratch[kept++] = indices[i];
+            indexScratch[kept++] = indices[i + 1];
+            indexScratch[kept++] = indices[i + 2];
+        }
+
+        return kept;
+    }
+
+    /**
+     * Drops triangles drawn after this that are entirely above top or below bottom, in screen space. Triangles that
+     * are only partly outside are kept whole, so whatever is drawn over the edges still has to cover them
      */
+    public static void setClip(float top, float bottom) {
+        clipping = true;
+        clipTop = top;
+        clipBottom = bottom;
+    }
+
+    public static void clearClip() {
+        clipping = false;
+    }
+
+    public static void draw(ResourceLocation texture, int[] indices, int[] vertices) {
+        draw(texture, indices, indices.length, vertices, vertices.length);
+    }
+
+    /**
+     * Boxed version of {@link #draw(ResourceLocation, int[], int[])}, taking vertices the old way, as nine floats:
+     * x, y, z, u, v, r, g, b, a
+     *
+     * @deprecated Boxes every value. Use {@link #draw(ResourceLocation, int[], int[])}
+     */
+    @Deprecated
     public static void draw(ResourceLocation texture, Integer[] indexBuffer, Float[] vertexbuffer) {
-        if(buffers.containsKey(texture)) {
-            buffers.get(texture).add(indexBuffer, vertexbuffer);
-        } else {
-            buffers.put(texture, new Buffers().add(indexBuffer, vertexbuffer));
+        int[] indices = new int[indexBuffer.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indexBuffer[i] != null ? indexBuffer[i] : 0;
+        }
+
+        int numVertices = vertexbuffer.length / 9;
+        int[] vertices = new int[numVertices * Buffers.WORDS_PER_VERTEX];
+        float[] old = new float[9];
+        for (int v = 0; v < numVertices; v++) {
+            for (int i = 0; i < 9; i++) {
+                old[i] = vertexbuffer[v * 9 + i] != null ? vertexbuffer[v * 9 + i] : 0;
+            }
+
+            int base = v * Buffers.WORDS_PER_VERTEX;
+            vertices[base] = Float.floatToRawIntBits(old[0]);
+            vertices[base + 1] = Float.floatToRawIntBits(old[1]);
+            vertices[base + 2] = Float.floatToRawIntBits(old[2]);
+            vertices[base + 3] = Float.floatToRawIntBits(old[3]);
+            vertices[base + 4] = Float.floatToRawIntBits(old[4]);
+            vertices[base + 5] = packColor((int) (old[5] * 255), (int) (old[6] * 255), (int) (old[7] * 255), (int) (old[8] * 255));
         }
+
+        draw(texture, indices, vertices);
     }
 
     public static void incrementZ(){
@@ -74,47 +290,110 @@ public class NovaDraw {
     }
 
     /**
-     * Add data to the indexBuffer and vertexBuffer which is associated with the specified texture.
+     * Add data to the index and vertex buffers which are associated with the specified texture. The vertices are
+     * transformed by the current model matrix and put at the current Z
      *
-     * @param texture     the texture by which the index buffers and vertex buffers are grouped
-     * @param indexBuffer index buffer data
-     * @param vertices    the vertices as Vertex objects
+     * @param texture  the texture by which the index buffers and vertex buffers are grouped
+     * @param indices  index data
+     * @param vertices the vertices as Vertex objects
      */
+    public static void draw(ResourceLocation texture, int[] indices, Vertex[] vertices) {
+        int[] vertexbuffer = scratchVertices(vertices.length);
+        for (int v = 0; v < vertices.length; v++) {
+            Vertex vertex = vertices[v];
+            putVertex(vertexbuffer, v, vertex.x, vertex.y, vertex.u, vertex.v, vertex.color);
+        }
+
+        draw(texture, indices, indices.length, vertexbuffer, vertices.length * Buffers.WORDS_PER_VERTEX);
+    }
+
+    /**
+     * Boxed version of {@link #draw(ResourceLocation, int[], Vertex[])}
+     *
+     * @deprecated Boxes every index. Use {@link #draw(ResourceLocation, int[], Vertex[])}
+     */
+    @Deprecated
     public static void draw(ResourceLocation texture, Integer[] indexBuffer, Vertex[] vertices) {
+        int[] indices = new int[indexBuffer.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indexBuffer[i] != null ? indexBuffer[i] : 0;
+        }
 
-        Float[] vertexbuffer = new Float[vertices.length * 9];
-        for (int v = 0; v < vertices.length; v++) {
+        draw(texture, indices, vertices);
+    }
 
-            Vec4 transformedVertex = ModelMatrix.mul(new Vec4(vertices[v].x,vertices[v].y,currentZ,1));
+    /**
+     * @return An array that can hold the given number of vertices. Only valid until the next call
+     */
+    private static int[] scratchVertices(int numVertices) {
+        int size = numVertices * Buffers.WORDS_PER_VERTEX;
+        if (vertexScratch.length < size) {
+            vertexScratch = new int[Math.max(size, vertexScratch.length * 2)];
+        }
+        return vertexScratch;
+    }
 
-            vertexbuffer[v * 9] = transformedVertex.x;
-            vertexbuffer[v * 9 + 1] = transformedVertex.y;
-            vertexbuffer[v * 9 + 2] = transformedVertex.z;
-            vertexbuffer[v * 9 + 3] = vertices[v].u;
-            vertexbuffer[v * 9 + 4] = vertices[v].v;
-            vertexbuffer[v * 9 + 5] = vertices[v].r;
-            vertexbuffer[v * 9 + 6] = vertices[v].g;
-            vertexbuffer[v * 9 + 7] = vertices[v].b;
-            vertexbuffer[v * 9 + 8] = vertices[v].a;
+    /**
+     * Draws vertices that are relative to some origin, moving them to the given position and then through the model
+     * matrix and to the current Z. Any Z in the vertices is ignored
+     *
+     * @param vertices Vertex data, {@link Buffers#WORDS_PER_VERTEX} words per vertex
+     */
+    public static void drawTranslated(ResourceLocation texture, int[] indices, int[] vertices, float x, float y) {
+        int numVertices = vertices.length / Buffers.WORDS_PER_VERTEX;
+        int[] vertexbuffer = scratchVertices(numVertices);
+        System.arraycopy(vertices, 0, vertexbuffer, 0, numVertices * Buffers.WORDS_PER_VERTEX);
+
+        for (int base = 0; base < numVertices * Buffers.WORDS_PER_VERTEX; base += Buffers.WORDS_PER_VERTEX) {
+            float vertexX = Float.intBitsToFloat(vertexbuffer[base]) + x;
+            float vertexY = Float.intBitsToFloat(vertexbuffer[base + 1]) + y;
+            modelMatrix.transform(vertexbuffer, base, vertexX, vertexY, currentZ);
         }
 
-        draw(texture,indexBuffer,vertexbuffer);
+        draw(texture, indices, indices.length, vertexbuffer, numVertices * Buffers.WORDS_PER_VERTEX);
+    }
+
+    /**
+     * Writes one vertex into the given array, transformed by the model matrix and at the current Z
+     *
+     * @param color The packed color, see {@link #packColor(int, int, int, int)}
+     */
+    private static void putVertex(int[] vertexbuffer, int v, float x, float y, float u, float texV, int color) {
+        int base = v * Buffers.WORDS_PER_VERTEX;
+        modelMatrix.transform(vertexbuffer, base, x, y, currentZ);
+        vertexbuffer[base + 3] = Float.floatToRawIntBits(u);
+        vertexbuffer[base + 4] = Float.floatToRawIntBits(texV);
+        vertexbuffer[base + 5] = color;
     }
 
     public static void translate( float x,float y,float z) {
-        ModelMatrix = ModelMatrix.translate(x,y,z);
+        modelMatrix.translate(x,y,z);
     }
 
     public static void rotate(float deg, boolean x,boolean y,boolean z){
-        ModelMatrix = ModelMatrix.rotate((float) Math.toRadians(deg),x ? 1 : 0,y ? 1 : 0,z ? 1 : 0);
+        modelMatrix.rotate(deg,x ? 1 : 0,y ? 1 : 0,z ? 1 : 0);
     }
 
     public static void scale( float x,float y,float z){
-        ModelMatrix = ModelMatrix.scale(x,y,z);
+        modelMatrix.scale(x,y,z);
+    }
+
+    /**
+     * Saves the model matrix, so that it can be put back with {@link #popMatrix()}
+     */
+    public static void pushMatrix() {
+        modelMatrix.push();
     }
 
+    public static void popMatrix() {
+        modelMatrix.pop();
+    }
+
+    /**
+     * Throws away every pushed matrix and makes the model matrix the identity
+     */
     public static void resetMatrix(){
-        ModelMatrix = new Mat4();
+        modelMatrix.reset();
     }
 
     /**
@@ -127,36 +406,28 @@ public class NovaDraw {
      *
      * @param texture   the texture
      */
-    public static void drawRectangle(ResourceLocation texture, Rectangle2D.Float rect, Rectangle2D.Float textureCoords, Color vertexColor) {
-        Integer[] indexBuffer = new Integer[]{0, 1, 2, 0, 2, 3};
-        Vertex[] vertices = new Vertex[]{
-                new Vertex(
-                        rect.x, rect.y,
-                        textureCoords.x, textureCoords.y,
-                        vertexColor
-                ),
-                new Vertex(
-                        rect.x, rect.y + rect.height,
-                        textureCoords.x, textureCoords.y + textureCoords.height,
-                        vertexColor
-                ),
-                new Vertex(
-                        rect.x + rect.width, rect.y + rect.height,
-                        textureCoords.x + textureCoords.width, textureCoords.y + textureCoords.height,
-                        vertexColor
-                ),
-                new Vertex(
-                        rect.x + rect.width, rect.y,
-                        textureCoords.x + textureCoords.width, textureCoords.y,
-						vertexColor
-                )
-        };
-        draw(texture, indexBuffer, vertices);
+    public static void drawRectangle(ResourceLocation texture, Rectangle2D.Float rect, Rectangle2D.Float textureCoords, int argb) {
+        int color = packColor(argb);
+
+        int[] vertices = scratchVertices(4);
+        putVertex(vertices, 0, rect.x, rect.y,
+                textureCoords.x, textureCoords.y, color);
+        putVertex(vertices, 1, rect.x, rect.y + rect.height,
+                textureCoords.x, textureCoords.y + textureCoords.height, color);
+        putVertex(vertices, 2, rect.x + rect.width, rect.y + rect.height,
+                textureCoords.x + textureCoords.width, textureCoords.y + textureCoords.height, color);
+        putVertex(vertices, 3, rect.x + rect.width, rect.y,
+                textureCoords.x + textureCoords.width, textureCoords.y, color);
+
+        draw(texture, RECTANGLE_INDICES, RECTANGLE_INDICES.length, vertices, 4 * Buffers.WORDS_PER_VERTEX);
+    }
 
+    public static void drawRectangle(ResourceLocation texture, Rectangle2D.Float rect, Rectangle2D.Float textureCoords, Color vertexColor) {
+        drawRectangle(texture, rect, textureCoords, vertexColor == null ? 0xFFFFFFFF : vertexColor.getRGB());
     }
 
     public static void drawRectangle(ResourceLocation texture, Rectangle2D.Float rect, Rectangle2D.Float textureCoords) {
-        drawRectangle(texture, rect, textureCoords,Color.white);
+        drawRectangle(texture, rect, textureCoords, 0xFFFFFFFF);
     }
 
     /**
@@ -183,6 +454,9 @@ public class NovaDraw {
     /**
      * This build the index and vertex buffers of the specified GUI screen, grouped by the original minecraft textures,
      * if any state changes occured to any GUI element (hovered, visibility, completely different screen).
+     * <p>
+     * Only the textures whose geometry changed since last frame get sent to the native code, so a screen that isn't
+     * changing costs drawing it into the buffers and hashing them.
      *
      * @param screen the gui screen
      * @param filterMap A map from filter name to filter so that we can determine what things should be in what material
@@ -192,28 +466,141 @@ public class NovaDraw {
         computeCorrectMousePosition();
 
         clearBuffers();
+        currentFilters = filterMap != null ? filterMap : Collections.emptyMap();
         screen.drawScreen(mouseX, mouseY, renderPartialTicks);
 
-        for (Map.Entry<ResourceLocation, Buffers> entry : buffers.entrySet()) {
-            Buffers b = entry.getValue();
-            ResourceLocation texture = entry.getKey();
-            long timeWithAlloc = System.nanoTime();
-            NovaNative.mc_gui_buffer guiGeometry = b.toNativeCommand(texture);
-            long timePrev = System.nanoTime();
-
-            for(String filterName : filterMap.keySet()) {
-                if(filterMap.get(filterName).matches(guiGeometry)) {
-                    LOG.trace("Adding geometry for filter {}", filterName);
-                    NovaRenderer.getInstance().getNative().add_gui_geometry(filterName, guiGeometry);
-                }
+        uploadChangedGeometry();
+    }
+
+    /**
+     * Brings the native code's GUI geometry up to date with the buffers, sending only the batches that changed
+     */
+    private static void uploadChangedGeometry() {
+        NativeCommands commands = NovaRenderer.getInstance().getCommands();
+        geometryChanged = needsFullUpload;
+        if (needsFullUpload) {
+            commands.clearGuiBuffers();
+            uploadedGeometry.clear();
+            needsFullUpload = false;
+        }
+
+        // Batches that aren't drawn anymore
+        Iterator<String> uploaded = uploadedGeometry.keySet().iterator();
+        while (uploaded.hasNext()) {
+            String batchName = uploaded.next();
+            Buffers b = buffers.get(batchName);
+            if (b == null || b.isEmpty()) {
+                commands.removeGuiGeometry(batchName);
+                uploaded.remove();
+                geometryChanged = true;
+            }
+        }
+
+        for (Buffers b : buffers.values()) {
+            if (b.isEmpty()) {
+                continue;
+            }
+
+            String batchName = b.getTextureName();
+            long hash = b.contentHash();
+            Long previousHash = uploadedGeometry.get(batchName);
+            if (previousHash != null && previousHash == hash) {
+                continue;
+            }
+
+            if (previousHash != null) {
+                // Removing only affects geometry that's already there, so the new geometry can go in straight after
+                commands.removeGuiGeometry(batchName);
+            }
+            uploadedGeometry.put(batchName, hash);
+            geometryChanged = true;
+
+            IntBuffer indices = b.getIndexBuffer();
+            IntBuffer vertices = b.getVertexBuffer();
+
+            for (String filterName : b.getFilterNames()) {
+                LOG.trace("Adding geometry for filter {}", filterName);
+                commands.addGuiGeometry(filterName, batchName, b.getAtlasName(), indices, vertices);
+            }
+        }
+    }
+
+    /**
+     * @return Where the GUI geometry for the given texture goes. Runs the filters the first time a texture is seen and
+     * remembers the answer after that
+     */
+    private static TextureRoute getRoute(ResourceLocation texture) {
+        TextureRoute route = routes.get(texture);
+        if (route == null) {
+            route = makeRoute(texture);
+            routes.put(texture, route);
+        }
+
+        return route;
+    }
+
+    private static TextureRoute makeRoute(ResourceLocation texture) {
+        NovaNative.mc_gui_buffer guiGeometry = describe(texture);
+
+        List<String> matchingFilters = new ArrayList<>();
+        for (Map.Entry<String, IGeometryFilter> filter : currentFilters.entrySet()) {
+            if (filter.getValue().matches(guiGeometry)) {
+                matchingFilters.add(filter.getKey());
             }
+        }
+
+        if (matchingFilters.isEmpty()) {
+            // Nothing would draw it, so don't bother keeping it
+            return new TextureRoute(null, null);
+        }
+
+        String[] filterNames = matchingFilters.toArray(new String[0]);
 
-            long end = System.nanoTime();
-            LOG.trace("time used to copy buffers to c++ : " + (end - timePrev) + "time used to alloc buffers and fill: "+((end - timeWithAlloc) - (end - timePrev)));
-            Memory.purge();
+        // Sprites in the GUI and font atlases get their texture coordinates moved into the atlas here, so everything
+        // in an atlas that goes to the same filters can be one batch. Any other texture is a batch of its own, and
+        // the native code does the same for it as it always has
+        boolean inAtlas = !guiGeometry.atlas_name.equals(texture.toString());
+        TextureAtlasSprite sprite = inAtlas ? NovaRenderer.getInstance().getGuiSprite(texture) : null;
+        String batchName = sprite != null ? guiGeometry.atlas_name + ":" + String.join("+", filterNames) : guiGeometry.texture_name;
+
+        Buffers b = buffers.get(batchName);
+        if (b == null) {
+            b = new Buffers(batchName, guiGeometry.atlas_name, filterNames);
+            buffers.put(batchName, b);
         }
 
+        return new TextureRoute(b, sprite);
+    }
 
+    /**
+     * Generate a native struct that describes the GUI geometry for a texture, without any of the actual geometry
+     * data. This is enough for the geometry filters to decide which filters the geometry belongs in
+     */
+    private static NovaNative.mc_gui_buffer describe(ResourceLocation texture) {
+        NovaNative.mc_gui_buffer description = new NovaNative.mc_gui_buffer();
+        description.texture_name = texture.getResourcePath();
+        description.atlas_name = NovaRenderer.atlasTextureOfSprite(texture);
+        return description;
+    }
+
+    /**
+     * Which batch a texture's GUI geometry goes in, and where in that batch's texture the texture is
+     */
+    private static final class TextureRoute {
+        /**
+         * Null if no filter wants the geometry
+         */
+        final Buffers buffers;
+
+        /**
+         * Null if the texture coordinates don't need moving
+         */
+        final TextureAtlasSprite sprite;
+
+        TextureRoute(Buffers buffers, TextureAtlasSprite sprite) {
+            this.buffers = buffers;
+            this.sprite = sprite;
+        }
     }
 
     public static class Vertex {
@@ -225,84 +612,167 @@ public class NovaDraw {
         public float u;
         public float v;
 
-        // Vertex color
-        public float r;
-        public float g;
-        public float b;
-        public float a;
-
-        public Vertex(float x, float y, float u, float v, Color color) {
-            if(color == null) {
-                color = new Color(255, 255, 255);
-            }
+        // Vertex color, packed with packColor
+        public int color;
 
+        /**
+         * @param argb The vertex color as 0xAARRGGBB
+         */
+        public Vertex(float x, float y, float u, float v, int argb) {
             this.x = x;
             this.y = y;
             this.u = u;
             this.v = v;
-            this.r = (float)color.getRed() / 255.f;
-            this.g = (float)color.getGreen() / 255.f;
-            this.b = (float)color.getBlue() / 255.f;
-            this.a = (float)color.getAlpha() / 255.f;
+            this.color = packColor(argb);
+        }
+
+        public Vertex(float x, float y, float u, float v, Color color) {
+            this(x, y, u, v, color == null ? 0xFFFFFFFF : color.getRGB());
         }
     }
 
     /**
-     * This class aggregates the index and vertex buffers of all GUI elements which share the same texture.
+     * This class aggregates the index and vertex buffers of all GUI elements in one batch: everything that shares a
+     * texture, or a texture atlas and set of filters.
      * <p>
-     * It is only used internally in NovaDraw.
+     * It is only used internally in NovaDraw. The data lives in direct buffers that are kept from frame to frame, so
+     * drawing doesn't allocate anything once the buffers are big enough, and sending the data to the native code is a
+     * memory copy.
+     * <p>
+     * Each vertex is six 32-bit words: the position as three floats, the texture coordinate as two floats, and the
+     * color as one word packed by {@link NovaDraw#packColor(int, int, int, int)}. The floats are stored as their raw
+     * bits, so everything fits in one int buffer.
      */
     public static class Buffers {
-        public List<Integer> indexBuffer = new ArrayList<>();
-        public List<Float> vertexBuffer = new ArrayList<>();
-
-        public Buffers add(Integer[] indexBuffer, Float[] vertexBuffer) {
-            // add index buffer
-            int indexbuffer_size = this.vertexBuffer.size() / 9;    // 9 is the number of floats per vertex
-            for (int index : indexBuffer) {
-                this.indexBuffer.add(index + indexbuffer_size);
+        public static final int WORDS_PER_VERTEX = 6;
+
+        private final String textureName;
+        private final String atlasName;
+        private final String[] filterNames;
+
+        private IntBuffer indexBuffer = allocate(6 * 64);
+        private IntBuffer vertexBuffer = allocate(WORDS_PER_VERTEX * 4 * 64);
+
+        /**
+         * @param textureName What the native code calls this batch's geometry. Only textures outside an atlas get
+         *                    their texture coordinates moved by the native code, based on this name
+         * @param atlasName   The texture that the geometry is drawn with
+         * @param filterNames The filters that the geometry goes to
+         */
+        public Buffers(String textureName, String atlasName, String[] filterNames) {
+            this.textureName = textureName;
+            this.atlasName = atlasName;
+            this.filterNames = filterNames;
+        }
+
+        public String getTextureName() {
+            return textureName;
+        }
+
+        public String getAtlasName() {
+            return atlasName;
+        }
+
+        public String[] getFilterNames() {
+            return filterNames;
+        }
+
+        /**
+         * Adds some geometry
+         *
+         * @param indices Indices relative to the first of the given vertices
+         * @param indexCount How many indices to add
+         * @param vertices Vertex data, {@link #WORDS_PER_VERTEX} words per vertex
+         * @param vertexWordCount How many words of vertex data to add
+         */
+        public Buffers add(int[] indices, int indexCount, int[] vertices, int vertexWordCount) {
+            if (indexBuffer.remaining() < indexCount) {
+                IntBuffer bigger = allocate(Math.max(indexBuffer.capacity() * 2, indexBuffer.position() + indexCount));
+                indexBuffer.flip();
+                bigger.put(indexBuffer);
+                indexBuffer = bigger;
+            }
+            if (vertexBuffer.remaining() < vertexWordCount) {
+                IntBuffer bigger = allocate(Math.max(vertexBuffer.capacity() * 2, vertexBuffer.position() + vertexWordCount));
+                vertexBuffer.flip();
+                bigger.put(vertexBuffer);
+                vertexBuffer = bigger;
             }
 
-            // add vertex buffer
-            Collections.addAll(this.vertexBuffer, vertexBuffer);
+            int firstVertex = vertexBuffer.position() / WORDS_PER_VERTEX;
+            for (int i = 0; i < indexCount; i++) {
+                indexBuffer.put(indices[i] + firstVertex);
+            }
+            vertexBuffer.put(vertices, 0, vertexWordCount);
 
             return this;
         }
 
         /**
-         * Generate a native struct which can be sent to c++.
-         * <p>
-         * Native memory is allocated here so that the index and vertex buffers can be dynamically sized
-         * (this is the only way to achieve that, otherwise we would have to specify a fixed array size
-         * with a maximum number of vertices.)
+         * Moves texture coordinates from the 0 - 1 range of one texture into a rectangle of the atlas it's in
          *
-         * @param texture the texture
-         * @return the native struct
+         * @param firstWord Where the vertices to move start. Everything from there to the end is moved
          */
-        public NovaNative.mc_gui_buffer toNativeCommand(ResourceLocation texture) {
-            // create a new struct
-            NovaNative.mc_gui_buffer command = new NovaNative.mc_gui_buffer();
-            command.texture_name = texture.getResourcePath();
-
-            // assign the index buffer
-            command.index_buffer_size = this.indexBuffer.size();
-            command.index_buffer = new Memory(command.index_buffer_size * Native.getNativeSize(Integer.TYPE));
-            for (int i = 0; i < command.index_buffer_size; i++) {
-                Integer index = this.indexBuffer.get(i);
-                command.index_buffer.setInt(i * Native.getNativeSize(Integer.TYPE), (int) (index != null ? index : 0));
+        public void moveTextureCoordinates(int firstWord, float minU, float minV, float maxU, float maxV) {
+            float width = maxU - minU;
+            float height = maxV - minV;
+            for (int i = firstWord, count = vertexBuffer.position(); i < count; i += WORDS_PER_VERTEX) {
+                vertexBuffer.put(i + 3, Float.floatToRawIntBits(minU + Float.intBitsToFloat(vertexBuffer.get(i + 3)) * width));
+                vertexBuffer.put(i + 4, Float.floatToRawIntBits(minV + Float.intBitsToFloat(vertexBuffer.get(i + 4)) * height));
             }
+        }
+
+        public boolean isEmpty() {
+            return indexBuffer.position() == 0;
+        }
 
-            // assign the vertex buffer
-            command.vertex_buffer_size = this.vertexBuffer.size();
-            command.vertex_buffer = new Memory(command.vertex_buffer_size * Native.getNativeSize(Float.TYPE));
-            for (int i = 0; i < command.vertex_buffer_size; i++) {
-                Float vertex = this.vertexBuffer.get(i);
-                command.vertex_buffer.setFloat(i * Native.getNativeSize(Float.TYPE), (float) (vertex != null ? vertex : 0));
+        public void clear() {
+            indexBuffer.clear();
+            vertexBuffer.clear();
+        }
+
+        /**
+         * @return A 64-bit FNV-1a hash of the geometry added so far, used to tell whether it's the same as last frame
+         */
+        public long contentHash() {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0, count = indexBuffer.position(); i < count; i++) {
+                hash = (hash ^ indexBuffer.get(i)) * 0x100000001b3L;
             }
+            for (int i = 0, count = vertexBuffer.position(); i < count; i++) {
+                hash = (hash ^ vertexBuffer.get(i)) * 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        public int getIndexCount() {
+            return indexBuffer.position();
+        }
 
-            command.atlas_name =  NovaRenderer.atlasTextureOfSprite(texture);
+        public int getVertexWordCount() {
+            return vertexBuffer.position();
+        }
+
+        /**
+         * @return A view of the indices added so far. Only valid until more geometry is added
+         */
+        public IntBuffer getIndexBuffer() {
+            IntBuffer view = indexBuffer.duplicate();
+            view.flip();
+            return view;
+        }
+
+        /**
+         * @return A view of the vertex data added so far. Only valid until more geometry is added
+         */
+        public IntBuffer getVertexBuffer() {
+            IntBuffer view = vertexBuffer.duplicate();
+            view.flip();
+            return view;
+        }
 
-            return command;
+        private static IntBuffer allocate(int count) {
+            return ByteBuffer.allocateDirect(count * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
         }
     }
 
@@ -8,8 +8,6 @@ import java.util.Map;
 
 import com.continuum.nova.NovaRenderer;
 import com.continuum.nova.system.NovaNative;
-import com.continuum.nova.system.NovaNative.key_press_event;
-import com.continuum.nova.system.NovaNative.key_char_event;
 public class Keyboard {
     public static final int EVENT_SIZE = 18;
     public static final int CHAR_NONE = 0;
@@ -158,7 +156,10 @@ public class Keyboard {
     private static boolean repeat_enabled;
     private static final HashSet<Integer> keyDownBuffer = new HashSet<>();
     private static Keyboard.KeyEvent current_event;
+    private static final int[] keyPressEvent = new int[4];
+    private static final long[] keyCharEvent = new long[1];
     private static boolean initialized;
+    private static boolean hadEvents;
 
     private Keyboard() {
     }
@@ -206,28 +207,41 @@ public class Keyboard {
 
 
     public static boolean next() {
-        key_press_event p = NovaRenderer.getInstance().getNative().get_next_key_press_event();
-        key_char_event c = NovaRenderer.getInstance().getNative().get_next_key_char_event();
+        NovaNative novaNative = NovaRenderer.getInstance().getNative();
+        boolean hasPressEvent = novaNative.poll_key_press_event(keyPressEvent) == 1;
+        boolean hasCharEvent = novaNative.poll_key_char_event(keyCharEvent) == 1;
 
-        if (p.filled==0 && c.filled==0){
+        if (!hasPressEvent && !hasCharEvent){
             return false;
         }
-        if (p.filled==1 && p.key !=0 &&p.action!=2){
-            if (p.action ==1){
-                keyDownBuffer.add(p.key);
+        hadEvents = true;
+        int key = hasPressEvent ? keyPressEvent[0] : 0;
+        int action = hasPressEvent ? keyPressEvent[2] : 0;
+        if (hasPressEvent && key !=0 && action!=2){
+            if (action ==1){
+                keyDownBuffer.add(key);
 
             } else{
-                keyDownBuffer.remove(p.key);
+                keyDownBuffer.remove(key);
             }
         }
-        current_event.key = p.key;
-        current_event.character = (char) c.unicode_char;
-        current_event.state = p.action!=0;
-        current_event.repeat = p.action == 2;
+        current_event.key = key;
+        current_event.character = hasCharEvent ? (char) keyCharEvent[0] : 0;
+        current_event.state = action!=0;
+        current_event.repeat = action == 2;
         return true;
     }
 
 
+    /**
+     * @return Whether {@link #next()} has returned any events since the last time this was called
+     */
+    public static boolean hadEventsSinceLastCheck() {
+        boolean result = hadEvents;
+        hadEvents = false;
+        return result;
+    }
+
     public static void enableRepeatEvents(boolean enable) {
 
         repeat_enabled = enable;
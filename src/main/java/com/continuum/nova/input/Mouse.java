@@ -6,8 +6,6 @@ import java.util.Map;
 
 import com.continuum.nova.NovaRenderer;
 import com.continuum.nova.system.NovaNative;
-import com.continuum.nova.system.NovaNative.mouse_button_event;
-import com.continuum.nova.system.NovaNative.mouse_position_event;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -30,7 +28,11 @@ public class Mouse {
     private static String[] buttonName;
     private static final Map<String, Integer> buttonMap = new HashMap<>(16);
     private static final HashSet<Integer> buttonDownBuffer = new HashSet<>();
+    private static final int[] buttonEvent = new int[3];
+    private static final int[] positionEvent = new int[2];
+    private static final double[] scrollEvent = new double[2];
     private static boolean initialized;
+    private static boolean hadEvents;
     private static int eventButton;
     private static boolean eventState;
     private static int event_dwheel;
@@ -104,37 +106,41 @@ public class Mouse {
     public static boolean next() {
         lastX = x;
         lastY = y;
-        mouse_button_event e = NovaRenderer.getInstance().getNative().get_next_mouse_button_event();
-        mouse_position_event p = NovaRenderer.getInstance().getNative().get_next_mouse_position_event();
-        NovaNative.mouse_scroll_event s = NovaRenderer.getInstance().getNative().get_next_mouse_scroll_event();
-        if (e.filled == 0 && p.filled == 0 && s.filled == 0) {
+        NovaNative novaNative = NovaRenderer.getInstance().getNative();
+        boolean hasButtonEvent = novaNative.poll_mouse_button_event(buttonEvent) == 1;
+        boolean hasPositionEvent = novaNative.poll_mouse_position_event(positionEvent) == 1;
+        boolean hasScrollEvent = novaNative.poll_mouse_scroll_event(scrollEvent) == 1;
+        if (!hasButtonEvent && !hasPositionEvent && !hasScrollEvent) {
             return false;
         }
-        if (e.filled == 1) {
-            if (e.action == 1) {
-                buttonDownBuffer.add(e.button);
+        hadEvents = true;
+        if (hasButtonEvent) {
+            int button = buttonEvent[0];
+            int action = buttonEvent[1];
+            if (action == 1) {
+                buttonDownBuffer.add(button);
 
             } else {
-                buttonDownBuffer.remove(e.button);
+                buttonDownBuffer.remove(button);
             }
-            eventButton = e.button;
-            eventState = e.action == 1;
-            LOG.trace("button: " + e.button + ";action: " + e.action + ";mods: " + e.mods + "; filled: " + e.filled);
+            eventButton = button;
+            eventState = action == 1;
+            LOG.trace("button: " + button + ";action: " + action + ";mods: " + buttonEvent[2]);
 
         } else {
             eventButton = -1;
             eventState = false;
         }
-        if (p.filled == 1) {
-            dx += p.xpos - x;
-            dy += p.ypos - y;
-            x = p.xpos;
-            y = p.ypos;
+        if (hasPositionEvent) {
+            dx += positionEvent[0] - x;
+            dy += positionEvent[1] - y;
+            x = positionEvent[0];
+            y = positionEvent[1];
             LOG.trace("dx: {} dy: {}", dx, dy);
         }
-        if (s.filled == 1) {
-            event_dwheel = (int) s.yoffset;
-            LOG.trace("button: " + e.button + ";action: " + e.action + ";mods: " + e.mods + "; filled: " + e.filled);
+        if (hasScrollEvent) {
+            event_dwheel = (int) scrollEvent[1];
+            LOG.trace("scroll: " + scrollEvent[1]);
         } else {
             event_dwheel = 0;
         }
@@ -142,6 +148,15 @@ public class Mouse {
         return true;
     }
 
+    /**
+     * @return Whether {@link #next()} has returned any events since the last time this was called
+     */
+    public static boolean hadEventsSinceLastCheck() {
+        boolean result = hadEvents;
+        hadEvents = false;
+        return result;
+    }
+
     public static int getEventButton() {
         return eventButton;
     }
@@ -1,6 +1,8 @@
 package com.continuum.nova.mixin.gui;
 
 import com.continuum.nova.NovaRenderer;
+import com.continuum.nova.gui.GlyphRun;
+import com.continuum.nova.gui.GlyphRunCache;
 import com.continuum.nova.gui.NovaDraw;
 import net.minecraft.client.gui.FontRenderer;
 import net.minecraft.client.renderer.BufferBuilder;
@@ -20,7 +22,6 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.Redirect;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.Locale;
@@ -65,7 +66,21 @@ public abstract class MixinFontRenderer {
 
     @Shadow protected abstract String bidiReorder(String text);
 
-    private Color color;
+    /**
+     * The color glyphs are drawn with, packed with {@link NovaDraw#packColor(int, int, int, int)}
+     */
+    private int color;
+
+    private static final int GLYPH_RUN_CACHE_SIZE = 512;
+
+    private final GlyphRunCache glyphRuns = new GlyphRunCache(GLYPH_RUN_CACHE_SIZE);
+
+    private final GlyphRun.Builder glyphRunBuilder = new GlyphRun.Builder();
+
+    /**
+     * Cleared while laying out a string that won't look the same next time, like obfuscated text
+     */
+    private boolean glyphRunCacheable;
 
     @Redirect(method = "<init>", at = @At(value = "INVOKE", target = "Lnet/minecraft/client/gui/FontRenderer;bindTexture(Lnet/minecraft/util/ResourceLocation;)V"))
     private void noBindTexture(FontRenderer _this, ResourceLocation loc) {
@@ -79,6 +94,7 @@ public abstract class MixinFontRenderer {
     @Overwrite
     public void onResourceManagerReload(IResourceManager resourceManager) {
         this.readFontTexture(resourceManager);
+        this.glyphRuns.clear();
     }
 
     private void readFontTexture(IResourceManager resourceManager) {
@@ -140,16 +156,11 @@ public abstract class MixinFontRenderer {
         int l = this.charWidth[ch];
         float f = (float)l - 0.01F;
 
-        NovaDraw.Vertex[] vertices = new NovaDraw.Vertex[]{
-                new NovaDraw.Vertex(this.posX + (float)k, this.posY,  (float) i / 128.0F, (float) j / 128.0F, color),
-                new NovaDraw.Vertex(this.posX - (float)k, this.posY + 7.99F,  (float)i / 128.0F, ((float)j + 7.99F) / 128.0F, color),
-                new NovaDraw.Vertex(this.posX + f - 1.0F + (float)k, this.posY,  ((float)i + f - 1.0F) / 128.0F, (float)j / 128.0F, color),
-                new NovaDraw.Vertex(this.posX + f - 1.0F - (float)k, this.posY + 7.99F,  ((float)i + f - 1.0F) / 128.0F, ((float)j + 7.99F) / 128.0F, color)
-        };
-
-        Integer[] indices = new Integer[] {0, 1, 2, 2, 1, 3};
-
-        NovaDraw.draw(locationFontTexture, indices, vertices);
+        glyphRunBuilder.setColor(color);
+        glyphRunBuilder.addGlyph(locationFontTexture,
+                this.posX + (float)k, this.posX - (float)k, this.posX + f - 1.0F + (float)k, this.posX + f - 1.0F - (float)k,
+                this.posY, this.posY + 7.99F,
+                (float)i / 128.0F, (float)j / 128.0F, ((float)i + f - 1.0F) / 128.0F, ((float)j + 7.99F) / 128.0F);
 
         return (float)l;
     }
@@ -179,16 +190,11 @@ public abstract class MixinFontRenderer {
 
             ResourceLocation glyphTexture = getUnicodePageLocation(page);
 
-            NovaDraw.Vertex[] vertices = new NovaDraw.Vertex[]{
-                    new NovaDraw.Vertex(this.posX + f5, this.posY,  f2 / 256.0F, f3 / 256.0F, color),
-                    new NovaDraw.Vertex(this.posX - f5, this.posY + 7.99F,  f2 / 256.0F, (f3 + 15.98F) / 256.0F, color),
-                    new NovaDraw.Vertex(this.posX + f4 / 2.0F + f5, this.posY,  (f2 + f4) / 256.0F, f3 / 256.0F, color),
-                    new NovaDraw.Vertex(this.posX + f4 / 2.0F - f5, this.posY + 7.99F,  (f2 + f4) / 256.0F, (f3 + 15.98F) / 256.0F, color)
-            };
-
-            Integer[] indices = new Integer[] {0, 1, 2, 2, 1, 3};
-
-            NovaDraw.draw(glyphTexture, indices, vertices);
+            glyphRunBuilder.setColor(color);
+            glyphRunBuilder.addGlyph(glyphTexture,
+                    this.posX + f5, this.posX - f5, this.posX + f4 / 2.0F + f5, this.posX + f4 / 2.0F - f5,
+                    this.posY, this.posY + 7.99F,
+                    f2 / 256.0F, f3 / 256.0F, (f2 + f4) / 256.0F, (f3 + 15.98F) / 256.0F);
 
             return (f1 - f) / 2.0F + 1.0F;
         }
@@ -229,13 +235,10 @@ public abstract class MixinFontRenderer {
 
                     int colorCode = this.colorCode[i1];
                     this.textColor = colorCode;
-                    try {
-                        color = new Color(colorCode >> 16, colorCode >> 8 & 255, colorCode & 255, this.alpha * 255);
-                    } catch(IllegalArgumentException e) {
-                        boolean break_here = true;
-                    }
+                    color = NovaDraw.packColor(colorCode >> 16, colorCode >> 8 & 255, colorCode & 255, (int) (this.alpha * 255));
                 } else if(i1 == 16) {
                     this.randomStyle = true;
+                    this.glyphRunCacheable = false;
                 } else if(i1 == 17) {
                     this.boldStyle = true;
                 } else if(i1 == 18) {
@@ -250,7 +253,7 @@ public abstract class MixinFontRenderer {
                     this.strikethroughStyle = false;
                     this.underlineStyle = false;
                     this.italicStyle = false;
-                    color = new Color(red, green, blue, alpha);
+                    color = NovaDraw.packColor((int) (red * 255), (int) (green * 255), (int) (blue * 255), (int) (alpha * 255));
                 }
 
                 ++i;
@@ -307,6 +310,11 @@ public abstract class MixinFontRenderer {
                     ++f;
                 }
 
+                if (this.strikethroughStyle || this.underlineStyle) {
+                    // Not part of the glyph run, so it has to be drawn every time
+                    this.glyphRunCacheable = false;
+                }
+
                 if (this.strikethroughStyle) {
                     Tessellator tessellator = Tessellator.getInstance();
                     BufferBuilder vertexbuffer = tessellator.getBuffer();
@@ -365,10 +373,27 @@ public abstract class MixinFontRenderer {
             this.green = (float)(color >> 8 & 255) / 255.0F;
             this.blue = (float)(color & 255) / 255.0F;
             this.alpha = (float)(color >> 24 & 255) / 255.0F;
-            this.color = new Color(red, green, blue, alpha);
+            this.color = NovaDraw.packColor(color);
             this.posX = x;
             this.posY = y;
-            this.renderStringAtPos(text, dropShadow);
+
+            // Strings are laid out once into a glyph run, and drawn from that run every time after
+            boolean startsUnstyled = !this.randomStyle && !this.boldStyle && !this.strikethroughStyle && !this.underlineStyle && !this.italicStyle;
+            GlyphRun run = startsUnstyled ? this.glyphRuns.get(text, color, dropShadow, this.unicodeFlag) : null;
+            if(run == null) {
+                this.glyphRunBuilder.begin(x, y);
+                this.glyphRunCacheable = startsUnstyled;
+                this.renderStringAtPos(text, dropShadow);
+                run = this.glyphRunBuilder.build(this.posX - x);
+
+                if(this.glyphRunCacheable) {
+                    this.glyphRuns.put(text, color, dropShadow, this.unicodeFlag, run);
+                }
+            } else {
+                this.posX = x + run.getAdvance();
+            }
+
+            run.draw(x, y);
             return (int)this.posX;
         }
     }
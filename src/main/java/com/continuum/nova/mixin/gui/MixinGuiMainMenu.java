@@ -1,8 +1,7 @@
 package com.continuum.nova.mixin.gui;
 
+import com.continuum.nova.gui.MatrixStack;
 import com.continuum.nova.gui.NovaDraw;
-import glm.mat._4.Mat4;
-import glm.vec._4.Vec4;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiMainMenu;
 import net.minecraft.client.gui.GuiScreen;
@@ -19,9 +18,7 @@ import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Redirect;
 
-import java.awt.*;
 import java.awt.geom.Rectangle2D;
-import java.util.Stack;
 
 @Mixin(GuiMainMenu.class)
 public abstract class MixinGuiMainMenu extends GuiScreen {
@@ -52,6 +49,88 @@ public abstract class MixinGuiMainMenu extends GuiScreen {
 
     @Shadow protected abstract void renderSkybox(int mouseX, int mouseY, float partialTicks);
 
+    private static final int PANORAMA_FACES = 6;
+
+    /**
+     * The panorama is drawn this many times, nudged around a little each time, to blur it
+     */
+    private static final int PANORAMA_PASSES = 64;
+
+    /**
+     * The corners of a panorama face before it's turned to its side of the cube, as x, y, u, v
+     */
+    private static final float[] PANORAMA_CORNERS = {
+            0, 0, 0, 0,
+            356, 0, 1, 0,
+            0, 256, 0, 1,
+            256, 256, 1, 1
+    };
+
+    private static final int[] PANORAMA_INDICES = {0, 1, 2, 2, 1, 3};
+
+    /**
+     * The corners of every face turned to its side of the cube, as x, y, z. These never change
+     */
+    private static final float[] PANORAMA_FACE_CORNERS = new float[PANORAMA_FACES * 4 * 3];
+
+    /**
+     * How far each blur pass is nudged, as x, y, z, after the panorama's fixed rotation. These never change either
+     */
+    private static final float[] PANORAMA_PASS_OFFSETS = new float[PANORAMA_PASSES * 3];
+
+    /**
+     * The indices for one face, every blur pass in one go
+     */
+    private static final int[] PANORAMA_FACE_INDICES = new int[PANORAMA_PASSES * PANORAMA_INDICES.length];
+
+    static {
+        MatrixStack matrices = new MatrixStack(0);
+        int[] transformed = new int[3];
+
+        for (int k = 0; k < PANORAMA_FACES; k++) {
+            matrices.reset();
+            rotateToFace(matrices, k);
+            for (int corner = 0; corner < 4; corner++) {
+                matrices.transform(transformed, 0, PANORAMA_CORNERS[corner * 4], PANORAMA_CORNERS[corner * 4 + 1], 1);
+                for (int i = 0; i < 3; i++) {
+                    PANORAMA_FACE_CORNERS[(k * 4 + corner) * 3 + i] = Float.intBitsToFloat(transformed[i]);
+                }
+            }
+        }
+
+        matrices.reset();
+        rotateToPanorama(matrices);
+        for (int j = 0; j < PANORAMA_PASSES; j++) {
+            // The nudge comes between the fixed rotation and the spin, and the spin keeps the origin where it is, so
+            // it's the same as moving everything after the spin by the rotated nudge
+            float f = ((float) (j % 8) / 8.0F - 0.5F) / 64.0F;
+            float f1 = ((float) (j / 8) / 8.0F - 0.5F) / 64.0F;
+            matrices.transform(transformed, 0, f, f1, 0);
+            for (int i = 0; i < 3; i++) {
+                PANORAMA_PASS_OFFSETS[j * 3 + i] = Float.intBitsToFloat(transformed[i]);
+            }
+
+            for (int i = 0; i < PANORAMA_INDICES.length; i++) {
+                PANORAMA_FACE_INDICES[j * PANORAMA_INDICES.length + i] = PANORAMA_INDICES[i] + j * 4;
+            }
+        }
+    }
+
+    private final MatrixStack panoramaMatrices = new MatrixStack(0);
+
+    /**
+     * The spinning corners of every face for this frame, as x, y, z
+     */
+    private final float[] panoramaSpunCorners = new float[PANORAMA_FACES * 4 * 3];
+
+    private final int[] panoramaSpunCornerBits = new int[3];
+
+    /**
+     * The vertices of every face, every blur pass, made the first time the panorama is drawn. Only the positions
+     * change after that
+     */
+    private int[][] panoramaVertices;
+
     @Redirect(method = "<init>",
             at = @At(value = "INVOKE", target = "Lorg/lwjgl/opengl/GLContext;getCapabilities()Lorg/lwjgl/opengl/ContextCapabilities;"))
     private ContextCapabilities redirectContextCaps() {
@@ -73,95 +152,96 @@ public abstract class MixinGuiMainMenu extends GuiScreen {
     private void drawPanorama(int mouseX, int mouseY, float partialTicks) {
         // Unused?! Mat4 projmat = Glm.perspective_(120.0F, 1.0F, 0.05F, 10.0F);
 
-        Stack<Mat4> matrixStack = new Stack<>();
-        matrixStack.push(new Mat4());
-
-        matrixStack.peek().rotate(180.0F, 1.0F, 0.0F, 0.0F);
-        matrixStack.peek().rotate(90.0F, 0.0F, 0.0F, 1.0F);
-
-
-        for (int j = 0; j < 64; ++j) {
-            matrixStack.push(matrixStack.peek());
-
-            float f = ((float) (j % 8) / 8.0F - 0.5F) / 64.0F;
-            float f1 = ((float) (j / 8) / 8.0F - 0.5F) / 64.0F;
-            float f2 = 0.0F;
-            matrixStack.peek().translate(f, f1, 0.0F);
-            matrixStack.peek().rotate(MathHelper.sin(((float) this.panoramaTimer + partialTicks) / 400.0F) * 25.0F + 20.0F, 1.0F, 0.0F, 0.0F);
-            matrixStack.peek().rotate(-((float) this.panoramaTimer + partialTicks) * 0.1F, 0.0F, 1.0F, 0.0F);
-
-            for (int k = 0; k < 6; ++k) {
-                matrixStack.push(matrixStack.peek());
-
-
-                if (k == 1) {
-                    matrixStack.peek().rotate(90.0F, 0.0F, 1.0F, 0.0F);
-
-                }
+        if (panoramaVertices == null) {
+            panoramaVertices = makePanoramaVertices();
+        }
 
-                if (k == 2) {
-                    matrixStack.peek().rotate(180.0F, 0.0F, 1.0F, 0.0F);
+        // Only the spin changes from frame to frame, so that's the only thing that goes through a matrix: once for
+        // each corner of the cube rather than once for each corner of every blur pass
+        MatrixStack matrixStack = panoramaMatrices;
+        matrixStack.reset();
+        rotateToPanorama(matrixStack);
+        matrixStack.rotate(MathHelper.sin(((float) this.panoramaTimer + partialTicks) / 400.0F) * 25.0F + 20.0F, 1.0F, 0.0F, 0.0F);
+        matrixStack.rotate(-((float) this.panoramaTimer + partialTicks) * 0.1F, 0.0F, 1.0F, 0.0F);
+
+        for (int corner = 0; corner < PANORAMA_FACES * 4; corner++) {
+            matrixStack.transform(panoramaSpunCornerBits, 0, PANORAMA_FACE_CORNERS[corner * 3],
+                    PANORAMA_FACE_CORNERS[corner * 3 + 1], PANORAMA_FACE_CORNERS[corner * 3 + 2]);
+            for (int i = 0; i < 3; i++) {
+                panoramaSpunCorners[corner * 3 + i] = Float.intBitsToFloat(panoramaSpunCornerBits[i]);
+            }
+        }
 
+        for (int k = 0; k < PANORAMA_FACES; k++) {
+            int[] vertices = panoramaVertices[k];
+            for (int j = 0; j < PANORAMA_PASSES; j++) {
+                for (int corner = 0; corner < 4; corner++) {
+                    int base = (j * 4 + corner) * NovaDraw.Buffers.WORDS_PER_VERTEX;
+                    int spun = (k * 4 + corner) * 3;
+                    vertices[base] = Float.floatToRawIntBits(panoramaSpunCorners[spun] + PANORAMA_PASS_OFFSETS[j * 3]);
+                    vertices[base + 1] = Float.floatToRawIntBits(panoramaSpunCorners[spun + 1] + PANORAMA_PASS_OFFSETS[j * 3 + 1]);
+                    vertices[base + 2] = Float.floatToRawIntBits(panoramaSpunCorners[spun + 2] + PANORAMA_PASS_OFFSETS[j * 3 + 2]);
                 }
+            }
 
-                if (k == 3) {
-                    matrixStack.peek().rotate(-90.0F, 0.0F, 1.0F, 0.0F);
+            NovaDraw.drawTranslated(TITLE_PANORAMA_PATHS[k], PANORAMA_FACE_INDICES, vertices, 0, 0);
+        }
 
-                }
+        GlStateManager.colorMask(true, true, true, false);
+    }
 
-                if (k == 4) {
-                    matrixStack.peek().rotate(90.0F, 1.0F, 0.0F, 0.0F);
+    /**
+     * Makes the vertices for every face and blur pass, with the texture coordinates and colors filled in. The
+     * positions are filled in each frame
+     */
+    private static int[][] makePanoramaVertices() {
+        int[][] faces = new int[PANORAMA_FACES][PANORAMA_PASSES * 4 * NovaDraw.Buffers.WORDS_PER_VERTEX];
+        for (int[] vertices : faces) {
+            for (int j = 0; j < PANORAMA_PASSES; j++) {
+                int l = 255 / (j + 1);
+                int vertexColor = NovaDraw.packColor(255, 255, 255, l);
 
+                for (int corner = 0; corner < 4; corner++) {
+                    int base = (j * 4 + corner) * NovaDraw.Buffers.WORDS_PER_VERTEX;
+                    vertices[base + 3] = Float.floatToRawIntBits(PANORAMA_CORNERS[corner * 4 + 2]);
+                    vertices[base + 4] = Float.floatToRawIntBits(PANORAMA_CORNERS[corner * 4 + 3]);
+                    vertices[base + 5] = vertexColor;
                 }
+            }
+        }
+        return faces;
+    }
 
-                if (k == 5) {
-                    matrixStack.peek().rotate(-90.0F, 1.0F, 0.0F, 0.0F);
+    /**
+     * The rotation the whole panorama starts with
+     */
+    private static void rotateToPanorama(MatrixStack matrices) {
+        matrices.rotate(180.0F, 1.0F, 0.0F, 0.0F);
+        matrices.rotate(90.0F, 0.0F, 0.0F, 1.0F);
+    }
 
-                }
+    /**
+     * Turns a face of the panorama to its side of the cube
+     */
+    private static void rotateToFace(MatrixStack matrices, int face) {
+        if (face == 1) {
+            matrices.rotate(90.0F, 0.0F, 1.0F, 0.0F);
+        }
 
-                int l = 255 / (j + 1);
-                Color vertexColor = new Color(255, 255, 255, l);
-
-
-                Mat4 modelViewProj = matrixStack.peek();
-
-                Vec4 firstVertice = modelViewProj.mul(new Vec4(0, 0, 1, 1));
-                Vec4 secondVertice = modelViewProj.mul(new Vec4(0 + 356, 0, 1, 1));
-                Vec4 thirdVertice = modelViewProj.mul(new Vec4(0, 0 + 256, 1, 1));
-                Vec4 fourthVertice = modelViewProj.mul(new Vec4(0 + 256, 0 + 256, 1, 1));
-
-                Integer[] indexBuffer = new Integer[]{0, 1, 2, 2, 1, 3};
-                NovaDraw.Vertex[] vertices = new NovaDraw.Vertex[]{
-                        new NovaDraw.Vertex(
-                                firstVertice.x, firstVertice.y,
-                                0, 0,
-                                vertexColor
-                        ),
-                        new NovaDraw.Vertex(
-                                secondVertice.x, secondVertice.y,
-                                1, 0,
-                                vertexColor
-                        ),
-                        new NovaDraw.Vertex(
-                                thirdVertice.x, thirdVertice.y,
-                                0, 1,
-                                vertexColor
-                        ),
-                        new NovaDraw.Vertex(
-                                fourthVertice.x, fourthVertice.y,
-                                1, 1,
-                                vertexColor
-                        )
-                };
-
-                NovaDraw.draw(TITLE_PANORAMA_PATHS[k], indexBuffer, vertices);
-                matrixStack.pop();
+        if (face == 2) {
+            matrices.rotate(180.0F, 0.0F, 1.0F, 0.0F);
+        }
 
-            }
+        if (face == 3) {
+            matrices.rotate(-90.0F, 0.0F, 1.0F, 0.0F);
+        }
 
-            matrixStack.pop();
+        if (face == 4) {
+            matrices.rotate(90.0F, 1.0F, 0.0F, 0.0F);
+        }
 
-            GlStateManager.colorMask(true, true, true, false);
+        if (face == 5) {
+            matrices.rotate(-90.0F, 1.0F, 0.0F, 0.0F);
         }
     }
 
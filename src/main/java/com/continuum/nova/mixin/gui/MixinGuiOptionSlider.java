@@ -12,7 +12,6 @@ import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
 import org.spongepowered.asm.mixin.Shadow;
 
-import java.awt.*;
 import java.awt.geom.Rectangle2D;
 
 @Mixin(GuiOptionSlider.class)
@@ -59,7 +58,7 @@ public class MixinGuiOptionSlider extends GuiButton {
                             NovaConstants.STANDARD_BUTTON_LOCATIONS[1] + offsetY,
                             4* NovaConstants.WIDGETS_TEXTURE_FACTOR,
                             height * NovaConstants.WIDGETS_TEXTURE_FACTOR),
-                    Color.white
+                    0xFFFFFFFF
             );
             NovaDraw.drawRectangle(
                     BUTTON_TEXTURES,
@@ -69,7 +68,7 @@ public class MixinGuiOptionSlider extends GuiButton {
                             NovaConstants.STANDARD_BUTTON_LOCATIONS[1] + offsetY,
                             4 * NovaConstants.WIDGETS_TEXTURE_FACTOR,
                             height * NovaConstants.WIDGETS_TEXTURE_FACTOR),
-                    Color.white
+                    0xFFFFFFFF
             );
         }
     }
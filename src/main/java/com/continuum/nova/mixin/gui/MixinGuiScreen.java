@@ -10,7 +10,6 @@ import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
 import org.spongepowered.asm.mixin.Shadow;
 
-import java.awt.*;
 import java.awt.geom.Rectangle2D;
 import java.util.List;
 
@@ -51,7 +50,7 @@ public class MixinGuiScreen extends Gui {
                 OPTIONS_BACKGROUND,
                 new Rectangle2D.Float(0, 0, width, height),
                 new Rectangle2D.Float(0, 0,width / 32, height /32),
-                new Color(64, 64, 64, 255)
+                0xFF404040
         );
     }
 }
@@ -9,7 +9,6 @@ import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
-import java.awt.*;
 import java.awt.geom.Rectangle2D;
 
 @Mixin(targets = {"net.minecraft.client.gui.GuiScreenOptionsSounds$Button"})
@@ -37,7 +36,7 @@ public class MixinGuiScreenOptionsSounds$Button extends GuiButton {
                         NovaConstants.STANDARD_BUTTON_LOCATIONS[1] + offsetY,
                         4* NovaConstants.WIDGETS_TEXTURE_FACTOR,
                         height * NovaConstants.WIDGETS_TEXTURE_FACTOR),
-                Color.white
+                0xFFFFFFFF
         );
         NovaDraw.drawRectangle(
                 BUTTON_TEXTURES,
@@ -47,7 +46,7 @@ public class MixinGuiScreenOptionsSounds$Button extends GuiButton {
                         NovaConstants.STANDARD_BUTTON_LOCATIONS[1] + offsetY,
                         4 * NovaConstants.WIDGETS_TEXTURE_FACTOR,
                         height * NovaConstants.WIDGETS_TEXTURE_FACTOR),
-                Color.white
+                0xFFFFFFFF
         );
 
         callbackInfo.cancel();
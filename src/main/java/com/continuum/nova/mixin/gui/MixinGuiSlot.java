@@ -13,7 +13,6 @@ import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
 import org.spongepowered.asm.mixin.Shadow;
 
-import java.awt.*;
 
 @Mixin(GuiSlot.class)
 public abstract class MixinGuiSlot {
@@ -114,12 +113,12 @@ public abstract class MixinGuiSlot {
             NovaDraw.incrementZ();
 
             NovaDraw.Vertex[] backgroundVertices = new NovaDraw.Vertex[]{
-                    new NovaDraw.Vertex(this.left, this.bottom, this.left / 32.0F, (this.bottom + this.amountScrolled) / 32.0F, new Color(32, 32, 32)),
-                    new NovaDraw.Vertex(this.right, this.bottom, this.right / 32.0F, (this.bottom + this.amountScrolled) / 32.0F, new Color(32, 32, 32)),
-                    new NovaDraw.Vertex(this.right, this.top, this.right / 32.0F, (this.top + this.amountScrolled) / 32.0F, new Color(32, 32, 32)),
-                    new NovaDraw.Vertex(this.left, this.top, this.left / 32.0F, (this.top + this.amountScrolled) / 32.0F, new Color(32, 32, 32))
+                    new NovaDraw.Vertex(this.left, this.bottom, this.left / 32.0F, (this.bottom + this.amountScrolled) / 32.0F, 0xFF202020),
+                    new NovaDraw.Vertex(this.right, this.bottom, this.right / 32.0F, (this.bottom + this.amountScrolled) / 32.0F, 0xFF202020),
+                    new NovaDraw.Vertex(this.right, this.top, this.right / 32.0F, (this.top + this.amountScrolled) / 32.0F, 0xFF202020),
+                    new NovaDraw.Vertex(this.left, this.top, this.left / 32.0F, (this.top + this.amountScrolled) / 32.0F, 0xFF202020)
             };
-            Integer[] indices = new Integer[]{
+            int[] indices = new int[]{
                     0, 1, 2, 2, 3, 0
             };
 
@@ -148,26 +147,26 @@ public abstract class MixinGuiSlot {
 
 
             NovaDraw.Vertex[] shade = new NovaDraw.Vertex[]{
-                    new NovaDraw.Vertex(this.left, this.top, 0, 0, new Color(0, 0, 0, 255)),
-                    new NovaDraw.Vertex(this.left, this.top + 4, 0, 1, new Color(0, 0, 0, 0)),
-                    new NovaDraw.Vertex(this.right, this.top + 4, 1, 1, new Color(0, 0, 0, 0)),
-                    new NovaDraw.Vertex(this.right, this.top, 1, 0, new Color(0, 0, 0, 255))
+                    new NovaDraw.Vertex(this.left, this.top, 0, 0, 0xFF000000),
+                    new NovaDraw.Vertex(this.left, this.top + 4, 0, 1, 0x00000000),
+                    new NovaDraw.Vertex(this.right, this.top + 4, 1, 1, 0x00000000),
+                    new NovaDraw.Vertex(this.right, this.top, 1, 0, 0xFF000000)
             };
 
-            indices = new Integer[]{
+            indices = new int[]{
                     0, 1, 2, 0, 3, 2
             };
 
             NovaDraw.draw(NovaConstants.WHITE_TEXTURE_GUI_LOCATION, indices, shade);
 
             shade = new NovaDraw.Vertex[]{
-                    new NovaDraw.Vertex(this.left, this.bottom - 4, 0, 0, new Color(0, 0, 0, 0)),
-                    new NovaDraw.Vertex(this.left, this.bottom, 0, 1, new Color(0, 0, 0, 255)),
-                    new NovaDraw.Vertex(this.right, this.bottom, 1, 1, new Color(0, 0, 0, 255)),
-                    new NovaDraw.Vertex(this.right, this.bottom - 4, 1, 0, new Color(0, 0, 0, 0))
+                    new NovaDraw.Vertex(this.left, this.bottom - 4, 0, 0, 0x00000000),
+                    new NovaDraw.Vertex(this.left, this.bottom, 0, 1, 0xFF000000),
+                    new NovaDraw.Vertex(this.right, this.bottom, 1, 1, 0xFF000000),
+                    new NovaDraw.Vertex(this.right, this.bottom - 4, 1, 0, 0x00000000)
             };
 
-            indices = new Integer[]{
+            indices = new int[]{
                     0, 1, 2, 0, 2, 3
             };
 
@@ -187,13 +186,13 @@ public abstract class MixinGuiSlot {
                 NovaDraw.incrementZ();
 
                 NovaDraw.Vertex[] scrollbarBackground = new NovaDraw.Vertex[]{
-                        new NovaDraw.Vertex(scrollBarX, this.bottom, 0, 1, new Color(0, 0, 0, 255)),
-                        new NovaDraw.Vertex(scrollBarOutside, this.bottom, 1, 1, new Color(0, 0, 0, 255)),
-                        new NovaDraw.Vertex(scrollBarOutside, this.top, 1, 0, new Color(0, 0, 0, 255)),
-                        new NovaDraw.Vertex(scrollBarX, this.top, 0, 0, new Color(0, 0, 0, 255))
+                        new NovaDraw.Vertex(scrollBarX, this.bottom, 0, 1, 0xFF000000),
+                        new NovaDraw.Vertex(scrollBarOutside, this.bottom, 1, 1, 0xFF000000),
+                        new NovaDraw.Vertex(scrollBarOutside, this.top, 1, 0, 0xFF000000),
+                        new NovaDraw.Vertex(scrollBarX, this.top, 0, 0, 0xFF000000)
                 };
 
-                indices = new Integer[]{
+                indices = new int[]{
                         0, 1, 2, 2, 3, 0
                 };
 
@@ -201,13 +200,13 @@ public abstract class MixinGuiSlot {
                 NovaDraw.incrementZ();
 
                 NovaDraw.Vertex[] scrollbarShade = new NovaDraw.Vertex[]{
-                        new NovaDraw.Vertex(scrollBarX, (l1 + k1), 0, 1, new Color(128, 128, 128, 255)),
-                        new NovaDraw.Vertex(scrollBarOutside, (l1 + k1), 1, 1, new Color(128, 128, 128, 255)),
-                        new NovaDraw.Vertex(scrollBarOutside, l1, 1, 0, new Color(128, 128, 128, 255)),
-                        new NovaDraw.Vertex(scrollBarX, l1, 0, 0, new Color(128, 128, 128, 255))
+                        new NovaDraw.Vertex(scrollBarX, (l1 + k1), 0, 1, 0xFF808080),
+                        new NovaDraw.Vertex(scrollBarOutside, (l1 + k1), 1, 1, 0xFF808080),
+                        new NovaDraw.Vertex(scrollBarOutside, l1, 1, 0, 0xFF808080),
+                        new NovaDraw.Vertex(scrollBarX, l1, 0, 0, 0xFF808080)
                 };
 
-                indices = new Integer[]{
+                indices = new int[]{
                         0, 1, 2, 2, 3, 0
                 };
 
@@ -217,13 +216,13 @@ public abstract class MixinGuiSlot {
 
 
                 NovaDraw.Vertex[] scrollbar = new NovaDraw.Vertex[]{
-                        new NovaDraw.Vertex(scrollBarX, (l1 + k1) - 1, 0, 1, new Color(192, 192, 192, 255)),
-                        new NovaDraw.Vertex(scrollBarOutside - 1, (l1 + k1) - 1, 1, 1, new Color(192, 192, 192, 255)),
-                        new NovaDraw.Vertex(scrollBarOutside - 1, l1, 1, 0, new Color(192, 192, 192, 255)),
-                        new NovaDraw.Vertex(scrollBarX, l1, 0, 0, new Color(192, 192, 192, 255))
+                        new NovaDraw.Vertex(scrollBarX, (l1 + k1) - 1, 0, 1, 0xFFC0C0C0),
+                        new NovaDraw.Vertex(scrollBarOutside - 1, (l1 + k1) - 1, 1, 1, 0xFFC0C0C0),
+                        new NovaDraw.Vertex(scrollBarOutside - 1, l1, 1, 0, 0xFFC0C0C0),
+                        new NovaDraw.Vertex(scrollBarX, l1, 0, 0, 0xFFC0C0C0)
                 };
 
-                indices = new Integer[]{
+                indices = new int[]{
                         0, 1, 2, 2, 3, 0
                 };
 
@@ -236,6 +235,10 @@ public abstract class MixinGuiSlot {
     }
 
     /**
+     * Only the rows that are at least partly between top and bottom are drawn, so a long list costs the same to draw
+     * as a short one. Rows that stick out past top or bottom lose the triangles that are entirely outside, and the
+     * overlays cover the rest
+     *
      * @author Janrupf
      * @reason Change render code to nova
      * @inheritDoc
@@ -243,29 +246,38 @@ public abstract class MixinGuiSlot {
     @Overwrite
     protected void drawSelectionBox(int insideLeft, int insideTop, int mouseXIn, int mouseYIn, float partialTicks) {
         int i = this.getSize();
+        int l = this.slotHeight - 4;
 
-        ResourceLocation whiteTextureLocation = NovaConstants.WHITE_TEXTURE_GUI_LOCATION;
+        // The rows with top + l >= this.top and top <= this.bottom, where a row's top is insideTop + j * slotHeight + headerPadding
+        int firstRowTop = insideTop + this.headerPadding;
+        int firstVisible = Math.max(0, -Math.floorDiv(firstRowTop + l - this.top, this.slotHeight));
+        int lastVisible = Math.min(i - 1, Math.floorDiv(this.bottom - firstRowTop, this.slotHeight));
 
+        // Rows that aren't drawn still need to know where they are, like vanilla tells them
         for (int j = 0; j < i; ++j) {
-            int k = insideTop + j * this.slotHeight + this.headerPadding;
-            int l = this.slotHeight - 4;
-
-            if (k > this.bottom || k + l < this.top) {
-                this.updateItemPos(j, insideLeft, k, partialTicks);
+            if (j < firstVisible || j > lastVisible) {
+                this.updateItemPos(j, insideLeft, firstRowTop + j * this.slotHeight, partialTicks);
             }
+        }
+
+        ResourceLocation whiteTextureLocation = NovaConstants.WHITE_TEXTURE_GUI_LOCATION;
+
+        NovaDraw.setClip(this.top, this.bottom);
+        for (int j = firstVisible; j <= lastVisible; ++j) {
+            int k = firstRowTop + j * this.slotHeight;
 
             if (this.showSelectionBox && this.isSelected(j)) {
                 int leftX = this.left + (this.width / 2 - this.getListWidth() / 2);
                 int rightX = this.left + this.width / 2 + this.getListWidth() / 2;
 
                 NovaDraw.Vertex[] vertices = new NovaDraw.Vertex[]{
-                        new NovaDraw.Vertex(leftX, k - 2, 0, 0, new Color(128, 128, 128, 255)),
-                        new NovaDraw.Vertex(leftX, k + l + 2, 0, 1, new Color(128, 128, 128, 255)),
-                        new NovaDraw.Vertex(rightX, k + l + 2, 1, 1, new Color(128, 128, 128, 255)),
-                        new NovaDraw.Vertex(rightX, k - 2, 1, 0, new Color(128, 128, 128, 255)),
+                        new NovaDraw.Vertex(leftX, k - 2, 0, 0, 0xFF808080),
+                        new NovaDraw.Vertex(leftX, k + l + 2, 0, 1, 0xFF808080),
+                        new NovaDraw.Vertex(rightX, k + l + 2, 1, 1, 0xFF808080),
+                        new NovaDraw.Vertex(rightX, k - 2, 1, 0, 0xFF808080),
                 };
 
-                Integer[] indices = new Integer[]{
+                int[] indices = new int[]{
                         0, 1, 2,
                         0, 2, 3,
                 };
@@ -275,13 +287,13 @@ public abstract class MixinGuiSlot {
                 NovaDraw.incrementZ();
 
                 vertices = new NovaDraw.Vertex[]{
-                        new NovaDraw.Vertex(leftX + 1, k - 1, 0, 0, new Color(0, 0, 0, 255)),
-                        new NovaDraw.Vertex(leftX + 1, k + l + 1, 0, 1, new Color(0, 0, 0, 255)),
-                        new NovaDraw.Vertex(rightX - 1, k + l + 1, 1, 1, new Color(0, 0, 0, 255)),
-                        new NovaDraw.Vertex(rightX - 1, k - 1, 1, 0, new Color(0, 0, 0, 255)),
+                        new NovaDraw.Vertex(leftX + 1, k - 1, 0, 0, 0xFF000000),
+                        new NovaDraw.Vertex(leftX + 1, k + l + 1, 0, 1, 0xFF000000),
+                        new NovaDraw.Vertex(rightX - 1, k + l + 1, 1, 1, 0xFF000000),
+                        new NovaDraw.Vertex(rightX - 1, k - 1, 1, 0, 0xFF000000),
                 };
 
-                indices = new Integer[]{
+                indices = new int[]{
                         0, 1, 2,
                         0, 2, 3,
                 };
@@ -294,6 +306,7 @@ public abstract class MixinGuiSlot {
 
             this.drawSlot(j, insideLeft, k, l, mouseXIn, mouseYIn, partialTicks);
         }
+        NovaDraw.clearClip();
     }
 
     /**
@@ -305,12 +318,12 @@ public abstract class MixinGuiSlot {
     protected void overlayBackground(int startY, int endY, int startAlpha, int endAlpha) {
 
         NovaDraw.Vertex[] backgroundVertices = new NovaDraw.Vertex[]{
-                new NovaDraw.Vertex(this.left, endY, 0, endY / 32.0F, new Color(64, 64, 64, endAlpha)),
-                new NovaDraw.Vertex(this.left + this.width, endY, this.width / 32.0F, endY / 32.0F, new Color(64, 64, 64, endAlpha)),
-                new NovaDraw.Vertex(this.left + this.width, startY, this.width / 32.0F, startY / 32.0F, new Color(64, 64, 64, endAlpha)),
-                new NovaDraw.Vertex(this.left, startY, 0.0F, startY / 32.0F, new Color(64, 64, 64, startAlpha))
+                new NovaDraw.Vertex(this.left, endY, 0, endY / 32.0F, endAlpha << 24 | 0x404040),
+                new NovaDraw.Vertex(this.left + this.width, endY, this.width / 32.0F, endY / 32.0F, endAlpha << 24 | 0x404040),
+                new NovaDraw.Vertex(this.left + this.width, startY, this.width / 32.0F, startY / 32.0F, endAlpha << 24 | 0x404040),
+                new NovaDraw.Vertex(this.left, startY, 0.0F, startY / 32.0F, startAlpha << 24 | 0x404040)
         };
-        Integer[] indices = new Integer[]{
+        int[] indices = new int[]{
                 0, 1, 2, 2, 3, 0
         };
 
@@ -0,0 +1,20 @@
+package com.continuum.nova.mixin.world;
+
+import com.continuum.nova.NovaRenderer;
+import net.minecraft.client.multiplayer.ChunkProviderClient;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ChunkProviderClient.class)
+public class MixinChunkProviderClient {
+    @Inject(
+            method = "unloadChunk",
+            at = @At(value = "RETURN")
+    )
+    // After the chunk is gone, so that chunk builder threads can see it's unloaded
+    private void hookUnloadChunk(int x, int z, CallbackInfo callbackInfo) {
+        NovaRenderer.getInstance().onChunkUnload(x, z);
+    }
+}
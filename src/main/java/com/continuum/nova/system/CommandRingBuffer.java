@@ -0,0 +1,218 @@
+package com.continuum.nova.system;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The producer side of a single-producer/single-consumer ring buffer of commands for the native code
+ *
+ * <p>The buffer starts with a {@link #HEADER_SIZE} byte header. The write position lives at
+ * {@link #WRITE_POSITION_OFFSET} and is only ever written by the producer. The read position lives at
+ * {@link #READ_POSITION_OFFSET} and is only ever written by the consumer. They're on separate cache lines so the two
+ * sides don't fight over them. Both positions count bytes since the buffer was created and never wrap. Masking them
+ * with the capacity gives the offset into the data area.</p>
+ *
+ * <p>Every command starts with an 8-byte header: an int with the command type and an int with the size of the whole
+ * command, header included. Sizes are always a multiple of 8. A command never wraps around the end of the data area.
+ * If it doesn't fit before the end, a {@link #COMMAND_PADDING} command fills the rest of the space and the real
+ * command starts at the beginning of the data area.</p>
+ *
+ * <p>Right now the native consumer runs inside <code>execute_frame</code> and <code>flush_commands</code>, on the same
+ * thread as the producer, so the JNA call itself orders the producer's writes before the consumer's reads.</p>
+ *
+ * <p>The producer must always be the same thread. This class doesn't lock anything.</p>
+ */
+public class CommandRingBuffer {
+    /**
+     * Called when the producer runs out of space. It should consume commands until there's room
+     */
+    public interface Consumer {
+        void consume();
+    }
+
+    public static final int HEADER_SIZE = 128;
+    public static final int WRITE_POSITION_OFFSET = 0;
+    public static final int READ_POSITION_OFFSET = 64;
+    public static final int COMMAND_HEADER_SIZE = 8;
+
+    public static final int COMMAND_PADDING = 0;
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final Consumer consumer;
+
+    private long writePosition;
+
+    // For sizing the ring. See getHighWaterMark and getFullStalls
+    private long highWaterMark;
+    private long fullStalls;
+
+    private boolean inCommand;
+    private int commandStart;
+    private int commandSize;
+
+    /**
+     * @param buffer The memory to use for the ring buffer. Its size minus {@link #HEADER_SIZE} must be a power of two
+     * @param consumer What to call when the ring buffer is full
+     */
+    public CommandRingBuffer(ByteBuffer buffer, Consumer consumer) {
+        int capacity = buffer.capacity() - HEADER_SIZE;
+        if(capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Command ring buffer needs a power of two bytes of data space, but got " + capacity);
+        }
+
+        this.buffer = buffer.duplicate().order(ByteOrder.nativeOrder());
+        this.capacity = capacity;
+        this.consumer = consumer;
+
+        this.buffer.putLong(WRITE_POSITION_OFFSET, 0);
+        this.buffer.putLong(READ_POSITION_OFFSET, 0);
+    }
+
+    /**
+     * Reserves space for a command and writes its header
+     *
+     * @param type The type of the command
+     * @param payloadSize The number of bytes that the command will write after its header
+     * @return The offset in {@link #getBuffer()} where the payload should be written
+     */
+    public int beginCommand(int type, int payloadSize) {
+        if(inCommand) {
+            throw new IllegalStateException("Tried to begin command " + type + " before ending the previous command");
+        }
+
+        int size = align(COMMAND_HEADER_SIZE + payloadSize, 8);
+        if(size > capacity) {
+            throw new IllegalArgumentException("Command of " + size + " bytes is bigger than the whole ring buffer (" + capacity + " bytes)");
+        }
+
+        int offset = (int) (writePosition & (capacity - 1));
+        int spaceBeforeEnd = capacity - offset;
+        if(size > spaceBeforeEnd) {
+            waitForSpace(spaceBeforeEnd);
+            buffer.putInt(HEADER_SIZE + offset, COMMAND_PADDING);
+            buffer.putInt(HEADER_SIZE + offset + 4, spaceBeforeEnd);
+            writePosition += spaceBeforeEnd;
+            offset = 0;
+        }
+
+        waitForSpace(size);
+
+        inCommand = true;
+        commandStart = HEADER_SIZE + offset;
+        commandSize = size;
+
+        buffer.putInt(commandStart, type);
+        buffer.putInt(commandStart + 4, size);
+
+        return commandStart + COMMAND_HEADER_SIZE;
+    }
+
+    /**
+     * Publishes the command that's currently being written
+     */
+    public void endCommand() {
+        if(!inCommand) {
+            throw new IllegalStateException("Tried to end a command that was never begun");
+        }
+        inCommand = false;
+
+        writePosition += commandSize;
+        buffer.putLong(WRITE_POSITION_OFFSET, writePosition);
+
+        long used = writePosition - getReadPosition();
+        if(used > highWaterMark) {
+            highWaterMark = used;
+        }
+    }
+
+    /**
+     * Makes sure the consumer has read everything that's been published
+     */
+    public void flush() {
+        if(getReadPosition() != writePosition) {
+            consumer.consume();
+        }
+    }
+
+    /**
+     * @return The buffer that commands are written into. Payload offsets returned by
+     * {@link #beginCommand(int, int)} are absolute offsets into this buffer
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getWritePosition() {
+        return writePosition;
+    }
+
+    public long getReadPosition() {
+        return buffer.getLong(READ_POSITION_OFFSET);
+    }
+
+    /**
+     * @return The most bytes that have been waiting for the consumer at once, padding included
+     */
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * @return How many times the ring filled up and the producer had to wait for the consumer to make room
+     */
+    public long getFullStalls() {
+        return fullStalls;
+    }
+
+    /**
+     * Writes a string as an int length followed by that many bytes of null-terminated UTF-8, padded to four bytes
+     *
+     * @return The offset just after the string
+     */
+    public int putString(int offset, byte[] utf8) {
+        buffer.putInt(offset, utf8.length + 1);
+        offset += 4;
+        for(byte b : utf8) {
+            buffer.put(offset++, b);
+        }
+        buffer.put(offset, (byte) 0);
+
+        return align(offset + 1, 4);
+    }
+
+    public static byte[] toUtf8(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return How many bytes {@link #putString(int, byte[])} will use for the given string
+     */
+    public static int stringSize(byte[] utf8) {
+        return 4 + align(utf8.length + 1, 4);
+    }
+
+    static int align(int value, int alignment) {
+        return (value + alignment - 1) & -alignment;
+    }
+
+    private void waitForSpace(int size) {
+        if(writePosition + size - getReadPosition() <= capacity) {
+            return;
+        }
+
+        // Let the consumer see everything we've written so far, then have it make some room
+        buffer.putLong(WRITE_POSITION_OFFSET, writePosition);
+        fullStalls++;
+        consumer.consume();
+
+        if(writePosition + size - getReadPosition() > capacity) {
+            throw new IllegalStateException("Command ring buffer consumer didn't free up any space");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.continuum.nova.system;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A consumer for a {@link CommandRingBuffer} written in Java
+ *
+ * <p>The native code has its own consumer in <code>command_ring.cpp</code>. This one does the same thing, so the Java
+ * side of the ring buffer can run without the native code, like when profiling headless or when checking that
+ * commands get written correctly.</p>
+ */
+public class CommandRingReader implements CommandRingBuffer.Consumer {
+    /**
+     * Receives every command that the reader reads
+     */
+    public interface Handler {
+        /**
+         * @param type The type of the command
+         * @param buffer The buffer that holds the command
+         * @param payloadOffset Where the command's payload starts in the buffer
+         * @param payloadSize The size of the command's payload, including any padding at the end
+         */
+        void handle(int type, ByteBuffer buffer, int payloadOffset, int payloadSize);
+    }
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final Handler handler;
+
+    /**
+     * @param buffer The same memory that the {@link CommandRingBuffer} was created with
+     * @param handler What to do with each command
+     */
+    public CommandRingReader(ByteBuffer buffer, Handler handler) {
+        this.buffer = buffer.duplicate().order(ByteOrder.nativeOrder());
+        this.capacity = buffer.capacity() - CommandRingBuffer.HEADER_SIZE;
+        this.handler = handler;
+    }
+
+    /**
+     * Reads every command that's been published so far
+     */
+    @Override
+    public void consume() {
+        long writePosition = buffer.getLong(CommandRingBuffer.WRITE_POSITION_OFFSET);
+        long readPosition = buffer.getLong(CommandRingBuffer.READ_POSITION_OFFSET);
+
+        while(readPosition < writePosition) {
+            int commandStart = CommandRingBuffer.HEADER_SIZE + (int) (readPosition & (capacity - 1));
+            int type = buffer.getInt(commandStart);
+            int size = buffer.getInt(commandStart + 4);
+            if(size < CommandRingBuffer.COMMAND_HEADER_SIZE || size % 8 != 0 || commandStart + size > buffer.capacity()) {
+                throw new IllegalStateException("Command " + type + " at ring position " + readPosition + " has a bad size of " + size + " bytes");
+            }
+
+            if(type != CommandRingBuffer.COMMAND_PADDING) {
+                handler.handle(type, buffer, commandStart + CommandRingBuffer.COMMAND_HEADER_SIZE, size - CommandRingBuffer.COMMAND_HEADER_SIZE);
+            }
+
+            readPosition += size;
+        }
+
+        buffer.putLong(CommandRingBuffer.READ_POSITION_OFFSET, readPosition);
+    }
+
+    /**
+     * Reads a string written by {@link CommandRingBuffer#putString(int, byte[])}
+     */
+    public static String getString(ByteBuffer buffer, int offset) {
+        int length = buffer.getInt(offset) - 1;
+        byte[] utf8 = new byte[length];
+        for(int i = 0; i < length; i++) {
+            utf8[i] = buffer.get(offset + 4 + i);
+        }
+
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The offset just after the string at the given offset
+     */
+    public static int skipString(ByteBuffer buffer, int offset) {
+        return offset + 4 + CommandRingBuffer.align(buffer.getInt(offset), 4);
+    }
+}
@@ -0,0 +1,328 @@
+package com.continuum.nova.system;
+
+import com.continuum.nova.chunks.ChunkGeometryBatch;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Pointer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link NovaNative} that calls the functions which run every frame or every input event through JNA direct
+ * mapping, and everything else through the normal JNA proxy
+ *
+ * <p>Calls through the proxy go through a reflective InvocationHandler and box all their arguments, which adds up
+ * when it happens a few dozen times a frame. Direct mapped methods are bound straight to the native functions, but
+ * they can only take primitives, primitive arrays and pointers. The hot functions all have primitive signatures, so
+ * they're bound directly and the rest are left on the proxy. Chunk batches are bound directly too, since the proxy
+ * would copy every array in full.</p>
+ *
+ * <p>The native functions that answer yes or no return a 32 bit int, since a C bool only sets the low byte of the
+ * return register and JNA reads a Java boolean from all of it. They're bound as ints here and compared to 0.</p>
+ */
+public class DirectMappedNovaNative implements NovaNative {
+    private static final class Bindings {
+        static native void execute_frame();
+
+        static native void flush_commands();
+
+        static native int should_close();
+
+        static native int display_is_active();
+
+        static native void set_player_camera_transform(double x, double y, double z, float yaw, float pitch);
+
+        static native int get_window_width();
+
+        static native int get_window_height();
+
+        static native int poll_mouse_button_event(int[] out);
+
+        static native int poll_mouse_position_event(int[] out);
+
+        static native int poll_mouse_scroll_event(double[] out);
+
+        static native int poll_key_press_event(int[] out);
+
+        static native int poll_key_char_event(long[] out);
+
+        static native void add_chunk_geometry_batch(int num_meshes, Pointer filter_names, Pointer descriptors, Pointer vertex_data, int vertex_count, Pointer indices, int index_count);
+
+        private Bindings() {}
+    }
+
+    /**
+     * Native copies of the arrays for {@link #add_chunk_geometry_batch}. Chunks are meshed on many threads, so each
+     * thread has its own
+     */
+    private static final class BatchMemory {
+        /**
+         * A pointer to the native copy of each mesh's filter name
+         */
+        Memory filterNames;
+        Memory descriptors;
+        Memory vertexData;
+        Memory indices;
+
+        /**
+         * There are only ever a handful of filter names, so each one is copied to native memory once and kept
+         */
+        final Map<String, Memory> nativeFilterNames = new HashMap<>();
+    }
+
+    private final NovaNative proxy;
+
+    private final ThreadLocal<BatchMemory> batchMemory = ThreadLocal.withInitial(BatchMemory::new);
+
+    /**
+     * @param library The native library to bind the hot functions to. Must be the same library the proxy was loaded
+     *                from
+     * @param proxy The proxy to send all the other calls to
+     */
+    public DirectMappedNovaNative(NativeLibrary library, NovaNative proxy) {
+        this.proxy = proxy;
+        Native.register(Bindings.class, library);
+    }
+
+    @Override
+    public void execute_frame() {
+        Bindings.execute_frame();
+    }
+
+    @Override
+    public void flush_commands() {
+        Bindings.flush_commands();
+    }
+
+    @Override
+    public boolean should_close() {
+        return Bindings.should_close() != 0;
+    }
+
+    @Override
+    public boolean display_is_active() {
+        return Bindings.display_is_active() != 0;
+    }
+
+    @Override
+    public void set_player_camera_transform(double x, double y, double z, float yaw, float pitch) {
+        Bindings.set_player_camera_transform(x, y, z, yaw, pitch);
+    }
+
+    @Override
+    public int get_window_width() {
+        return Bindings.get_window_width();
+    }
+
+    @Override
+    public int get_window_height() {
+        return Bindings.get_window_height();
+    }
+
+    @Override
+    public int poll_mouse_button_event(int[] out) {
+        return Bindings.poll_mouse_button_event(out);
+    }
+
+    @Override
+    public int poll_mouse_position_event(int[] out) {
+        return Bindings.poll_mouse_position_event(out);
+    }
+
+    @Override
+    public int poll_mouse_scroll_event(double[] out) {
+        return Bindings.poll_mouse_scroll_event(out);
+    }
+
+    @Override
+    public int poll_key_press_event(int[] out) {
+        return Bindings.poll_key_press_event(out);
+    }
+
+    @Override
+    public int poll_key_char_event(long[] out) {
+        return Bindings.poll_key_char_event(out);
+    }
+
+    // Everything below this line isn't called often enough to be worth binding directly
+
+    @Override
+    public void initialize() {
+        proxy.initialize();
+    }
+
+    @Override
+    public void set_command_ring(Pointer memory, int size) {
+        proxy.set_command_ring(memory, size);
+    }
+
+    @Override
+    public void send_lightmap_texture(int[] data, int length, int width, int height) {
+        proxy.send_lightmap_texture(data, length, width, height);
+    }
+
+    @Override
+    public void add_texture(mc_atlas_texture texture) {
+        proxy.add_texture(texture);
+    }
+
+    @Override
+    public void add_texture_location(mc_texture_atlas_location location) {
+        proxy.add_texture_location(location);
+    }
+
+    @Override
+    public int get_max_texture_size() {
+        return proxy.get_max_texture_size();
+    }
+
+    @Override
+    public void reset_texture_manager() {
+        proxy.reset_texture_manager();
+    }
+
+    @Override
+    public void add_chunk_geometry_for_filter(String filter_name, mc_chunk_render_object render_object) {
+        proxy.add_chunk_geometry_for_filter(filter_name, render_object);
+    }
+
+    /**
+     * The proxy would copy the whole of every array, however much of it is used, so only the used part of each array
+     * is copied into native memory that the calling thread keeps, and that goes to a direct mapped call
+     */
+    @Override
+    public void add_chunk_geometry_batch(int num_meshes, String[] filter_names, int[] descriptors, int[] vertex_data, int vertex_count, int[] indices, int index_count) {
+        BatchMemory memory = batchMemory.get();
+        memory.filterNames = copyFilterNames(memory, filter_names, num_meshes);
+        memory.descriptors = copyInts(memory.descriptors, descriptors, num_meshes * ChunkGeometryBatch.DESCRIPTOR_SIZE);
+        memory.vertexData = copyInts(memory.vertexData, vertex_data, vertex_count);
+        memory.indices = copyInts(memory.indices, indices, index_count);
+
+        Bindings.add_chunk_geometry_batch(num_meshes, memory.filterNames, memory.descriptors, memory.vertexData,
+                vertex_count, memory.indices, index_count);
+    }
+
+    /**
+     * Writes a pointer to the native copy of each of the first count filter names into the filter name memory, or into
+     * new memory if it's too small
+     *
+     * @return The memory that the pointers are in
+     */
+    private static Memory copyFilterNames(BatchMemory memory, String[] filterNames, int count) {
+        Memory pointers = memory.filterNames;
+        long size = Math.max(count, 1) * (long) Native.POINTER_SIZE;
+        if(pointers == null || pointers.size() < size) {
+            pointers = new Memory(Math.max(size, pointers == null ? 0 : pointers.size() * 2));
+        }
+
+        for(int i = 0; i < count; i++) {
+            Memory name = memory.nativeFilterNames.get(filterNames[i]);
+            if(name == null) {
+                byte[] bytes = Native.toByteArray(filterNames[i]);
+                name = new Memory(bytes.length);
+                name.write(0, bytes, 0, bytes.length);
+                memory.nativeFilterNames.put(filterNames[i], name);
+            }
+            pointers.setPointer((long) i * Native.POINTER_SIZE, name);
+        }
+
+        return pointers;
+    }
+
+    /**
+     * Copies the first count ints of data into the given memory, or into new memory if it's too small
+     *
+     * @return The memory that the ints are in
+     */
+    private static Memory copyInts(Memory memory, int[] data, int count) {
+        long size = Math.max(count, 1) * 4L;
+        if(memory == null || memory.size() < size) {
+            memory = new Memory(Math.max(size, memory == null ? 0 : memory.size() * 2));
+        }
+
+        memory.write(0, data, 0, count);
+        return memory;
+    }
+
+    @Override
+    public void update_chunk_indices(String filter_name, int id, int geometry_version, int[] indices, int num_indices) {
+        proxy.update_chunk_indices(filter_name, id, geometry_version, indices, num_indices);
+    }
+
+    @Override
+    public void add_gui_geometry(String type, mc_gui_buffer buffer) {
+        proxy.add_gui_geometry(type, buffer);
+    }
+
+    @Override
+    public void clear_gui_buffers() {
+        proxy.clear_gui_buffers();
+    }
+
+    @Override
+    public void remove_gui_geometry(String texture_name) {
+        proxy.remove_gui_geometry(texture_name);
+    }
+
+    @Override
+    public int wait_for_events(double timeout_seconds) {
+        return proxy.wait_for_events(timeout_seconds);
+    }
+
+    @Override
+    public void set_mouse_grabbed(boolean grabbed) {
+        proxy.set_mouse_grabbed(grabbed);
+    }
+
+    @Override
+    public mouse_button_event get_next_mouse_button_event() {
+        return proxy.get_next_mouse_button_event();
+    }
+
+    @Override
+    public mouse_position_event get_next_mouse_position_event() {
+        return proxy.get_next_mouse_position_event();
+    }
+
+    @Override
+    public mouse_scroll_event get_next_mouse_scroll_event() {
+        return proxy.get_next_mouse_scroll_event();
+    }
+
+    @Override
+    public key_press_event get_next_key_press_event() {
+        return proxy.get_next_key_press_event();
+    }
+
+    @Override
+    public key_char_event get_next_key_char_event() {
+        return proxy.get_next_key_char_event();
+    }
+
+    @Override
+    public window_size get_window_size() {
+        return proxy.get_window_size();
+    }
+
+    @Override
+    public void set_fullscreen(int fullscreen) {
+        proxy.set_fullscreen(fullscreen);
+    }
+
+    @Override
+    public void set_string_setting(String setting, String value) {
+        proxy.set_string_setting(setting, value);
+    }
+
+    @Override
+    public void set_float_setting(String setting_name, float setting_value) {
+        proxy.set_float_setting(setting_name, setting_value);
+    }
+
+    @Override
+    public String get_materials_and_filters() {
+        return proxy.get_materials_and_filters();
+    }
+}
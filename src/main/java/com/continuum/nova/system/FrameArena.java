@@ -0,0 +1,100 @@
+package com.continuum.nova.system;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Native memory for data that only has to live until the end of the next frame, like the GUI geometry that gets
+ * handed to the native code
+ *
+ * <p>Allocating is bumping an offset into one big block, and {@link #endFrame()} throws everything away at once, so
+ * there's no JNA Memory object to create and free for every buffer. There are two halves: each frame allocates from
+ * one of them while the other keeps the previous frame's data, since the native code might still be reading it.</p>
+ *
+ * <p>Anything that doesn't fit gets its own Memory, and is counted in {@link #getOverflowAllocations()}. The high-water
+ * mark says how big the halves need to be for that not to happen.</p>
+ *
+ * <p>Not thread safe. Use it from the thread that runs frames.</p>
+ */
+public class FrameArena {
+    private static final int ALIGNMENT = 16;
+
+    private final int halfSize;
+    private final Memory[] halves;
+
+    private int currentHalf;
+    private int used;
+    /**
+     * How much this frame has asked for, including what didn't fit
+     */
+    private long requested;
+    private long highWaterMark;
+    private int overflowAllocations;
+
+    /**
+     * @param halfSize How many bytes each frame can allocate before falling back to separate allocations
+     */
+    public FrameArena(int halfSize) {
+        this.halfSize = halfSize;
+        this.halves = new Memory[] {new Memory(halfSize), new Memory(halfSize)};
+    }
+
+    /**
+     * @param size How many bytes to allocate
+     * @return Native memory that stays valid until the end of the next frame
+     */
+    public Pointer allocate(long size) {
+        requested += (size + ALIGNMENT - 1) & -ALIGNMENT;
+        highWaterMark = Math.max(highWaterMark, requested);
+
+        int alignedUsed = (used + ALIGNMENT - 1) & -ALIGNMENT;
+        if(alignedUsed + size > halfSize) {
+            overflowAllocations++;
+            return new Memory(size);
+        }
+
+        used = alignedUsed + (int) size;
+        return halves[currentHalf].share(alignedUsed, size);
+    }
+
+    /**
+     * Allocates memory and copies the given bytes into it
+     *
+     * @param source The bytes between the buffer's position and its limit are copied. The position isn't changed
+     */
+    public Pointer copyOf(ByteBuffer source) {
+        Pointer memory = allocate(source.remaining());
+        memory.getByteBuffer(0, source.remaining()).order(ByteOrder.nativeOrder()).put(source.duplicate());
+        return memory;
+    }
+
+    /**
+     * Switches to the other half, throwing away whatever was allocated from it two frames ago
+     */
+    public void endFrame() {
+        currentHalf ^= 1;
+        used = 0;
+        requested = 0;
+    }
+
+    public int getHalfSize() {
+        return halfSize;
+    }
+
+    /**
+     * @return The most bytes that any one frame has asked for, including what didn't fit
+     */
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * @return How many allocations didn't fit in the arena and got their own memory instead
+     */
+    public int getOverflowAllocations() {
+        return overflowAllocations;
+    }
+}
@@ -0,0 +1,280 @@
+package com.continuum.nova.system;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Writes typed commands into a {@link CommandRingBuffer}, so that things that happen every frame can reach the native
+ * code without a JNA call each
+ *
+ * <p>The command types and payload layouts here must match <code>command_ring.h</code>. Strings are written with
+ * {@link CommandRingBuffer#putString(int, byte[])}.</p>
+ *
+ * <p>Chunk geometry doesn't go through here, because chunks are built on a thread pool and the ring buffer only has
+ * room for one producer. Chunk geometry uses the batched <code>add_chunk_geometry_batch</code> call instead.</p>
+ */
+public class NativeCommands {
+    /**
+     * double x, double y, double z, float yaw, float pitch
+     */
+    public static final int SET_PLAYER_CAMERA_TRANSFORM = 1;
+
+    /**
+     * float value, string name
+     */
+    public static final int SET_FLOAT_SETTING = 2;
+
+    /**
+     * string name, string value
+     */
+    public static final int SET_STRING_SETTING = 3;
+
+    /**
+     * No payload
+     */
+    public static final int CLEAR_GUI_BUFFERS = 4;
+
+    /**
+     * int index count, int vertex word count, string filter name, string texture name, string atlas name,
+     * int[] indices, vertices with six words each
+     */
+    public static final int ADD_GUI_GEOMETRY = 5;
+
+    /**
+     * int chunk section id, int geometry version, int index count, string filter name, int[] indices
+     */
+    public static final int UPDATE_CHUNK_INDICES = 6;
+
+    /**
+     * string texture name
+     */
+    public static final int REMOVE_GUI_GEOMETRY = 7;
+
+    private final CommandRingBuffer ring;
+
+    public NativeCommands(CommandRingBuffer ring) {
+        this.ring = ring;
+    }
+
+    public void setPlayerCameraTransform(double x, double y, double z, float yaw, float pitch) {
+        int offset = ring.beginCommand(SET_PLAYER_CAMERA_TRANSFORM, 32);
+        ByteBuffer buffer = ring.getBuffer();
+        buffer.putDouble(offset, x);
+        buffer.putDouble(offset + 8, y);
+        buffer.putDouble(offset + 16, z);
+        buffer.putFloat(offset + 24, yaw);
+        buffer.putFloat(offset + 28, pitch);
+        ring.endCommand();
+    }
+
+    public void setFloatSetting(String name, float value) {
+        byte[] nameUtf8 = CommandRingBuffer.toUtf8(name);
+        int offset = ring.beginCommand(SET_FLOAT_SETTING, 4 + CommandRingBuffer.stringSize(nameUtf8));
+        ring.getBuffer().putFloat(offset, value);
+        ring.putString(offset + 4, nameUtf8);
+        ring.endCommand();
+    }
+
+    public void setStringSetting(String name, String value) {
+        byte[] nameUtf8 = CommandRingBuffer.toUtf8(name);
+        byte[] valueUtf8 = CommandRingBuffer.toUtf8(value);
+        int offset = ring.beginCommand(SET_STRING_SETTING, CommandRingBuffer.stringSize(nameUtf8) + CommandRingBuffer.stringSize(valueUtf8));
+        offset = ring.putString(offset, nameUtf8);
+        ring.putString(offset, valueUtf8);
+        ring.endCommand();
+    }
+
+    public void clearGuiBuffers() {
+        ring.beginCommand(CLEAR_GUI_BUFFERS, 0);
+        ring.endCommand();
+    }
+
+    /**
+     * Removes the GUI geometry for one texture, so that it can be replaced. Geometry added after this command isn't
+     * removed
+     *
+     * @param textureName The texture name the geometry was added with
+     */
+    public void removeGuiGeometry(String textureName) {
+        byte[] textureUtf8 = CommandRingBuffer.toUtf8(textureName);
+
+        int offset = ring.beginCommand(REMOVE_GUI_GEOMETRY, CommandRingBuffer.stringSize(textureUtf8));
+        ring.putString(offset, textureUtf8);
+        ring.endCommand();
+    }
+
+    /**
+     * Sends some GUI geometry to the native code. The data is copied into the ring buffer, so the arrays can be
+     * re-used as soon as this returns
+     *
+     * @param filterName The name of the filter that the geometry matched
+     * @param textureName The name of the texture the geometry uses
+     * @param atlasName The name of the atlas that the texture lives in
+     * @param indices The index data
+     * @param indexCount How many indices to use from the index data
+     * @param vertices The vertex data, six words per vertex as described in {@link NovaNative.mc_gui_buffer}
+     * @param vertexWordCount How many words to use from the vertex data
+     */
+    public void addGuiGeometry(String filterName, String textureName, String atlasName, int[] indices, int indexCount, int[] vertices, int vertexWordCount) {
+        int offset = beginGuiGeometry(filterName, textureName, atlasName, indexCount, vertexWordCount);
+        ByteBuffer buffer = ring.getBuffer();
+
+        viewAt(buffer, offset).asIntBuffer().put(indices, 0, indexCount);
+        viewAt(buffer, offset + indexCount * 4).asIntBuffer().put(vertices, 0, vertexWordCount);
+
+        ring.endCommand();
+    }
+
+    /**
+     * Sends some GUI geometry to the native code, straight from buffers. When the buffers are direct this is a plain
+     * memory copy. Everything from each buffer's position to its limit is sent, and the positions aren't changed
+     *
+     * @param filterName The name of the filter that the geometry matched
+     * @param textureName The name of the texture the geometry uses
+     * @param atlasName The name of the atlas that the texture lives in
+     * @param indices The index data
+     * @param vertices The vertex data, six words per vertex as described in {@link NovaNative.mc_gui_buffer}
+     */
+    public void addGuiGeometry(String filterName, String textureName, String atlasName, IntBuffer indices, IntBuffer vertices) {
+        int indexCount = indices.remaining();
+        int vertexWordCount = vertices.remaining();
+        int offset = beginGuiGeometry(filterName, textureName, atlasName, indexCount, vertexWordCount);
+        ByteBuffer buffer = ring.getBuffer();
+
+        viewAt(buffer, offset).asIntBuffer().put(indices.duplicate());
+        viewAt(buffer, offset + indexCount * 4).asIntBuffer().put(vertices.duplicate());
+
+        ring.endCommand();
+    }
+
+    /**
+     * Starts an ADD_GUI_GEOMETRY command and writes everything but the geometry
+     *
+     * @return Where the index data goes
+     */
+    private int beginGuiGeometry(String filterName, String textureName, String atlasName, int indexCount, int vertexWordCount) {
+        byte[] filterUtf8 = CommandRingBuffer.toUtf8(filterName);
+        byte[] textureUtf8 = CommandRingBuffer.toUtf8(textureName);
+        byte[] atlasUtf8 = CommandRingBuffer.toUtf8(atlasName);
+
+        int payloadSize = 8 + CommandRingBuffer.stringSize(filterUtf8) + CommandRingBuffer.stringSize(textureUtf8)
+                + CommandRingBuffer.stringSize(atlasUtf8) + indexCount * 4 + vertexWordCount * 4;
+
+        int offset = ring.beginCommand(ADD_GUI_GEOMETRY, payloadSize);
+        ByteBuffer buffer = ring.getBuffer();
+        buffer.putInt(offset, indexCount);
+        buffer.putInt(offset + 4, vertexWordCount);
+        offset = ring.putString(offset + 8, filterUtf8);
+        offset = ring.putString(offset, textureUtf8);
+        return ring.putString(offset, atlasUtf8);
+    }
+
+    /**
+     * Replaces the indices of a chunk section's mesh. The indices are copied into the ring buffer, so the array can be
+     * re-used as soon as this returns
+     *
+     * @param filterName The filter that the mesh was built for
+     * @param id The handle of the chunk section that owns the mesh
+     * @param geometryVersion The geometry version of the build the indices were sorted for
+     * @param indices The new indices
+     * @param indexCount How many indices to use from the index data
+     */
+    public void updateChunkIndices(String filterName, int id, int geometryVersion, int[] indices, int indexCount) {
+        byte[] filterUtf8 = CommandRingBuffer.toUtf8(filterName);
+
+        int offset = ring.beginCommand(UPDATE_CHUNK_INDICES, 12 + CommandRingBuffer.stringSize(filterUtf8) + indexCount * 4);
+        ByteBuffer buffer = ring.getBuffer();
+        buffer.putInt(offset, id);
+        buffer.putInt(offset + 4, geometryVersion);
+        buffer.putInt(offset + 8, indexCount);
+        offset = ring.putString(offset + 12, filterUtf8);
+
+        viewAt(buffer, offset).asIntBuffer().put(indices, 0, indexCount);
+
+        ring.endCommand();
+    }
+
+    private static ByteBuffer viewAt(ByteBuffer buffer, int offset) {
+        ByteBuffer view = buffer.duplicate().order(buffer.order());
+        view.position(offset);
+        return view;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = viewAt(buffer, offset);
+        view.limit(offset + length);
+        return view;
+    }
+
+    /**
+     * Decodes a command and calls the matching function on the given {@link NovaNative}. This lets a
+     * {@link CommandRingReader} stand in for the native consumer
+     *
+     * @param arena Where to put data that has to be passed to the target as native memory, like GUI geometry
+     */
+    public static void dispatch(int type, ByteBuffer buffer, int offset, NovaNative target, FrameArena arena) {
+        switch(type) {
+            case SET_PLAYER_CAMERA_TRANSFORM:
+                target.set_player_camera_transform(buffer.getDouble(offset), buffer.getDouble(offset + 8),
+                        buffer.getDouble(offset + 16), buffer.getFloat(offset + 24), buffer.getFloat(offset + 28));
+                break;
+
+            case SET_FLOAT_SETTING:
+                target.set_float_setting(CommandRingReader.getString(buffer, offset + 4), buffer.getFloat(offset));
+                break;
+
+            case SET_STRING_SETTING:
+                int valueOffset = CommandRingReader.skipString(buffer, offset);
+                target.set_string_setting(CommandRingReader.getString(buffer, offset), CommandRingReader.getString(buffer, valueOffset));
+                break;
+
+            case CLEAR_GUI_BUFFERS:
+                target.clear_gui_buffers();
+                break;
+
+            case ADD_GUI_GEOMETRY:
+                int indexCount = buffer.getInt(offset);
+                int vertexWordCount = buffer.getInt(offset + 4);
+                int filterOffset = offset + 8;
+                int textureOffset = CommandRingReader.skipString(buffer, filterOffset);
+                int atlasOffset = CommandRingReader.skipString(buffer, textureOffset);
+                int dataOffset = CommandRingReader.skipString(buffer, atlasOffset);
+
+                NovaNative.mc_gui_buffer guiBuffer = new NovaNative.mc_gui_buffer();
+                guiBuffer.texture_name = CommandRingReader.getString(buffer, textureOffset);
+                guiBuffer.atlas_name = CommandRingReader.getString(buffer, atlasOffset);
+                guiBuffer.index_buffer_size = indexCount;
+                guiBuffer.vertex_buffer_size = vertexWordCount;
+                if(indexCount > 0) {
+                    guiBuffer.index_buffer = arena.copyOf(slice(buffer, dataOffset, indexCount * 4));
+                }
+                if(vertexWordCount > 0) {
+                    guiBuffer.vertex_buffer = arena.copyOf(slice(buffer, dataOffset + indexCount * 4, vertexWordCount * 4));
+                }
+
+                target.add_gui_geometry(CommandRingReader.getString(buffer, filterOffset), guiBuffer);
+                break;
+
+            case UPDATE_CHUNK_INDICES:
+                int id = buffer.getInt(offset);
+                int geometryVersion = buffer.getInt(offset + 4);
+                int chunkIndexCount = buffer.getInt(offset + 8);
+                int indicesOffset = CommandRingReader.skipString(buffer, offset + 12);
+
+                int[] chunkIndices = new int[chunkIndexCount];
+                for(int i = 0; i < chunkIndexCount; i++) {
+                    chunkIndices[i] = buffer.getInt(indicesOffset + i * 4);
+                }
+
+                target.update_chunk_indices(CommandRingReader.getString(buffer, offset + 12), id, geometryVersion, chunkIndices, chunkIndexCount);
+                break;
+
+            case REMOVE_GUI_GEOMETRY:
+                target.remove_gui_geometry(CommandRingReader.getString(buffer, offset));
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown native command type " + type);
+        }
+    }
+}
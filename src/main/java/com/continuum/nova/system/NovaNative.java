@@ -155,12 +155,16 @@ public interface NovaNative extends Library {
         }
     }
 
+    /**
+     * Some GUI geometry. Each vertex is six 32-bit words: float x, y, z, float u, v, and the color packed as RGBA8
+     * with red in the lowest byte. vertex_buffer_size counts words
+     */
     class mc_gui_buffer extends Structure {
         public String texture_name;
         public int index_buffer_size;
         public int vertex_buffer_size;
         public Pointer index_buffer; // int[]
-        public Pointer vertex_buffer; // float[]
+        public Pointer vertex_buffer; // int[], six words per vertex
         public String atlas_name;
 
         @Override
@@ -258,6 +262,16 @@ public interface NovaNative extends Library {
 
     void execute_frame();
 
+    /**
+     * Tells the native code where the command ring buffer lives. See {@link CommandRingBuffer}
+     */
+    void set_command_ring(Pointer memory, int size);
+
+    /**
+     * Runs every command in the command ring buffer without waiting for the next frame
+     */
+    void flush_commands();
+
     void send_lightmap_texture(int[] data, int length, int width, int height);
 
     void add_texture(mc_atlas_texture texture);
@@ -270,12 +284,33 @@ public interface NovaNative extends Library {
 
     void add_chunk_geometry_for_filter(String filter_name, mc_chunk_render_object render_object);
 
+    /**
+     * Adds the geometry for any number of filters and chunk sections in one call. See
+     * {@link com.continuum.nova.chunks.ChunkGeometryBatch} for the layout of the arrays
+     *
+     * <p>The arrays can be longer than what's in them. Only the first num_meshes descriptors, vertex_count ints of
+     * vertex data and index_count indices are used</p>
+     */
+    void add_chunk_geometry_batch(int num_meshes, String[] filter_names, int[] descriptors, int[] vertex_data, int vertex_count, int[] indices, int index_count);
+
+    /**
+     * Replaces the indices of a chunk section's mesh without touching its vertex data. Ignored unless the mesh is still
+     * the build with the given geometry version
+     */
+    void update_chunk_indices(String filter_name, int id, int geometry_version, int[] indices, int num_indices);
+
     boolean should_close();
 
     void add_gui_geometry(String type, mc_gui_buffer buffer);
 
     void clear_gui_buffers();
 
+    /**
+     * Removes the GUI geometry that was drawn with the given texture. GUI geometry stays from frame to frame until
+     * it's removed or cleared
+     */
+    void remove_gui_geometry(String texture_name);
+
     void set_mouse_grabbed(boolean grabbed);
 
     mouse_button_event get_next_mouse_button_event();
@@ -290,10 +325,51 @@ public interface NovaNative extends Library {
 
     window_size get_window_size();
 
+    int get_window_width();
+
+    int get_window_height();
+
+    /**
+     * Primitive versions of the get_next_*_event functions. Each one returns 1 and fills in the array if there was an
+     * event, or returns 0 if there wasn't
+     *
+     * @param out button, action, mods
+     */
+    int poll_mouse_button_event(int[] out);
+
+    /**
+     * @param out x position, y position
+     */
+    int poll_mouse_position_event(int[] out);
+
+    /**
+     * @param out x offset, y offset
+     */
+    int poll_mouse_scroll_event(double[] out);
+
+    /**
+     * @param out key, scancode, action, mods
+     */
+    int poll_key_press_event(int[] out);
+
+    /**
+     * @param out The unicode character that was typed
+     */
+    int poll_key_char_event(long[] out);
+
     void set_fullscreen(int fullscreen);
 
     boolean display_is_active();
 
+    /**
+     * Sleeps until there's input for the window or the timeout runs out. Input that arrives is queued, the same as at
+     * the end of a frame. Other window events, like the window gaining focus, can end the wait early too
+     *
+     * @param timeout_seconds The longest to wait
+     * @return 1 if there's input waiting to be polled, 0 if there isn't
+     */
+    int wait_for_events(double timeout_seconds);
+
     void set_string_setting(String setting, String value);
 
     void set_float_setting(String setting_name, float setting_value);
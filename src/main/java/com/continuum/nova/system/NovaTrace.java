@@ -0,0 +1,90 @@
+package com.continuum.nova.system;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary format that {@link RecordingNovaNative} writes and {@link TraceReplayer} reads
+ *
+ * <p>A trace starts with {@link #MAGIC} and {@link #VERSION}. After that it's a list of calls, each one a single byte
+ * saying which call it was followed by that call's arguments, in the order the NovaNative method takes them. Numbers
+ * are big endian. Strings are an int byte count (-1 for null) and then UTF-8. Arrays are an int element count and then
+ * the elements.</p>
+ *
+ * <p>Only calls that change the renderer's state are in the trace. Calls that ask the renderer something, like
+ * should_close or the poll_* functions, are left out because a replay has nothing to do with their answers.</p>
+ */
+public final class NovaTrace {
+    public static final int MAGIC = 0x4E565452;  // "NVTR"
+    public static final int VERSION = 3;
+
+    public static final byte INITIALIZE = 1;
+    /** long nanoseconds since the trace started */
+    public static final byte EXECUTE_FRAME = 2;
+    public static final byte SEND_LIGHTMAP_TEXTURE = 3;
+    /** string name, int width, int height, int num_components, byte[] texture_data */
+    public static final byte ADD_TEXTURE = 4;
+    public static final byte ADD_TEXTURE_LOCATION = 5;
+    public static final byte RESET_TEXTURE_MANAGER = 6;
+    /** string filter_name, int format, float x, float y, float z, int id, int[] vertex_data, int[] indices */
+    public static final byte ADD_CHUNK_GEOMETRY_FOR_FILTER = 7;
+    /** int num_meshes, string[] filter_names, int[] descriptors, int[] vertex_data, int[] indices */
+    public static final byte ADD_CHUNK_GEOMETRY_BATCH = 8;
+    /** string filter_name, int id, int geometry_version, int[] indices */
+    public static final byte UPDATE_CHUNK_INDICES = 9;
+    /** string type, string texture_name, string atlas_name, int[] index_buffer, int[] vertex_buffer */
+    public static final byte ADD_GUI_GEOMETRY = 10;
+    public static final byte CLEAR_GUI_BUFFERS = 11;
+    public static final byte SET_MOUSE_GRABBED = 12;
+    public static final byte SET_FULLSCREEN = 13;
+    public static final byte SET_STRING_SETTING = 14;
+    public static final byte SET_FLOAT_SETTING = 15;
+    public static final byte SET_PLAYER_CAMERA_TRANSFORM = 16;
+    public static final byte REMOVE_GUI_GEOMETRY = 17;
+
+    private NovaTrace() {}
+
+    static void writeString(DataOutputStream out, String string) throws IOException {
+        if(string == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length < 0) {
+            return null;
+        }
+
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    static void writeInts(DataOutputStream out, int[] data, int length) throws IOException {
+        out.writeInt(length);
+
+        // Writing ints one at a time through a DataOutputStream is slow, so go through a byte buffer
+        ByteBuffer bytes = ByteBuffer.allocate(length * 4);
+        bytes.asIntBuffer().put(data, 0, length);
+        out.write(bytes.array());
+    }
+
+    static int[] readInts(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        byte[] bytes = new byte[length * 4];
+        in.readFully(bytes);
+
+        int[] data = new int[length];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(data);
+        return data;
+    }
+}
@@ -0,0 +1,429 @@
+package com.continuum.nova.system;
+
+import com.continuum.nova.chunks.ChunkGeometryBatch;
+import com.sun.jna.Pointer;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A {@link NovaNative} that writes every call it gets to a trace, so that it can be replayed later with a
+ * {@link TraceReplayer}
+ *
+ * <p>If it's given another NovaNative it passes every call on to that, so the game runs as normal while it records. If
+ * it isn't, it runs headless: nothing gets drawn, the window never closes and never has any input, and
+ * get_materials_and_filters returns {@link #HEADLESS_MATERIALS_AND_FILTERS}. That's enough to run the whole Java side
+ * of the renderer without the native library, like on a build server.</p>
+ *
+ * <p>The command ring buffer is read here rather than by the native code, so that the commands in it are recorded as
+ * the calls they stand for. They're passed on to the wrapped NovaNative as direct calls.</p>
+ *
+ * <p>Chunk geometry gets sent from the chunk builder threads, so writing to the trace is synchronized. If writing fails
+ * the recorder logs it and stops recording, but keeps passing calls on.</p>
+ */
+public class RecordingNovaNative implements NovaNative {
+    /**
+     * What the headless backend uses for the shaderpack's materials and filters. The same filters as the default
+     * shaderpack for terrain, water, and the GUI
+     */
+    public static final String HEADLESS_MATERIALS_AND_FILTERS =
+            "gbuffers_terrain\ngeometry_type::block AND not_transparent\n" +
+            "gbuffers_water\ngeometry_type::block AND transparent\n" +
+            "gui\ngeometry_type::gui";
+
+    public static final int HEADLESS_WINDOW_WIDTH = 1280;
+    public static final int HEADLESS_WINDOW_HEIGHT = 720;
+    public static final int HEADLESS_MAX_TEXTURE_SIZE = 16384;
+
+    /**
+     * How much native memory each frame gets for the GUI geometry read out of the command ring
+     */
+    public static final int GUI_ARENA_SIZE = 4 * 1024 * 1024;
+
+    private final DataOutputStream out;
+    private final NovaNative delegate;
+    private final long startTime = System.nanoTime();
+
+    private volatile boolean recording = true;
+    private CommandRingReader commandRingReader;
+    private final FrameArena guiArena = new FrameArena(GUI_ARENA_SIZE);
+
+    /**
+     * @param trace Where to write the trace. Gets closed by {@link #close()}
+     * @param delegate The NovaNative to pass calls on to, or null to run headless
+     */
+    public RecordingNovaNative(OutputStream trace, @Nullable NovaNative delegate) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(trace, 1 << 20));
+        this.delegate = delegate;
+
+        out.writeInt(NovaTrace.MAGIC);
+        out.writeInt(NovaTrace.VERSION);
+    }
+
+    /**
+     * Writes out anything that's still buffered and closes the trace
+     */
+    public void close() {
+        synchronized(out) {
+            recording = false;
+            try {
+                out.close();
+            } catch(IOException e) {
+                LOG.error("Could not close the trace", e);
+            }
+        }
+    }
+
+    private interface TraceWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void record(byte call, TraceWriter arguments) {
+        if(!recording) {
+            return;
+        }
+
+        synchronized(out) {
+            if(!recording) {
+                return;
+            }
+
+            try {
+                out.writeByte(call);
+                arguments.write(out);
+            } catch(IOException e) {
+                LOG.error("Could not write to the trace, so recording has stopped", e);
+                recording = false;
+            }
+        }
+    }
+
+    private void consumeCommands() {
+        if(commandRingReader != null) {
+            commandRingReader.consume();
+        }
+    }
+
+    @Override
+    public void initialize() {
+        record(NovaTrace.INITIALIZE, out -> {});
+        if(delegate != null) {
+            delegate.initialize();
+        }
+    }
+
+    @Override
+    public void execute_frame() {
+        consumeCommands();
+
+        long frameTime = System.nanoTime() - startTime;
+        record(NovaTrace.EXECUTE_FRAME, out -> out.writeLong(frameTime));
+        if(delegate != null) {
+            delegate.execute_frame();
+        }
+        guiArena.endFrame();
+    }
+
+    /**
+     * @return The memory that GUI geometry from the command ring is put in before it's passed on
+     */
+    public FrameArena getGuiArena() {
+        return guiArena;
+    }
+
+    @Override
+    public void set_command_ring(Pointer memory, int size) {
+        commandRingReader = new CommandRingReader(memory.getByteBuffer(0, size),
+                (type, buffer, payloadOffset, payloadSize) -> NativeCommands.dispatch(type, buffer, payloadOffset, this, guiArena));
+    }
+
+    @Override
+    public void flush_commands() {
+        consumeCommands();
+    }
+
+    @Override
+    public void send_lightmap_texture(int[] data, int length, int width, int height) {
+        record(NovaTrace.SEND_LIGHTMAP_TEXTURE, out -> {
+            NovaTrace.writeInts(out, data, length);
+            out.writeInt(width);
+            out.writeInt(height);
+        });
+        if(delegate != null) {
+            delegate.send_lightmap_texture(data, length, width, height);
+        }
+    }
+
+    @Override
+    public void add_texture(mc_atlas_texture texture) {
+        record(NovaTrace.ADD_TEXTURE, out -> {
+            NovaTrace.writeString(out, texture.name);
+            out.writeInt(texture.width);
+            out.writeInt(texture.height);
+            out.writeInt(texture.num_components);
+            out.write(texture.texture_data.getByteArray(0, texture.width * texture.height * texture.num_components));
+        });
+        if(delegate != null) {
+            delegate.add_texture(texture);
+        }
+    }
+
+    @Override
+    public void add_texture_location(mc_texture_atlas_location location) {
+        record(NovaTrace.ADD_TEXTURE_LOCATION, out -> {
+            NovaTrace.writeString(out, location.name);
+            out.writeFloat(location.min_u);
+            out.writeFloat(location.min_v);
+            out.writeFloat(location.max_u);
+            out.writeFloat(location.max_v);
+        });
+        if(delegate != null) {
+            delegate.add_texture_location(location);
+        }
+    }
+
+    @Override
+    public int get_max_texture_size() {
+        return delegate != null ? delegate.get_max_texture_size() : HEADLESS_MAX_TEXTURE_SIZE;
+    }
+
+    @Override
+    public void reset_texture_manager() {
+        record(NovaTrace.RESET_TEXTURE_MANAGER, out -> {});
+        if(delegate != null) {
+            delegate.reset_texture_manager();
+        }
+    }
+
+    @Override
+    public void add_chunk_geometry_for_filter(String filter_name, mc_chunk_render_object render_object) {
+        record(NovaTrace.ADD_CHUNK_GEOMETRY_FOR_FILTER, out -> {
+            NovaTrace.writeString(out, filter_name);
+            out.writeInt(render_object.format);
+            out.writeFloat(render_object.x);
+            out.writeFloat(render_object.y);
+            out.writeFloat(render_object.z);
+            out.writeInt(render_object.id);
+            NovaTrace.writeInts(out, render_object.vertex_data.getIntArray(0, render_object.vertex_buffer_size), render_object.vertex_buffer_size);
+            NovaTrace.writeInts(out, render_object.indices.getIntArray(0, render_object.index_buffer_size), render_object.index_buffer_size);
+        });
+        if(delegate != null) {
+            delegate.add_chunk_geometry_for_filter(filter_name, render_object);
+        }
+    }
+
+    @Override
+    public void add_chunk_geometry_batch(int num_meshes, String[] filter_names, int[] descriptors, int[] vertex_data, int vertex_count, int[] indices, int index_count) {
+        record(NovaTrace.ADD_CHUNK_GEOMETRY_BATCH, out -> {
+            out.writeInt(num_meshes);
+            for(int i = 0; i < num_meshes; i++) {
+                NovaTrace.writeString(out, filter_names[i]);
+            }
+            // The arrays are reused and can be much longer than what's in them, so only the used part is written
+            NovaTrace.writeInts(out, descriptors, num_meshes * ChunkGeometryBatch.DESCRIPTOR_SIZE);
+            NovaTrace.writeInts(out, vertex_data, vertex_count);
+            NovaTrace.writeInts(out, indices, index_count);
+        });
+        if(delegate != null) {
+            delegate.add_chunk_geometry_batch(num_meshes, filter_names, descriptors, vertex_data, vertex_count, indices, index_count);
+        }
+    }
+
+    @Override
+    public void update_chunk_indices(String filter_name, int id, int geometry_version, int[] indices, int num_indices) {
+        record(NovaTrace.UPDATE_CHUNK_INDICES, out -> {
+            NovaTrace.writeString(out, filter_name);
+            out.writeInt(id);
+            out.writeInt(geometry_version);
+            NovaTrace.writeInts(out, indices, num_indices);
+        });
+        if(delegate != null) {
+            delegate.update_chunk_indices(filter_name, id, geometry_version, indices, num_indices);
+        }
+    }
+
+    @Override
+    public boolean should_close() {
+        return delegate != null && delegate.should_close();
+    }
+
+    @Override
+    public void add_gui_geometry(String type, mc_gui_buffer buffer) {
+        record(NovaTrace.ADD_GUI_GEOMETRY, out -> {
+            NovaTrace.writeString(out, type);
+            NovaTrace.writeString(out, buffer.texture_name);
+            NovaTrace.writeString(out, buffer.atlas_name);
+            int[] indices = buffer.index_buffer_size > 0 ? buffer.index_buffer.getIntArray(0, buffer.index_buffer_size) : new int[0];
+            int[] vertices = buffer.vertex_buffer_size > 0 ? buffer.vertex_buffer.getIntArray(0, buffer.vertex_buffer_size) : new int[0];
+            NovaTrace.writeInts(out, indices, indices.length);
+            NovaTrace.writeInts(out, vertices, vertices.length);
+        });
+        if(delegate != null) {
+            delegate.add_gui_geometry(type, buffer);
+        }
+    }
+
+    @Override
+    public void clear_gui_buffers() {
+        record(NovaTrace.CLEAR_GUI_BUFFERS, out -> {});
+        if(delegate != null) {
+            delegate.clear_gui_buffers();
+        }
+    }
+
+    @Override
+    public void remove_gui_geometry(String texture_name) {
+        record(NovaTrace.REMOVE_GUI_GEOMETRY, out -> NovaTrace.writeString(out, texture_name));
+        if(delegate != null) {
+            delegate.remove_gui_geometry(texture_name);
+        }
+    }
+
+    @Override
+    public void set_mouse_grabbed(boolean grabbed) {
+        record(NovaTrace.SET_MOUSE_GRABBED, out -> out.writeBoolean(grabbed));
+        if(delegate != null) {
+            delegate.set_mouse_grabbed(grabbed);
+        }
+    }
+
+    @Override
+    public mouse_button_event get_next_mouse_button_event() {
+        return delegate != null ? delegate.get_next_mouse_button_event() : new mouse_button_event();
+    }
+
+    @Override
+    public mouse_position_event get_next_mouse_position_event() {
+        return delegate != null ? delegate.get_next_mouse_position_event() : new mouse_position_event();
+    }
+
+    @Override
+    public mouse_scroll_event get_next_mouse_scroll_event() {
+        return delegate != null ? delegate.get_next_mouse_scroll_event() : new mouse_scroll_event();
+    }
+
+    @Override
+    public key_press_event get_next_key_press_event() {
+        return delegate != null ? delegate.get_next_key_press_event() : new key_press_event();
+    }
+
+    @Override
+    public key_char_event get_next_key_char_event() {
+        return delegate != null ? delegate.get_next_key_char_event() : new key_char_event();
+    }
+
+    @Override
+    public window_size get_window_size() {
+        if(delegate != null) {
+            return delegate.get_window_size();
+        }
+
+        window_size size = new window_size();
+        size.width = HEADLESS_WINDOW_WIDTH;
+        size.height = HEADLESS_WINDOW_HEIGHT;
+        return size;
+    }
+
+    @Override
+    public int get_window_width() {
+        return delegate != null ? delegate.get_window_width() : HEADLESS_WINDOW_WIDTH;
+    }
+
+    @Override
+    public int get_window_height() {
+        return delegate != null ? delegate.get_window_height() : HEADLESS_WINDOW_HEIGHT;
+    }
+
+    @Override
+    public int poll_mouse_button_event(int[] out) {
+        return delegate != null ? delegate.poll_mouse_button_event(out) : 0;
+    }
+
+    @Override
+    public int poll_mouse_position_event(int[] out) {
+        return delegate != null ? delegate.poll_mouse_position_event(out) : 0;
+    }
+
+    @Override
+    public int poll_mouse_scroll_event(double[] out) {
+        return delegate != null ? delegate.poll_mouse_scroll_event(out) : 0;
+    }
+
+    @Override
+    public int poll_key_press_event(int[] out) {
+        return delegate != null ? delegate.poll_key_press_event(out) : 0;
+    }
+
+    @Override
+    public int poll_key_char_event(long[] out) {
+        return delegate != null ? delegate.poll_key_char_event(out) : 0;
+    }
+
+    @Override
+    public void set_fullscreen(int fullscreen) {
+        record(NovaTrace.SET_FULLSCREEN, out -> out.writeInt(fullscreen));
+        if(delegate != null) {
+            delegate.set_fullscreen(fullscreen);
+        }
+    }
+
+    @Override
+    public boolean display_is_active() {
+        return delegate == null || delegate.display_is_active();
+    }
+
+    /**
+     * Not recorded, since a replay runs as fast as it can anyway
+     */
+    @Override
+    public int wait_for_events(double timeout_seconds) {
+        if(delegate != null) {
+            return delegate.wait_for_events(timeout_seconds);
+        }
+        return 0;
+    }
+
+    @Override
+    public void set_string_setting(String setting, String value) {
+        record(NovaTrace.SET_STRING_SETTING, out -> {
+            NovaTrace.writeString(out, setting);
+            NovaTrace.writeString(out, value);
+        });
+        if(delegate != null) {
+            delegate.set_string_setting(setting, value);
+        }
+    }
+
+    @Override
+    public void set_float_setting(String setting_name, float setting_value) {
+        record(NovaTrace.SET_FLOAT_SETTING, out -> {
+            NovaTrace.writeString(out, setting_name);
+            out.writeFloat(setting_value);
+        });
+        if(delegate != null) {
+            delegate.set_float_setting(setting_name, setting_value);
+        }
+    }
+
+    @Override
+    public void set_player_camera_transform(double x, double y, double z, float yaw, float pitch) {
+        record(NovaTrace.SET_PLAYER_CAMERA_TRANSFORM, out -> {
+            out.writeDouble(x);
+            out.writeDouble(y);
+            out.writeDouble(z);
+            out.writeFloat(yaw);
+            out.writeFloat(pitch);
+        });
+        if(delegate != null) {
+            delegate.set_player_camera_transform(x, y, z, yaw, pitch);
+        }
+    }
+
+    @Override
+    public String get_materials_and_filters() {
+        return delegate != null ? delegate.get_materials_and_filters() : HEADLESS_MATERIALS_AND_FILTERS;
+    }
+}
@@ -0,0 +1,260 @@
+package com.continuum.nova.system;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Plays back a trace written by a {@link RecordingNovaNative} against any {@link NovaNative}
+ *
+ * <p>Calls are made as fast as the target takes them, rather than at the speed they were recorded. That makes a
+ * replay against the native library a repeatable benchmark for the native side, with the Java side taken out of the
+ * picture.</p>
+ *
+ * <p>Run it with <code>java com.continuum.nova.system.TraceReplayer &lt;trace&gt; [native library]</code>. Without a
+ * native library it replays into a headless backend, which is only useful for checking that a trace can be read.</p>
+ */
+public class TraceReplayer {
+    private static final Logger LOG = LogManager.getLogger(TraceReplayer.class);
+
+    private final DataInputStream in;
+    private final NovaNative target;
+    private final FrameArena arena = new FrameArena(RecordingNovaNative.GUI_ARENA_SIZE);
+
+    private int frames;
+    private int calls;
+
+    public TraceReplayer(InputStream trace, NovaNative target) {
+        this.in = new DataInputStream(new BufferedInputStream(trace, 1 << 20));
+        this.target = target;
+    }
+
+    /**
+     * Makes every call in the trace
+     *
+     * @throws IOException If the trace can't be read, or isn't a trace
+     */
+    public void replay() throws IOException {
+        if(in.readInt() != NovaTrace.MAGIC) {
+            throw new IOException("Not a Nova trace");
+        }
+
+        int version = in.readInt();
+        if(version != NovaTrace.VERSION) {
+            throw new IOException("Trace is version " + version + " but only version " + NovaTrace.VERSION + " can be replayed");
+        }
+
+        while(true) {
+            int call = in.read();
+            if(call == -1) {
+                break;
+            }
+
+            try {
+                replayCall((byte) call);
+            } catch(EOFException e) {
+                LOG.warn("The trace ends in the middle of a call, so the last call was skipped");
+                break;
+            }
+            calls++;
+        }
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    public int getCalls() {
+        return calls;
+    }
+
+    public FrameArena getArena() {
+        return arena;
+    }
+
+    private void replayCall(byte call) throws IOException {
+        switch(call) {
+            case NovaTrace.INITIALIZE:
+                target.initialize();
+                break;
+
+            case NovaTrace.EXECUTE_FRAME:
+                in.readLong();
+                target.execute_frame();
+                arena.endFrame();
+                frames++;
+                break;
+
+            case NovaTrace.SEND_LIGHTMAP_TEXTURE:
+                int[] lightmap = NovaTrace.readInts(in);
+                int lightmapWidth = in.readInt();
+                int lightmapHeight = in.readInt();
+                target.send_lightmap_texture(lightmap, lightmap.length, lightmapWidth, lightmapHeight);
+                break;
+
+            case NovaTrace.ADD_TEXTURE:
+                String textureName = NovaTrace.readString(in);
+                int width = in.readInt();
+                int height = in.readInt();
+                int numComponents = in.readInt();
+                byte[] textureData = new byte[width * height * numComponents];
+                in.readFully(textureData);
+
+                NovaNative.mc_atlas_texture texture = new NovaNative.mc_atlas_texture(width, height, numComponents, textureData);
+                texture.setName(textureName);
+                target.add_texture(texture);
+                break;
+
+            case NovaTrace.ADD_TEXTURE_LOCATION:
+                target.add_texture_location(new NovaNative.mc_texture_atlas_location(NovaTrace.readString(in),
+                        in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat()));
+                break;
+
+            case NovaTrace.RESET_TEXTURE_MANAGER:
+                target.reset_texture_manager();
+                break;
+
+            case NovaTrace.ADD_CHUNK_GEOMETRY_FOR_FILTER:
+                String chunkFilterName = NovaTrace.readString(in);
+                NovaNative.mc_chunk_render_object renderObject = new NovaNative.mc_chunk_render_object();
+                renderObject.format = in.readInt();
+                renderObject.x = in.readFloat();
+                renderObject.y = in.readFloat();
+                renderObject.z = in.readFloat();
+                renderObject.id = in.readInt();
+
+                int[] vertexData = NovaTrace.readInts(in);
+                int[] chunkIndices = NovaTrace.readInts(in);
+                renderObject.vertex_buffer_size = vertexData.length;
+                renderObject.index_buffer_size = chunkIndices.length;
+                if(vertexData.length > 0) {
+                    renderObject.vertex_data = new Memory(vertexData.length * 4L);
+                    renderObject.vertex_data.write(0, vertexData, 0, vertexData.length);
+                }
+                if(chunkIndices.length > 0) {
+                    renderObject.indices = new Memory(chunkIndices.length * 4L);
+                    renderObject.indices.write(0, chunkIndices, 0, chunkIndices.length);
+                }
+
+                target.add_chunk_geometry_for_filter(chunkFilterName, renderObject);
+                break;
+
+            case NovaTrace.ADD_CHUNK_GEOMETRY_BATCH:
+                int numMeshes = in.readInt();
+                String[] filterNames = new String[numMeshes];
+                for(int i = 0; i < numMeshes; i++) {
+                    filterNames[i] = NovaTrace.readString(in);
+                }
+                int[] descriptors = NovaTrace.readInts(in);
+                int[] batchVertexData = NovaTrace.readInts(in);
+                int[] batchIndices = NovaTrace.readInts(in);
+                target.add_chunk_geometry_batch(numMeshes, filterNames, descriptors, batchVertexData, batchVertexData.length, batchIndices, batchIndices.length);
+                break;
+
+            case NovaTrace.UPDATE_CHUNK_INDICES:
+                String indicesFilterName = NovaTrace.readString(in);
+                int id = in.readInt();
+                int geometryVersion = in.readInt();
+                int[] sortedIndices = NovaTrace.readInts(in);
+                target.update_chunk_indices(indicesFilterName, id, geometryVersion, sortedIndices, sortedIndices.length);
+                break;
+
+            case NovaTrace.ADD_GUI_GEOMETRY:
+                String type = NovaTrace.readString(in);
+                NovaNative.mc_gui_buffer guiBuffer = new NovaNative.mc_gui_buffer();
+                guiBuffer.texture_name = NovaTrace.readString(in);
+                guiBuffer.atlas_name = NovaTrace.readString(in);
+
+                int[] guiIndices = NovaTrace.readInts(in);
+                int[] guiVertices = NovaTrace.readInts(in);
+                guiBuffer.index_buffer_size = guiIndices.length;
+                guiBuffer.vertex_buffer_size = guiVertices.length;
+                if(guiIndices.length > 0) {
+                    guiBuffer.index_buffer = arena.allocate(guiIndices.length * 4L);
+                    guiBuffer.index_buffer.write(0, guiIndices, 0, guiIndices.length);
+                }
+                if(guiVertices.length > 0) {
+                    guiBuffer.vertex_buffer = arena.allocate(guiVertices.length * 4L);
+                    guiBuffer.vertex_buffer.write(0, guiVertices, 0, guiVertices.length);
+                }
+
+                target.add_gui_geometry(type, guiBuffer);
+                break;
+
+            case NovaTrace.CLEAR_GUI_BUFFERS:
+                target.clear_gui_buffers();
+                break;
+
+            case NovaTrace.REMOVE_GUI_GEOMETRY:
+                target.remove_gui_geometry(NovaTrace.readString(in));
+                break;
+
+            case NovaTrace.SET_MOUSE_GRABBED:
+                target.set_mouse_grabbed(in.readBoolean());
+                break;
+
+            case NovaTrace.SET_FULLSCREEN:
+                target.set_fullscreen(in.readInt());
+                break;
+
+            case NovaTrace.SET_STRING_SETTING:
+                target.set_string_setting(NovaTrace.readString(in), NovaTrace.readString(in));
+                break;
+
+            case NovaTrace.SET_FLOAT_SETTING:
+                target.set_float_setting(NovaTrace.readString(in), in.readFloat());
+                break;
+
+            case NovaTrace.SET_PLAYER_CAMERA_TRANSFORM:
+                target.set_player_camera_transform(in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat());
+                break;
+
+            default:
+                throw new IOException("Unknown call " + call + " in trace");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.err.println("Usage: TraceReplayer <trace> [native library]");
+            System.exit(1);
+        }
+
+        NovaNative target;
+        if(args.length > 1) {
+            NovaNative proxy = (NovaNative) Native.loadLibrary(args[1], NovaNative.class);
+            target = new DirectMappedNovaNative(NativeLibrary.getInstance(args[1]), proxy);
+        } else {
+            target = new RecordingNovaNative(new OutputStream() {
+                @Override
+                public void write(int b) {}
+
+                @Override
+                public void write(byte[] b, int off, int len) {}
+            }, null);
+        }
+
+        try(InputStream trace = new FileInputStream(args[0])) {
+            TraceReplayer replayer = new TraceReplayer(trace, target);
+
+            long start = System.nanoTime();
+            replayer.replay();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            LOG.info("Replayed {} calls and {} frames in {} seconds ({} frames per second)", replayer.getCalls(),
+                    replayer.getFrames(), String.format("%.2f", seconds), String.format("%.1f", replayer.getFrames() / seconds));
+            LOG.info("GUI geometry needed at most {} bytes in one frame, {} allocations didn't fit in {} bytes",
+                    replayer.getArena().getHighWaterMark(), replayer.getArena().getOverflowAllocations(), replayer.getArena().getHalfSize());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.continuum.nova.utils;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive longs to primitive ints
+ *
+ * <p>Exists so that hot paths which key things by packed coordinates don't have to box every key into a Long. Not
+ * thread safe, callers are expected to do their own locking.</p>
+ */
+public class LongIntHashMap {
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int missingValue;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * @param missingValue The value to return from {@link #get(long)} and {@link #remove(long)} when a key isn't in
+     *                     the map
+     */
+    public LongIntHashMap(int missingValue) {
+        this(16, missingValue);
+    }
+
+    public LongIntHashMap(int initialCapacity, int missingValue) {
+        this.missingValue = missingValue;
+        allocate(NovaMath.roundUpToPowerOfTwo(Math.max(initialCapacity, 4)));
+    }
+
+    public int get(long key) {
+        int slot = findSlot(key);
+        return used[slot] ? values[slot] : missingValue;
+    }
+
+    public boolean containsKey(long key) {
+        return used[findSlot(key)];
+    }
+
+    /**
+     * Puts the given value in the map, replacing the value that was there before
+     *
+     * @return The value previously associated with the key, or the missing value if there was none
+     */
+    public int put(long key, int value) {
+        int slot = findSlot(key);
+        if(used[slot]) {
+            int oldValue = values[slot];
+            values[slot] = value;
+            return oldValue;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        size++;
+
+        if(size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+
+        return missingValue;
+    }
+
+    /**
+     * Removes the given key from the map
+     *
+     * @return The value that was associated with the key, or the missing value if there was none
+     */
+    public int remove(long key) {
+        int slot = findSlot(key);
+        if(!used[slot]) {
+            return missingValue;
+        }
+
+        int oldValue = values[slot];
+        used[slot] = false;
+        size--;
+
+        // Shift later entries in the probe sequence back so lookups don't stop at the hole we just made
+        int mask = keys.length - 1;
+        int hole = slot;
+        int cur = (slot + 1) & mask;
+        while(used[cur]) {
+            int ideal = mix(keys[cur]) & mask;
+            boolean shouldMove = hole <= cur ? (ideal <= hole || ideal > cur) : (ideal <= hole && ideal > cur);
+            if(shouldMove) {
+                keys[hole] = keys[cur];
+                values[hole] = values[cur];
+                used[hole] = true;
+                used[cur] = false;
+                hole = cur;
+            }
+            cur = (cur + 1) & mask;
+        }
+
+        return oldValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return A new array with every value in the map, in no particular order
+     */
+    public int[] values() {
+        int[] result = new int[size];
+        int next = 0;
+        for(int slot = 0; slot < keys.length; slot++) {
+            if(used[slot]) {
+                result[next++] = values[slot];
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while(used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        allocate(newCapacity);
+        size = 0;
+
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldUsed[i]) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
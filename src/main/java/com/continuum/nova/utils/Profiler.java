@@ -5,6 +5,7 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Provides a simpler profiling interface than Minecraft's profiler
@@ -33,6 +34,8 @@ public class Profiler {
 
     private static Map<String, ProfilerData> profilerDataMap = new HashMap<>();
 
+    private static Map<String, Double> counters = new TreeMap<>();
+
     public static void start(String name) {
         if(!profilerDataMap.containsKey(name)) {
             profilerDataMap.put(name, new ProfilerData());
@@ -45,6 +48,13 @@ public class Profiler {
         profilerDataMap.get(name).stop();
     }
 
+    /**
+     * Sets a value to be logged along with the section timings, for numbers that aren't a time on the render thread
+     */
+    public static void setCounter(String name, double value) {
+        counters.put(name, value);
+    }
+
     private static int counter = 0;
 
     public static void logData() {
@@ -52,6 +62,9 @@ public class Profiler {
             for(Map.Entry<String, ProfilerData> entry : profilerDataMap.entrySet()) {
                 LOG.debug("Section {} has taken an total of {}ms since the game began", entry.getKey(), (double) entry.getValue().total_duration / 1000000.0);
             }
+            for(Map.Entry<String, Double> entry : counters.entrySet()) {
+                LOG.debug("Counter {} is {}", entry.getKey(), entry.getValue());
+            }
             counter = 0;
         }
         counter++;